@@ -0,0 +1,368 @@
+package com.xinchen.feign;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按route自动调整连接数的连接池，替代HttpClientBuilder默认的每个route 2条连接
+ *
+ * <pre>
+ * CloseableHttpClient httpClient = HttpClientBuilder.create()
+ *         .setConnectionManager(AdaptiveConnectionManager.builder().build())
+ *         .build();
+ * </pre>
+ *
+ * 包装{@link PoolingHttpClientConnectionManager}，记录每个route获取连接的等待时间和连接的占用时间(请求在途时间)，
+ * 后台定时器每个interval调整一次maxPerRoute：
+ *
+ * <ul>
+ *     <li>按Little定律估算需要的连接数：租用速率 × 平均占用时间 × headroom，且不低于本周期的最大并发租用数</li>
+ *     <li>平均等待超过waitThreshold或者有排队的请求时至少翻倍</li>
+ *     <li>需要的连接数比上限少25%以上时才缩小，每次只缩小一半差值，避免抖动</li>
+ * </ul>
+ *
+ * 同一个定时器关闭过期连接和空闲超过idleTimeout的连接
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 04:20
+ */
+public final class AdaptiveConnectionManager implements HttpClientConnectionManager, Closeable {
+
+    private final PoolingHttpClientConnectionManager pool;
+    private final int minPerRoute;
+    private final int maxPerRoute;
+    private final double headroom;
+    private final long waitThresholdNanos;
+    private final long idleTimeoutMillis;
+    private final ScheduledExecutorService timer;
+
+    private final ConcurrentMap<HttpRoute, RouteMetrics> routes = new ConcurrentHashMap<>();
+    /**
+     * 已租出的连接，归还时算出占用时间
+     */
+    private final ConcurrentMap<HttpClientConnection, Lease> leases = new ConcurrentHashMap<>();
+
+    private long lastAdjustNanos = System.nanoTime();
+
+    private final LongAdder leaseTimeouts = new LongAdder();
+    private final LongAdder resizes = new LongAdder();
+
+    private AdaptiveConnectionManager(Builder builder) {
+        this.pool = builder.pool != null ? builder.pool : new PoolingHttpClientConnectionManager();
+        this.minPerRoute = builder.minPerRoute;
+        this.maxPerRoute = builder.maxPerRoute;
+        this.headroom = builder.headroom;
+        this.waitThresholdNanos = builder.waitThresholdNanos;
+        this.idleTimeoutMillis = builder.idleTimeoutMillis;
+        pool.setMaxTotal(builder.maxTotal);
+        pool.setDefaultMaxPerRoute(minPerRoute);
+
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            final Thread thread = new Thread(r, "feign-pool-adapter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::maintain, builder.intervalNanos, builder.intervalNanos, TimeUnit.NANOSECONDS);
+        this.timer = executor;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+        final RouteMetrics metrics = routes.computeIfAbsent(route, RouteMetrics::new);
+        final ConnectionRequest request = pool.requestConnection(route, state);
+        return new ConnectionRequest() {
+            @Override
+            public HttpClientConnection get(long timeout, TimeUnit unit)
+                    throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                final long start = System.nanoTime();
+                final HttpClientConnection connection;
+                try {
+                    connection = request.get(timeout, unit);
+                } catch (ConnectionPoolTimeoutException e) {
+                    leaseTimeouts.increment();
+                    metrics.waitNanos.add(System.nanoTime() - start);
+                    throw e;
+                }
+                final long leasedAt = System.nanoTime();
+                metrics.leased(leasedAt - start);
+                leases.put(connection, new Lease(metrics, leasedAt));
+                return connection;
+            }
+
+            @Override
+            public boolean cancel() {
+                return request.cancel();
+            }
+        };
+    }
+
+    @Override
+    public void releaseConnection(HttpClientConnection conn, Object newState, long validDuration, TimeUnit timeUnit) {
+        final Lease lease = leases.remove(conn);
+        if (lease != null) {
+            lease.metrics.released(System.nanoTime() - lease.leasedAt);
+        }
+        pool.releaseConnection(conn, newState, validDuration, timeUnit);
+    }
+
+    @Override
+    public void connect(HttpClientConnection conn, HttpRoute route, int connectTimeout, HttpContext context) throws IOException {
+        pool.connect(conn, route, connectTimeout, context);
+    }
+
+    @Override
+    public void upgrade(HttpClientConnection conn, HttpRoute route, HttpContext context) throws IOException {
+        pool.upgrade(conn, route, context);
+    }
+
+    @Override
+    public void routeComplete(HttpClientConnection conn, HttpRoute route, HttpContext context) throws IOException {
+        pool.routeComplete(conn, route, context);
+    }
+
+    @Override
+    public void closeIdleConnections(long idletime, TimeUnit unit) {
+        pool.closeIdleConnections(idletime, unit);
+    }
+
+    @Override
+    public void closeExpiredConnections() {
+        pool.closeExpiredConnections();
+    }
+
+    @Override
+    public void shutdown() {
+        timer.shutdownNow();
+        pool.shutdown();
+    }
+
+    @Override
+    public void close() {
+        shutdown();
+    }
+
+    private void maintain() {
+        try {
+            pool.closeExpiredConnections();
+            pool.closeIdleConnections(idleTimeoutMillis, TimeUnit.MILLISECONDS);
+            adjust();
+        } catch (RuntimeException e) {
+            // 定时任务抛出异常后不会再执行，这里吞掉保证下个周期继续调整
+        }
+    }
+
+    /**
+     * 按上次调整以来的统计调整每个route的maxPerRoute，由定时器调用
+     */
+    synchronized void adjust() {
+        final long now = System.nanoTime();
+        final double elapsedSeconds = Math.max(1, now - lastAdjustNanos) / 1e9;
+        lastAdjustNanos = now;
+        for (RouteMetrics metrics : routes.values()) {
+            final long leased = metrics.leases.sumThenReset();
+            final long waitNanos = metrics.waitNanos.sumThenReset();
+            final long released = metrics.releases.sumThenReset();
+            final long holdNanos = metrics.holdNanos.sumThenReset();
+            // 周期结束时仍在使用的连接也算进下个周期的峰值
+            final int peak = metrics.peak.getAndSet(metrics.inUse.get());
+
+            final int current = pool.getMaxPerRoute(metrics.route);
+            final double avgHoldSeconds = released == 0 ? 0 : holdNanos / 1e9 / released;
+            int target = Math.max(peak, (int) Math.ceil(leased / elapsedSeconds * avgHoldSeconds * headroom));
+            final int pending = pool.getStats(metrics.route).getPending();
+            if (pending > 0 || (leased > 0 && waitNanos / leased > waitThresholdNanos)) {
+                target = Math.max(target, current * 2);
+            } else if (target < current - current / 4) {
+                target = current - (current - target + 1) / 2;
+            } else {
+                // 估算值在当前上限附近波动时不调整
+                target = Math.max(target, current);
+            }
+            target = Math.max(minPerRoute, Math.min(maxPerRoute, target));
+            if (target != current) {
+                pool.setMaxPerRoute(metrics.route, target);
+                resizes.increment();
+            }
+        }
+    }
+
+    /**
+     * 当前route的连接上限
+     */
+    public int maxPerRoute(HttpRoute route) {
+        return pool.getMaxPerRoute(route);
+    }
+
+    public PoolStats routeStats(HttpRoute route) {
+        return pool.getStats(route);
+    }
+
+    public PoolStats totalStats() {
+        return pool.getTotalStats();
+    }
+
+    /**
+     * 获取连接超时的次数
+     */
+    public long leaseTimeouts() {
+        return leaseTimeouts.sum();
+    }
+
+    /**
+     * 调整maxPerRoute的次数
+     */
+    public long resizes() {
+        return resizes.sum();
+    }
+
+    public String stats() {
+        final StringBuilder stats = new StringBuilder("pool ").append(pool.getTotalStats())
+                .append(" resizes: ").append(resizes.sum())
+                .append(" leaseTimeouts: ").append(leaseTimeouts.sum());
+        for (Map.Entry<HttpRoute, RouteMetrics> route : routes.entrySet()) {
+            stats.append("\n  ").append(route.getKey()).append(' ').append(pool.getStats(route.getKey()));
+        }
+        return stats.toString();
+    }
+
+    private static final class RouteMetrics {
+        final HttpRoute route;
+        final LongAdder leases = new LongAdder();
+        final LongAdder waitNanos = new LongAdder();
+        final LongAdder releases = new LongAdder();
+        final LongAdder holdNanos = new LongAdder();
+        final AtomicInteger inUse = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+
+        RouteMetrics(HttpRoute route) {
+            this.route = route;
+        }
+
+        void leased(long waitNanos) {
+            leases.increment();
+            this.waitNanos.add(waitNanos);
+            final int using = inUse.incrementAndGet();
+            peak.accumulateAndGet(using, Math::max);
+        }
+
+        void released(long holdNanos) {
+            releases.increment();
+            this.holdNanos.add(holdNanos);
+            inUse.decrementAndGet();
+        }
+    }
+
+    private static final class Lease {
+        final RouteMetrics metrics;
+        final long leasedAt;
+
+        Lease(RouteMetrics metrics, long leasedAt) {
+            this.metrics = metrics;
+            this.leasedAt = leasedAt;
+        }
+    }
+
+    public static final class Builder {
+        private PoolingHttpClientConnectionManager pool;
+        private int minPerRoute = 2;
+        private int maxPerRoute = 256;
+        private int maxTotal = 1024;
+        private double headroom = 1.25;
+        private long waitThresholdNanos = TimeUnit.MILLISECONDS.toNanos(1);
+        private long intervalNanos = TimeUnit.SECONDS.toNanos(1);
+        private long idleTimeoutMillis = TimeUnit.SECONDS.toMillis(30);
+
+        private Builder() {
+        }
+
+        /**
+         * 被包装的连接池，用于自定义SSL、DNS等，maxTotal和defaultMaxPerRoute会被覆盖
+         */
+        public Builder pool(PoolingHttpClientConnectionManager pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * 每个route的连接数上下限，初始为下限
+         */
+        public Builder perRoute(int min, int max) {
+            if (min < 1 || max < min) {
+                throw new IllegalArgumentException("require 1 <= min <= max");
+            }
+            this.minPerRoute = min;
+            this.maxPerRoute = max;
+            return this;
+        }
+
+        public Builder maxTotal(int maxTotal) {
+            this.maxTotal = maxTotal;
+            return this;
+        }
+
+        /**
+         * 估算出的连接数乘以的余量，默认1.25
+         */
+        public Builder headroom(double headroom) {
+            if (headroom < 1) {
+                throw new IllegalArgumentException("headroom must be >= 1");
+            }
+            this.headroom = headroom;
+            return this;
+        }
+
+        /**
+         * 平均等待连接的时间超过它时扩容，默认1ms
+         */
+        public Builder waitThreshold(long waitThreshold, TimeUnit unit) {
+            this.waitThresholdNanos = unit.toNanos(waitThreshold);
+            return this;
+        }
+
+        /**
+         * 调整和清理连接的周期，默认1s
+         */
+        public Builder interval(long interval, TimeUnit unit) {
+            if (interval <= 0) {
+                throw new IllegalArgumentException("interval must be positive");
+            }
+            this.intervalNanos = unit.toNanos(interval);
+            return this;
+        }
+
+        /**
+         * 空闲超过它的连接被关闭，默认30s
+         */
+        public Builder idleTimeout(long idleTimeout, TimeUnit unit) {
+            this.idleTimeoutMillis = unit.toMillis(idleTimeout);
+            return this;
+        }
+
+        public AdaptiveConnectionManager build() {
+            return new AdaptiveConnectionManager(this);
+        }
+    }
+}
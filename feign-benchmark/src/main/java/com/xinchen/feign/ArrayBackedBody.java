@@ -0,0 +1,76 @@
+package com.xinchen.feign;
+
+import feign.Response;
+import feign.Util;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * 内容整个在堆内byte[]中的{@link Response.Body}，{@link Utf8JacksonDecoder}可以直接把数组交给Jackson，不需要包装成流
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 00:10
+ */
+public interface ArrayBackedBody {
+
+    /**
+     * @return body的全部内容，可能是缓存持有的数组，调用方不能修改；内容不在堆内数组中时返回null
+     */
+    byte[] array();
+
+    static Response.Body of(byte[] bytes) {
+        return new Heap(bytes);
+    }
+
+    final class Heap implements Response.Body, ArrayBackedBody {
+        private final byte[] bytes;
+
+        private Heap(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public byte[] array() {
+            return bytes;
+        }
+
+        @Override
+        public Integer length() {
+            return bytes.length;
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public InputStream asInputStream() {
+            return new ByteArrayInputStream(bytes);
+        }
+
+        @SuppressWarnings("deprecation")
+        @Override
+        public Reader asReader() {
+            return new InputStreamReader(asInputStream(), UTF_8);
+        }
+
+        @Override
+        public Reader asReader(Charset charset) {
+            Util.checkNotNull(charset, "charset should not be null");
+            return new InputStreamReader(asInputStream(), charset);
+        }
+
+        @Override
+        public void close() {
+            // nothing to release
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.xinchen.feign;
+
+import feign.AsyncFeign;
+import feign.Feign;
+import feign.Logger;
+import feign.RequestLine;
+import feign.Response;
+import feign.Retryer;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 同时有1/64/1024个请求在途时，{@link NettyAsyncClient}与每个请求占一个线程的OkHttp的吞吐和线程数
+ *
+ * 每次调用发出inFlight个请求并等待全部完成，请求数/秒 = score * inFlight；
+ * 每轮迭代结束时JVM的线程数作为辅助结果liveThreads记录
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 21:50
+ */
+@Measurement(iterations = 5, time = 1)
+@Warmup(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class BenchmarkAsyncRequest {
+
+    @Param({"1", "64", "1024"})
+    private int inFlight;
+
+    @Param({"netty", "okhttp"})
+    private String client;
+
+    /**
+     * 服务端的延迟分布，格式见{@link EmbeddedHttpbin.Latency#parse(String)}
+     */
+    @Param({"none"})
+    private String latency;
+
+    private EmbeddedHttpbin server;
+    private NettyAsyncClient<Void> nettyClient;
+    private AsyncTestInterface asyncFeign;
+    private ExecutorService blockingCallers;
+    private TestInterface okFeign;
+    private CompletableFuture<?>[] calls;
+
+    @Setup
+    public void setup() {
+        // 返回固定的小json
+        server = new EmbeddedHttpbin(64, null, false)
+                .latency(latency)
+                .start();
+        final String url = server.url();
+        if ("netty".equals(client)) {
+            nettyClient = new NettyAsyncClient<>();
+            asyncFeign = AsyncFeign.<Void>asyncBuilder()
+                    .client(nettyClient)
+                    .logLevel(Logger.Level.NONE)
+                    .logger(new Logger.ErrorLogger())
+                    .target(AsyncTestInterface.class, url);
+        } else {
+            // 阻塞客户端每个在途请求占一个线程
+            final OkHttpClient okHttpClient = new OkHttpClient.Builder()
+                    .connectionPool(new okhttp3.ConnectionPool(inFlight, 5, TimeUnit.MINUTES))
+                    .build();
+            blockingCallers = Executors.newFixedThreadPool(inFlight);
+            okFeign = Feign.builder()
+                    .client(new feign.okhttp.OkHttpClient(okHttpClient))
+                    .logLevel(Logger.Level.NONE)
+                    .logger(new Logger.ErrorLogger())
+                    .retryer(new Retryer.Default())
+                    .target(TestInterface.class, url);
+        }
+        calls = new CompletableFuture<?>[inFlight];
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (nettyClient != null) {
+            nettyClient.close();
+        }
+        if (blockingCallers != null) {
+            blockingCallers.shutdownNow();
+        }
+        server.shutdown();
+    }
+
+    @Benchmark
+    public int query(Counters counters) {
+        for (int i = 0; i < inFlight; i++) {
+            calls[i] = "netty".equals(client)
+                    ? asyncFeign.query().thenAccept(Response::close)
+                    : CompletableFuture.runAsync(() -> okFeign.query().close(), blockingCallers);
+        }
+        CompletableFuture.allOf(calls).join();
+        return inFlight;
+    }
+
+    /**
+     * 线程数是整个JVM的，只由第0个benchmark线程记录，多线程运行时不会被累加
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long liveThreads;
+
+        @TearDown(Level.Iteration)
+        public void sample(ThreadParams threadParams) {
+            liveThreads = threadParams.getThreadIndex() == 0 ? ManagementFactory.getThreadMXBean().getThreadCount() : 0;
+        }
+    }
+
+    public interface AsyncTestInterface {
+        @RequestLine("GET /?Action=GetUser&Version=2010-05-08&limit=1")
+        CompletableFuture<Response> query();
+    }
+}
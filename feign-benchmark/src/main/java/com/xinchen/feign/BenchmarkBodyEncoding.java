@@ -0,0 +1,102 @@
+package com.xinchen.feign;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import feign.Feign;
+import feign.codec.Encoder;
+import feign.jackson.JacksonEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上传body：{@link JacksonEncoder}与{@link PooledJacksonEncoder}经过{@link CacheableApacheHttpClient}发送的开销
+ *
+ * 调用TestInterface.bodyParam(List)，假上游把请求body完整写出。关注点是每次调用的分配量，
+ * 直接运行main会带上GC profiler，并打印gc.alloc.rate.norm与body大小的比值(相当于body被完整分配了几份)；
+ * 用JMH命令行运行时加-prof gc
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 08:50
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class BenchmarkBodyEncoding {
+    private static final int ITEM_SIZE = 100;
+
+    @Param({"jackson", "pooled"})
+    private String encoder;
+
+    /**
+     * 大约的JSON字节数
+     */
+    @Param({"1024", "65536", "1048576", "4194304"})
+    private int bodySize;
+
+    private TestInterface api;
+    private List<String> body;
+
+    @Setup
+    public void setup() {
+        final ObjectMapper mapper = new ObjectMapper();
+        final Encoder bodyEncoder = "pooled".equals(encoder) ? new PooledJacksonEncoder(mapper) : new JacksonEncoder(mapper);
+        api = Feign.builder()
+                .encoder(bodyEncoder)
+                .client(new CacheableApacheHttpClient(new FakeUpstreamHttpClient()))
+                .target(TestInterface.class, "http://localhost");
+
+        // 每项加上引号和逗号约ITEM_SIZE字节，包含非ASCII字符
+        final StringBuilder item = new StringBuilder("Citroën ");
+        while (item.length() < ITEM_SIZE - 4) {
+            item.append('x');
+        }
+        body = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, bodySize / ITEM_SIZE); i++) {
+            body.add(item.toString());
+        }
+    }
+
+    @Benchmark
+    public void upload() {
+        api.bodyParam(body);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        final String include = BenchmarkBodyEncoding.class.getName() + "\\." + (args.length > 0 ? args[0] : ".*");
+        final List<RunResult> results = new ArrayList<>(new Runner(new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .build()).run());
+
+        System.out.printf("%n%-10s %10s %12s %16s %14s%n", "encoder", "bodySize", "us/op", "alloc B/op", "alloc/body");
+        for (RunResult result : results) {
+            final int bodySize = Integer.parseInt(result.getParams().getParam("bodySize"));
+            final Result<?> alloc = result.getSecondaryResults().get("gc.alloc.rate.norm");
+            final double bytes = alloc == null ? Double.NaN : alloc.getScore();
+            System.out.printf("%-10s %10d %12.1f %16.0f %14.2f%n", result.getParams().getParam("encoder"), bodySize,
+                    result.getPrimaryResult().getScore(), bytes, bytes / bodySize);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.xinchen.feign;
+
+import com.netflix.hystrix.HystrixCommand;
+import com.netflix.hystrix.HystrixCommandGroupKey;
+import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.HystrixCommandProperties;
+import com.netflix.hystrix.HystrixThreadPoolProperties;
+import feign.Feign;
+import feign.Headers;
+import feign.Logger;
+import feign.RequestLine;
+import feign.Retryer;
+import feign.httpclient.ApacheHttpClient;
+import feign.hystrix.FallbackFactory;
+import feign.hystrix.HystrixFeign;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 熔断降级的调用开销：HystrixFeign(THREAD隔离) vs {@link CircuitBreakerCapability} vs 不加熔断的Feign
+ *
+ * 接口与{@link BenchmarkHystrix}相同，上游是无延迟的{@link FakeUpstreamHttpClient}，测出来的是熔断层本身的开销，
+ * 1/8/32个线程看扩展性。Hystrix线程池大小设为32，避免线程池拒绝干扰结果
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 23:40
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class BenchmarkCircuitBreaker {
+
+    @Param({"hystrix", "capability", "none"})
+    private String breaker;
+
+    private Supplier<String> call;
+
+    @Setup
+    public void setup() {
+        final FakeUpstreamHttpClient upstream = new FakeUpstreamHttpClient();
+        switch (breaker) {
+            case "hystrix":
+                final FallbackFactory<HystrixTestInterface> hystrixFallback = cause -> () -> {
+                    throw new RuntimeException(cause);
+                };
+                final HystrixTestInterface hystrix = HystrixFeign.builder()
+                        .setterFactory((target, method) -> HystrixCommand.Setter
+                                .withGroupKey(HystrixCommandGroupKey.Factory.asKey(target.name()))
+                                .andCommandKey(HystrixCommandKey.Factory.asKey(Feign.configKey(target.type(), method)))
+                                .andThreadPoolPropertiesDefaults(HystrixThreadPoolProperties.Setter()
+                                        .withCoreSize(32)
+                                        .withMaximumSize(32)
+                                        .withMaxQueueSize(-1))
+                                .andCommandPropertiesDefaults(HystrixCommandProperties.Setter()
+                                        .withExecutionIsolationStrategy(HystrixCommandProperties.ExecutionIsolationStrategy.THREAD)
+                                        .withExecutionTimeoutInMilliseconds(2000)))
+                        .client(new ApacheHttpClient(upstream))
+                        .logLevel(Logger.Level.NONE)
+                        .retryer(Retryer.NEVER_RETRY)
+                        .target(HystrixTestInterface.class, "http://localhost", hystrixFallback);
+                call = () -> hystrix.query().execute();
+                break;
+            case "capability":
+                final FallbackFactory<PlainTestInterface> fallback = cause -> () -> {
+                    throw new RuntimeException(cause);
+                };
+                final PlainTestInterface capability = Feign.builder()
+                        .addCapability(CircuitBreakerCapability.builder().fallbackFactory(fallback).build())
+                        .client(new ApacheHttpClient(upstream))
+                        .logLevel(Logger.Level.NONE)
+                        .retryer(Retryer.NEVER_RETRY)
+                        .target(PlainTestInterface.class, "http://localhost");
+                call = capability::query;
+                break;
+            case "none":
+                final PlainTestInterface plain = Feign.builder()
+                        .client(new ApacheHttpClient(upstream))
+                        .logLevel(Logger.Level.NONE)
+                        .retryer(Retryer.NEVER_RETRY)
+                        .target(PlainTestInterface.class, "http://localhost");
+                call = plain::query;
+                break;
+            default:
+                throw new IllegalStateException("Unknown breaker: " + breaker);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String threads1() {
+        return call.get();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String threads8() {
+        return call.get();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public String threads32() {
+        return call.get();
+    }
+
+    @Headers("Accept: application/json")
+    interface HystrixTestInterface {
+        @RequestLine("GET /get?Action=GetUser&Version=2010-05-08&limit=1")
+        HystrixCommand<String> query();
+    }
+
+    @Headers("Accept: application/json")
+    interface PlainTestInterface {
+        @RequestLine("GET /get?Action=GetUser&Version=2010-05-08&limit=1")
+        String query();
+    }
+}
@@ -0,0 +1,96 @@
+package com.xinchen.feign;
+
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存过期瞬间，多个线程同时未命中同一个url：对比开启/关闭single-flight时打到上游的请求数和吞吐
+ *
+ * upstreamRequests / ops 越接近 0 说明合并效果越好
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 15:30
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+@Threads(8)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class BenchmarkCoalescing {
+
+    @Param({"true", "false"})
+    private boolean coalescing;
+
+    /**
+     * 缓存存活时间(ms)，调小让过期频繁发生
+     */
+    @Param({"10"})
+    private long ttl;
+
+    /**
+     * 模拟上游耗时(ms)
+     */
+    @Param({"2"})
+    private long latency;
+
+    private FakeUpstreamHttpClient upstream;
+    private CacheableApacheHttpClient client;
+    private Request request;
+    private Request.Options options;
+
+    @Setup
+    public void setup() {
+        upstream = new FakeUpstreamHttpClient(new byte[1024], latency, TimeUnit.MILLISECONDS);
+        // 假上游不返回Cache-Control，ttl即启发式缓存时间
+        client = CacheableApacheHttpClient.builder()
+                .client(upstream)
+                .policy(new CachePolicy(true, ttl, TimeUnit.MILLISECONDS))
+                .coalescing(coalescing)
+                .build();
+        request = Request.create(Request.HttpMethod.GET, "http://localhost/get",
+                Collections.emptyMap(), null, Util.UTF_8, null);
+        options = new Request.Options();
+    }
+
+    @Benchmark
+    public Response query(Counters counters) throws IOException {
+        final long before = upstream.requestsOnCurrentThread();
+        try (Response response = client.execute(request, options)) {
+            counters.upstreamRequests += upstream.requestsOnCurrentThread() - before;
+            return response;
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long upstreamRequests;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            upstreamRequests = 0;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.xinchen.feign;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.math3.stat.inference.TTest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 按benchmark+mode+参数组合比较两次运行
+ *
+ * 两边都有至少2个迭代的原始数据时用Welch t检验(双侧)，p &lt; alpha才算显著；
+ * SampleTime等没有逐迭代数据时退化为比较JMH给出的99.9%置信区间是否重叠。
+ * 显著且变化超过threshold才算改进或退化，Throughput越高越好，其他模式越低越好
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 06:10
+ */
+public final class BenchmarkComparison {
+
+    public enum Status {
+        IMPROVED, REGRESSED, UNCHANGED, NEW, MISSING
+    }
+
+    private final String baselineId;
+    private final String runId;
+    private final List<Entry> entries;
+
+    private BenchmarkComparison(String baselineId, String runId, List<Entry> entries) {
+        this.baselineId = baselineId;
+        this.runId = runId;
+        this.entries = entries;
+    }
+
+    /**
+     * @param alpha     显著性水平，例如0.01
+     * @param threshold 最小相对变化，例如0.02表示2%以内都算不变
+     */
+    public static BenchmarkComparison compare(BenchmarkResultStore.Run baseline, BenchmarkResultStore.Run run,
+                                              double alpha, double threshold) {
+        final Map<String, JsonNode> before = index(baseline.results());
+        final Map<String, JsonNode> after = index(run.results());
+        final List<Entry> entries = new ArrayList<>();
+        for (Map.Entry<String, JsonNode> result : after.entrySet()) {
+            final JsonNode old = before.get(result.getKey());
+            entries.add(old == null
+                    ? new Entry(result.getKey(), result.getValue(), null, Status.NEW, Double.NaN)
+                    : compare(result.getKey(), old, result.getValue(), alpha, threshold));
+        }
+        for (Map.Entry<String, JsonNode> result : before.entrySet()) {
+            if (!after.containsKey(result.getKey())) {
+                entries.add(new Entry(result.getKey(), null, result.getValue(), Status.MISSING, Double.NaN));
+            }
+        }
+        return new BenchmarkComparison(baseline.id(), run.id(), entries);
+    }
+
+    private static Entry compare(String key, JsonNode baseline, JsonNode current, double alpha, double threshold) {
+        final JsonNode oldMetric = baseline.path("primaryMetric");
+        final JsonNode newMetric = current.path("primaryMetric");
+        final double oldScore = oldMetric.path("score").asDouble();
+        final double newScore = newMetric.path("score").asDouble();
+
+        final double[] oldRaw = raw(oldMetric);
+        final double[] newRaw = raw(newMetric);
+        double pValue = Double.NaN;
+        boolean significant;
+        if (oldRaw.length >= 2 && newRaw.length >= 2) {
+            pValue = new TTest().tTest(oldRaw, newRaw);
+        }
+        if (!Double.isNaN(pValue)) {
+            significant = pValue < alpha;
+        } else {
+            // 没有原始数据或者方差为0，看置信区间是否重叠
+            final double errors = error(oldMetric) + error(newMetric);
+            significant = !Double.isNaN(errors) && Math.abs(newScore - oldScore) > errors;
+        }
+        final double change = oldScore == 0 ? 0 : (newScore - oldScore) / oldScore;
+        Status status = Status.UNCHANGED;
+        if (significant && Math.abs(change) >= threshold) {
+            final boolean higherIsBetter = "thrpt".equals(current.path("mode").asText());
+            status = (change > 0) == higherIsBetter ? Status.IMPROVED : Status.REGRESSED;
+        }
+        return new Entry(key, current, baseline, status, pValue);
+    }
+
+    private static double[] raw(JsonNode metric) {
+        final List<Double> values = new ArrayList<>();
+        for (JsonNode fork : metric.path("rawData")) {
+            for (JsonNode iteration : fork) {
+                values.add(iteration.asDouble());
+            }
+        }
+        final double[] raw = new double[values.size()];
+        for (int i = 0; i < raw.length; i++) {
+            raw[i] = values.get(i);
+        }
+        return raw;
+    }
+
+    private static double error(JsonNode metric) {
+        final JsonNode error = metric.path("scoreError");
+        return error.isMissingNode() ? Double.NaN : error.asDouble(Double.NaN);
+    }
+
+    /**
+     * key -> 结果，key形如 com.xinchen.feign.BenchmarkCacheHit.hit thrpt {mode=plain, size=1024}
+     */
+    private static Map<String, JsonNode> index(ArrayNode results) {
+        final Map<String, JsonNode> index = new LinkedHashMap<>();
+        for (JsonNode result : results) {
+            index.put(key(result), result);
+        }
+        return index;
+    }
+
+    static String key(JsonNode result) {
+        final Map<String, String> params = new TreeMap<>();
+        final Iterator<Map.Entry<String, JsonNode>> fields = result.path("params").fields();
+        while (fields.hasNext()) {
+            final Map.Entry<String, JsonNode> param = fields.next();
+            params.put(param.getKey(), param.getValue().asText());
+        }
+        return result.path("benchmark").asText() + " " + result.path("mode").asText()
+                + (params.isEmpty() ? "" : " " + params);
+    }
+
+    public List<Entry> entries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    public boolean hasRegressions() {
+        for (Entry entry : entries) {
+            if (entry.status == Status.REGRESSED) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Map<Status, Integer> summary() {
+        final Map<Status, Integer> summary = new EnumMap<>(Status.class);
+        for (Status status : Status.values()) {
+            summary.put(status, 0);
+        }
+        for (Entry entry : entries) {
+            summary.merge(entry.status, 1, Integer::sum);
+        }
+        return summary;
+    }
+
+    public String toText() {
+        int width = "Benchmark".length();
+        for (Entry entry : entries) {
+            width = Math.max(width, entry.key.length());
+        }
+        final StringBuilder text = new StringBuilder();
+        text.append("baseline ").append(baselineId).append(" -> ").append(runId).append('\n');
+        text.append(String.format("%-" + width + "s  %24s  %24s  %8s  %8s  %s%n",
+                "Benchmark", "Baseline", "Current", "Change", "p", "Status"));
+        for (Entry entry : entries) {
+            text.append(String.format("%-" + width + "s  %24s  %24s  %8s  %8s  %s%n",
+                    entry.key, format(entry.baseline), format(entry.current),
+                    entry.baseline == null || entry.current == null ? "" : String.format("%+.1f%%", entry.change() * 100),
+                    Double.isNaN(entry.pValue) ? "" : String.format("%.4f", entry.pValue),
+                    entry.status));
+        }
+        text.append(summary()).append('\n');
+        return text.toString();
+    }
+
+    private static String format(JsonNode result) {
+        if (result == null) {
+            return "-";
+        }
+        final JsonNode metric = result.path("primaryMetric");
+        final double error = error(metric);
+        return String.format("%.3f +- %s %s", metric.path("score").asDouble(),
+                Double.isNaN(error) ? "NaN" : String.format("%.3f", error), metric.path("scoreUnit").asText());
+    }
+
+    public ObjectNode toJson() {
+        final ObjectNode json = BenchmarkResultStore.MAPPER.createObjectNode();
+        json.put("baseline", baselineId);
+        json.put("run", runId);
+        final ArrayNode comparisons = json.putArray("comparisons");
+        for (Entry entry : entries) {
+            final ObjectNode comparison = comparisons.addObject();
+            comparison.put("key", entry.key);
+            comparison.put("status", entry.status.name());
+            if (entry.baseline != null) {
+                comparison.put("baselineScore", entry.baseline.path("primaryMetric").path("score").asDouble());
+                comparison.put("baselineError", error(entry.baseline.path("primaryMetric")));
+            }
+            if (entry.current != null) {
+                comparison.put("score", entry.current.path("primaryMetric").path("score").asDouble());
+                comparison.put("error", error(entry.current.path("primaryMetric")));
+                comparison.put("unit", entry.current.path("primaryMetric").path("scoreUnit").asText());
+            }
+            if (entry.baseline != null && entry.current != null) {
+                comparison.put("change", entry.change());
+            }
+            if (!Double.isNaN(entry.pValue)) {
+                comparison.put("pValue", entry.pValue);
+            }
+        }
+        final ObjectNode summary = json.putObject("summary");
+        for (Map.Entry<Status, Integer> count : summary().entrySet()) {
+            summary.put(count.getKey().name(), count.getValue());
+        }
+        return json;
+    }
+
+    /**
+     * 一个benchmark+参数组合的比较结果
+     */
+    public static final class Entry {
+        private final String key;
+        private final JsonNode current;
+        private final JsonNode baseline;
+        private final Status status;
+        private final double pValue;
+
+        Entry(String key, JsonNode current, JsonNode baseline, Status status, double pValue) {
+            this.key = key;
+            this.current = current;
+            this.baseline = baseline;
+            this.status = status;
+            this.pValue = pValue;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        public Status status() {
+            return status;
+        }
+
+        /**
+         * t检验的p值，没有做t检验时为NaN
+         */
+        public double pValue() {
+            return pValue;
+        }
+
+        /**
+         * 相对基线的变化，(current - baseline) / baseline
+         */
+        public double change() {
+            final double before = baseline.path("primaryMetric").path("score").asDouble();
+            final double after = current.path("primaryMetric").path("score").asDouble();
+            return before == 0 ? 0 : (after - before) / before;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.xinchen.feign;
+
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存entry压缩存储的代价和收益：
+ *
+ * <ul>
+ *     <li>plain：现在的做法，缓存解压后的body</li>
+ *     <li>wire：上游返回gzip，原样保存，命中时解压</li>
+ *     <li>store：上游返回未压缩的body，写入缓存时压缩，命中时解压</li>
+ * </ul>
+ *
+ * hit测命中并读完body的CPU开销，miss测请求上游并写入缓存的开销(每次换一个url)。
+ * Setup时装满entries个entry，用Full GC前后的差值算出每个entry占用的堆，作为辅助结果bytesPerEntry记录
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 04:00
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class BenchmarkCompressedCache {
+
+    @Param({"plain", "wire", "store"})
+    private String mode;
+
+    /**
+     * json body的大致字节数
+     */
+    @Param({"4096", "32768"})
+    private int bodySize;
+
+    @Param({"5000"})
+    private int entries;
+
+    private CacheableApacheHttpClient client;
+    private Request[] requests;
+    private Request.Options options;
+    private int next;
+    private long misses;
+    private long bytesPerEntry;
+
+    @Setup
+    public void setup() throws IOException {
+        final FakeUpstreamHttpClient upstream = new FakeUpstreamHttpClient(json(bodySize), 0, TimeUnit.NANOSECONDS);
+        final CacheableApacheHttpClient.Builder builder = CacheableApacheHttpClient.builder()
+                .client(upstream)
+                .policy(new CachePolicy(true, 1, TimeUnit.HOURS))
+                .maximumSize(entries);
+        switch (mode) {
+            case "plain":
+                break;
+            case "wire":
+                upstream.gzip();
+                builder.acceptEncoding(true).compressedAtRest(true);
+                break;
+            case "store":
+                builder.compressedAtRest(true);
+                break;
+            default:
+                throw new IllegalStateException("Unknown mode: " + mode);
+        }
+        client = builder.build();
+        options = new Request.Options();
+
+        requests = new Request[entries];
+        final long before = heapAfterGc();
+        for (int i = 0; i < entries; i++) {
+            requests[i] = get("http://localhost/get?id=" + i);
+            read(client.execute(requests[i], options));
+        }
+        bytesPerEntry = (heapAfterGc() - before) / entries;
+    }
+
+    /**
+     * 轮流命中所有entry并读完body
+     */
+    @Benchmark
+    public long hit(Counters counters) throws IOException {
+        counters.sample(bytesPerEntry);
+        return read(client.execute(requests[next++ % entries], options));
+    }
+
+    /**
+     * 每次一个新url：请求上游、(压缩)写入缓存并读完body，旧entry被淘汰
+     */
+    @Benchmark
+    public long miss(Counters counters) throws IOException {
+        counters.sample(bytesPerEntry);
+        return read(client.execute(get("http://localhost/miss?id=" + misses++), options));
+    }
+
+    /**
+     * Setup时测出的占用，只由第0个线程记录，多线程运行时不会被累加
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long bytesPerEntry;
+        private boolean sampling;
+
+        @Setup(Level.Iteration)
+        public void reset(ThreadParams threadParams) {
+            sampling = threadParams.getThreadIndex() == 0;
+        }
+
+        void sample(long bytesPerEntry) {
+            if (sampling) {
+                this.bytesPerEntry = bytesPerEntry;
+            }
+        }
+    }
+
+    private static Request get(String url) {
+        return Request.create(Request.HttpMethod.GET, url, Collections.emptyMap(), null, Util.UTF_8, null);
+    }
+
+    private static long read(Response response) throws IOException {
+        final byte[] buffer = new byte[4096];
+        long read = 0;
+        try (Response closing = response;
+             InputStream body = closing.body().asInputStream()) {
+            for (int n; (n = body.read(buffer)) != -1; ) {
+                read += n;
+            }
+        }
+        return read;
+    }
+
+    private static long heapAfterGc() {
+        System.gc();
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * 结构重复、取值不同的json数组，压缩比与常见接口响应接近(5-10倍)
+     */
+    static byte[] json(int size) {
+        final Random random = new Random(42);
+        final String[] names = {"alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel"};
+        final StringBuilder json = new StringBuilder(size + 128).append('[');
+        for (int i = 0; json.length() < size; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(random.nextInt(1_000_000))
+                    .append(",\"name\":\"").append(names[random.nextInt(names.length)]).append('-')
+                    .append(Integer.toHexString(random.nextInt())).append('"')
+                    .append(",\"score\":").append(random.nextInt(10_000) / 100.0)
+                    .append(",\"active\":").append(random.nextBoolean())
+                    .append(",\"tags\":[\"").append(names[random.nextInt(names.length)]).append("\"]}");
+        }
+        return json.append(']').toString().getBytes(Util.UTF_8);
+    }
+}
@@ -0,0 +1,163 @@
+package com.xinchen.feign;
+
+import feign.Feign;
+import feign.Logger;
+import feign.Response;
+import feign.Retryer;
+import feign.httpclient.ApacheHttpClient;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 固定大小的连接池 vs {@link AdaptiveConnectionManager}：1-128个调用方并发请求同一个route
+ *
+ * fixed2是HttpClientBuilder.create().build()的默认配置(每个route 2条连接)。
+ * 每个响应延迟20ms(远大于一次调用的CPU开销)，连接不够时调用方排队等连接，吞吐量被连接数而不是CPU限制。
+ * 辅助结果poolConnections是连接池中的连接数(在用+空闲)，adaptive另外记录调整上限的次数resizes和获取连接超时的次数leaseTimeouts
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 04:40
+ */
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class BenchmarkConnectionPool {
+
+    @Param({"fixed2", "fixed16", "fixed64", "adaptive"})
+    private String pool;
+
+    @Param({"1024"})
+    private int payloadSize;
+
+    /**
+     * 服务端响应延迟(ms)
+     */
+    @Param({"20"})
+    private long latency;
+
+    private EmbeddedHttpbin server;
+    private HttpClientConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
+    private TestInterface api;
+
+    @Setup
+    public void setup() {
+        server = new EmbeddedHttpbin(payloadSize, null, false)
+                .latency(latency, 0, 0, TimeUnit.MILLISECONDS)
+                .start();
+        if ("adaptive".equals(pool)) {
+            connectionManager = AdaptiveConnectionManager.builder()
+                    .interval(200, TimeUnit.MILLISECONDS)
+                    .build();
+        } else if (pool.startsWith("fixed")) {
+            final PoolingHttpClientConnectionManager fixed = new PoolingHttpClientConnectionManager();
+            fixed.setMaxTotal(1024);
+            fixed.setDefaultMaxPerRoute(Integer.parseInt(pool.substring("fixed".length())));
+            connectionManager = fixed;
+        } else {
+            throw new IllegalStateException("Unknown pool: " + pool);
+        }
+        httpClient = HttpClientBuilder.create().setConnectionManager(connectionManager).build();
+        api = Feign.builder()
+                .client(new ApacheHttpClient(httpClient))
+                .logLevel(Logger.Level.NONE)
+                .retryer(Retryer.NEVER_RETRY)
+                .target(TestInterface.class, server.url());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        httpClient.close();
+        server.shutdown();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean callers1(Counters counters) {
+        return call(counters);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean callers8(Counters counters) {
+        return call(counters);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public boolean callers32(Counters counters) {
+        return call(counters);
+    }
+
+    @Benchmark
+    @Threads(128)
+    public boolean callers128(Counters counters) {
+        return call(counters);
+    }
+
+    private boolean call(Counters counters) {
+        try (Response ignored = api.query()) {
+            return true;
+        } finally {
+            if (counters.sampling) {
+                sample(counters);
+            }
+        }
+    }
+
+    private void sample(Counters counters) {
+        final PoolStats stats;
+        if (connectionManager instanceof AdaptiveConnectionManager) {
+            final AdaptiveConnectionManager adaptive = (AdaptiveConnectionManager) connectionManager;
+            stats = adaptive.totalStats();
+            counters.resizes = adaptive.resizes();
+            counters.leaseTimeouts = adaptive.leaseTimeouts();
+        } else {
+            stats = ((PoolingHttpClientConnectionManager) connectionManager).getTotalStats();
+        }
+        counters.poolConnections = stats.getLeased() + stats.getAvailable();
+    }
+
+    /**
+     * 连接池是所有线程共用的，只由第0个线程记录，多线程运行时不会被累加
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long poolConnections;
+        public long resizes;
+        public long leaseTimeouts;
+        private boolean sampling;
+
+        @Setup(Level.Iteration)
+        public void reset(ThreadParams threadParams) {
+            sampling = threadParams.getThreadIndex() == 0;
+        }
+    }
+}
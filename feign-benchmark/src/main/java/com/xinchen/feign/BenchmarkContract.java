@@ -0,0 +1,66 @@
+package com.xinchen.feign;
+
+import feign.Contract;
+import feign.Feign;
+import feign.MethodMetadata;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 反射解析(Contract.Default)与编译期生成的MethodMetadata({@link GeneratedContract})对比
+ *
+ * <ul>
+ *     <li>coldTarget: 每个fork只测第一次Feign.builder().target(...)，包含类加载和注解解析，即应用启动时的开销</li>
+ *     <li>parse: 预热后单独测Contract解析一个接口的耗时</li>
+ * </ul>
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 07:30
+ */
+@State(Scope.Benchmark)
+public class BenchmarkContract {
+    @Param({"reflective", "generated"})
+    private String contract;
+
+    private Contract parser;
+
+    @Setup
+    public void setup() {
+        parser = "generated".equals(contract) ? new GeneratedContract() : new Contract.Default();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(20)
+    public TestInterface coldTarget() {
+        return Feign.builder()
+                .contract(parser)
+                .target(TestInterface.class, "http://localhost");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 10, time = 1)
+    @Fork(1)
+    public List<MethodMetadata> parse() {
+        return parser.parseAndValidateMetadata(TestInterface.class);
+    }
+}
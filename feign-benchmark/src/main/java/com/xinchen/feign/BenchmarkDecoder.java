@@ -41,9 +41,16 @@ public class BenchmarkDecoder {
     @Param({"list", "iterator", "stream"})
     private String api;
 
-    @Param({"10", "100"})
+    @Param({"10", "100", "1000", "10000"})
     private String size;
 
+    /**
+     * reader: Jackson通过Reader读取，utf8: {@link Utf8JacksonDecoder}直接解析byte[]
+     */
+    @Param({"reader", "utf8"})
+    private String path;
+
+    private byte[] json;
     private Response response;
 
     private Decoder decoder;
@@ -84,23 +91,25 @@ public class BenchmarkDecoder {
                 .reason("OK")
                 .request(Request.create(Request.HttpMethod.GET, "/", Collections.emptyMap(), null, Util.UTF_8))
                 .headers(Collections.emptyMap())
-                .body(carsJson(Integer.parseInt(size)), Util.UTF_8)
+                .body(ArrayBackedBody.of(json))
                 .build();
     }
 
     @Setup(Level.Trial)
     public void buildDecoder() {
+        json = carsJson(Integer.parseInt(size)).getBytes(Util.UTF_8);
+        final boolean utf8 = "utf8".equals(path);
         switch (api) {
             case "list":
-                decoder = new JacksonDecoder();
+                decoder = utf8 ? new Utf8JacksonDecoder() : new JacksonDecoder();
                 type = new TypeReference<List<Car>>() {}.getType();
                 break;
             case "iterator":
-                decoder = JacksonIteratorDecoder.create();
+                decoder = utf8 ? new Utf8JacksonDecoder() : JacksonIteratorDecoder.create();
                 type = new TypeReference<Iterator<Car>>() {}.getType();
                 break;
             case "stream":
-                decoder = StreamDecoder.create(JacksonIteratorDecoder.create());
+                decoder = StreamDecoder.create(utf8 ? new Utf8JacksonDecoder() : JacksonIteratorDecoder.create());
                 type = new TypeReference<Stream<Car>>() {}.getType();
                 break;
             default:
@@ -109,7 +118,7 @@ public class BenchmarkDecoder {
     }
 
 
-    private String carsJson(int count) {
+    static String carsJson(int count) {
         String car = "{\"name\":\"c4\",\"manufacturer\":\"Citroën\"}";
         StringBuilder builder = new StringBuilder("[");
         builder.append(car);
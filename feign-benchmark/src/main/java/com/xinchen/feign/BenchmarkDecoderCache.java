@@ -0,0 +1,126 @@
+package com.xinchen.feign;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import feign.codec.Decoder;
+import feign.jackson.JacksonDecoder;
+import feign.jackson.JacksonIteratorDecoder;
+import feign.stream.StreamDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static feign.Util.UTF_8;
+
+/**
+ * {@link BenchmarkDecoder}的缓存版本：响应都来自{@link CacheableApacheHttpClient}的命中
+ *
+ * <ul>
+ *     <li>bytes: 只缓存字节，每次命中仍然用Jackson解码</li>
+ *     <li>object: 外面再包一层{@link CachingDecoder}，命中时直接返回缓存的对象</li>
+ * </ul>
+ *
+ * 上游返回固定的ETag，{@link CachingDecoder}只认ETag/Last-Modified作为校验器
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 21:00
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class BenchmarkDecoderCache {
+    @Param({"list", "iterator", "stream"})
+    private String api;
+
+    @Param({"10", "100"})
+    private int size;
+
+    @Param({"bytes", "object"})
+    private String cache;
+
+    private CacheableApacheHttpClient client;
+    private Request request;
+    private Request.Options options;
+    private Decoder decoder;
+    private Type type;
+
+    @Setup
+    public void setup() {
+        final FakeUpstreamHttpClient upstream = new FakeUpstreamHttpClient(
+                BenchmarkDecoder.carsJson(size).getBytes(UTF_8), 0, TimeUnit.NANOSECONDS).etag();
+        final CachePolicy policy = new CachePolicy(true, 1, TimeUnit.HOURS);
+        client = CacheableApacheHttpClient.builder().client(upstream).policy(policy).build();
+        request = Request.create(Request.HttpMethod.GET, "http://localhost/cars",
+                Collections.emptyMap(), null, Util.UTF_8, null);
+        options = new Request.Options();
+
+        switch (api) {
+            case "list":
+                decoder = new JacksonDecoder();
+                type = new TypeReference<List<BenchmarkDecoder.Car>>() {}.getType();
+                break;
+            case "iterator":
+                decoder = JacksonIteratorDecoder.create();
+                type = new TypeReference<Iterator<BenchmarkDecoder.Car>>() {}.getType();
+                break;
+            case "stream":
+                decoder = StreamDecoder.create(JacksonIteratorDecoder.create());
+                type = new TypeReference<Stream<BenchmarkDecoder.Car>>() {}.getType();
+                break;
+            default:
+                throw new IllegalStateException("Unknown api: " + api);
+        }
+        if ("object".equals(cache)) {
+            decoder = new CachingDecoder(decoder, policy, CachingDecoder.CopyStrategy.unmodifiable(), 10_000);
+        }
+    }
+
+    @Benchmark
+    public int decode() throws Exception {
+        try (Response response = client.execute(request, options)) {
+            return fetch(decoder.decode(response, type));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int fetch(Object o) {
+        Iterator<BenchmarkDecoder.Car> cars;
+
+        if (o instanceof Collection) {
+            cars = ((Collection<BenchmarkDecoder.Car>) o).iterator();
+        } else if (o instanceof Stream) {
+            cars = ((Stream<BenchmarkDecoder.Car>) o).iterator();
+        } else {
+            cars = (Iterator<BenchmarkDecoder.Car>) o;
+        }
+
+        int count = 0;
+        while (cars.hasNext()) {
+            cars.next();
+            count++;
+        }
+        return count;
+    }
+}
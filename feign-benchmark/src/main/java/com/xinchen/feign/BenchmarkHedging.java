@@ -0,0 +1,137 @@
+package com.xinchen.feign;
+
+import feign.Client;
+import feign.Feign;
+import feign.Logger;
+import feign.Response;
+import feign.Retryer;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对冲请求对长尾延迟的影响：本地{@link EmbeddedHttpbin}每个响应延迟1ms，其中outlierRate比例延迟50ms
+ *
+ * 用SampleTime看p50/p99/p99.9，none为不对冲，fixed为固定5ms后对冲，p95为按最近1024次耗时的p95对冲，
+ * 预算都是10%。辅助结果记录每轮迭代的上游请求数、实际对冲次数和对冲请求先返回的次数
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 01:30
+ */
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class BenchmarkHedging {
+
+    @Param({"none", "fixed", "p95"})
+    private String hedging;
+
+    /**
+     * 长尾响应的比例
+     */
+    @Param({"0.02"})
+    private double outlierRate;
+
+    private EmbeddedHttpbin server;
+    private HedgingClient hedgingClient;
+    private TestInterface api;
+
+    @Setup
+    public void setup() {
+        server = new EmbeddedHttpbin(256, null, false)
+                .latency(1, outlierRate, 50, TimeUnit.MILLISECONDS)
+                .start();
+        Client client = new feign.okhttp.OkHttpClient(new OkHttpClient());
+        switch (hedging) {
+            case "none":
+                break;
+            case "fixed":
+                client = hedgingClient = HedgingClient.builder(client)
+                        .delay(5, TimeUnit.MILLISECONDS)
+                        .budget(10, 10)
+                        .build();
+                break;
+            case "p95":
+                client = hedgingClient = HedgingClient.builder(client)
+                        .delay(5, TimeUnit.MILLISECONDS)
+                        .percentileDelay(95, 1024)
+                        .budget(10, 10)
+                        .build();
+                break;
+            default:
+                throw new IllegalStateException("Unknown hedging: " + hedging);
+        }
+        api = Feign.builder()
+                .client(client)
+                .logLevel(Logger.Level.NONE)
+                .retryer(Retryer.NEVER_RETRY)
+                .target(TestInterface.class, server.url());
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.shutdown();
+    }
+
+    @Benchmark
+    public boolean query(Counters counters) {
+        try (Response ignored = api.query()) {
+            return true;
+        } finally {
+            if (counters.sampling) {
+                counters.sample(server.requests(),
+                        hedgingClient == null ? 0 : hedgingClient.hedges(),
+                        hedgingClient == null ? 0 : hedgingClient.hedgeWins());
+            }
+        }
+    }
+
+    /**
+     * server和HedgingClient的计数是所有线程共用的，由第0个线程记录本轮迭代开始以来的增量，多线程运行时不会被累加
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long upstreamRequests;
+        public long hedges;
+        public long hedgeWins;
+        private boolean sampling;
+        private long[] start;
+
+        @Setup(Level.Iteration)
+        public void reset(ThreadParams threadParams) {
+            sampling = threadParams.getThreadIndex() == 0;
+            start = null;
+        }
+
+        void sample(long upstreamRequests, long hedges, long hedgeWins) {
+            if (start == null) {
+                start = new long[]{upstreamRequests, hedges, hedgeWins};
+            }
+            this.upstreamRequests = upstreamRequests - start[0];
+            this.hedges = hedges - start[1];
+            this.hedgeWins = hedgeWins - start[2];
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.xinchen.feign;
+
+import feign.Client;
+import feign.Feign;
+import feign.Logger;
+import feign.Response;
+import feign.Retryer;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP/1.1连接池 vs HTTP/2多路复用：64/256个调用方并发请求本地{@link EmbeddedHttpbin}，每个响应延迟1ms
+ *
+ * http1是OkHttp默认的HTTP/1.1连接池(每条连接同时只有一个请求)，h2是{@link Http2Client}。
+ * 辅助结果connections是服务端累计接受的连接数
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 03:20
+ */
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class BenchmarkHttp2 {
+
+    @Param({"http1", "h2"})
+    private String protocol;
+
+    @Param({"1024"})
+    private int payloadSize;
+
+    /**
+     * 服务端响应延迟(ms)
+     */
+    @Param({"1"})
+    private long latency;
+
+    private EmbeddedHttpbin server;
+    private TestInterface api;
+
+    @Setup
+    public void setup() {
+        server = new EmbeddedHttpbin(payloadSize, null, false)
+                .latency(latency, 0, 0, TimeUnit.MILLISECONDS);
+        // 连接池保留足够多的空闲连接，HTTP/1.1不会因为淘汰连接反复握手
+        final OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(512, 5, TimeUnit.MINUTES));
+        final Client client;
+        switch (protocol) {
+            case "http1":
+                client = new feign.okhttp.OkHttpClient(builder.build());
+                break;
+            case "h2":
+                server.http2();
+                client = new Http2Client(builder);
+                break;
+            default:
+                throw new IllegalStateException("Unknown protocol: " + protocol);
+        }
+        server.start();
+        api = Feign.builder()
+                .client(client)
+                .logLevel(Logger.Level.NONE)
+                .retryer(Retryer.NEVER_RETRY)
+                .target(TestInterface.class, server.url());
+        // 先建好一条连接，否则h2下所有调用方同时冷启动会各自建连接
+        api.query().close();
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.shutdown();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public boolean callers64(Counters counters) {
+        return call(counters);
+    }
+
+    @Benchmark
+    @Threads(256)
+    public boolean callers256(Counters counters) {
+        return call(counters);
+    }
+
+    private boolean call(Counters counters) {
+        try (Response ignored = api.query()) {
+            return true;
+        } finally {
+            if (counters.sampling) {
+                counters.connections = server.connections();
+            }
+        }
+    }
+
+    /**
+     * 连接数是整个server的，只由第0个线程记录，多线程运行时不会被累加
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long connections;
+        private boolean sampling;
+
+        @Setup(Level.Iteration)
+        public void reset(ThreadParams threadParams) {
+            sampling = threadParams.getThreadIndex() == 0;
+        }
+    }
+}
@@ -13,9 +13,11 @@ import feign.RequestLine;
 import feign.Retryer;
 import feign.hystrix.FallbackFactory;
 import feign.hystrix.HystrixFeign;
+import org.openjdk.jmh.annotations.AuxCounters;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
@@ -23,6 +25,7 @@ import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.annotations.Warmup;
 
 import java.util.concurrent.TimeUnit;
@@ -50,11 +53,31 @@ public class BenchmarkHystrix {
     private static final int REQUEST_TIME_OUT = 2000;
 
     HystrixTestInterface api;
+    private EmbeddedHttpbin embeddedServer;
 
-    // python -m httpbin.core --port 9000
-    @Param({"http://localhost:9000","http://httpbin.org"})
+    // embedded: 在Setup中启动的EmbeddedHttpbin，结果可复现
+    // 外部服务通过 -p targetUtl=http://httpbin.org 或 -p targetUtl=http://localhost:9000(python -m httpbin.core --port 9000)
+    @Param({"embedded"})
     private String targetUtl;
 
+    /**
+     * embedded server的响应body大小
+     */
+    @Param({"1024"})
+    private int payloadSize;
+
+    /**
+     * embedded server的延迟分布，格式见{@link EmbeddedHttpbin.Latency#parse(String)}
+     */
+    @Param({"none"})
+    private String latency;
+
+    /**
+     * embedded server返回503的比例
+     */
+    @Param({"0"})
+    private double errorRate;
+
     @Param({"query"})
     private String apis;
 
@@ -63,6 +86,14 @@ public class BenchmarkHystrix {
 
     @Setup
     public void setUp(){
+        String url = targetUtl;
+        if ("embedded".equals(targetUtl)) {
+            embeddedServer = new EmbeddedHttpbin(payloadSize, null, false)
+                    .latency(latency)
+                    .errors(errorRate, 503)
+                    .start();
+            url = embeddedServer.url();
+        }
         api = HystrixFeign
                 .builder()
                 // 用于控制hystrix command的属性，包括从静态配置或者注解中读取配置，它是预先解析的（不会每次执行请求时执行）
@@ -127,7 +158,14 @@ public class BenchmarkHystrix {
                 .options(new Request.Options(10L, TimeUnit.SECONDS,60,TimeUnit.SECONDS,false))
                 .logger(new Logger.ErrorLogger())
                 .retryer(Retryer.NEVER_RETRY)
-                .target(HystrixTestInterface.class, targetUtl,fallbackFactory);
+                .target(HystrixTestInterface.class, url,fallbackFactory);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (embeddedServer != null) {
+            embeddedServer.shutdown();
+        }
     }
 
     @Benchmark
@@ -136,9 +174,37 @@ public class BenchmarkHystrix {
     @Fork(3)
     @BenchmarkMode(Mode.Throughput)
     @OutputTimeUnit(TimeUnit.SECONDS)
-    public void run(){
+    public void run(Counters counters){
+        final EmbeddedHttpbin server = embeddedServer;
+        final long requests = server == null ? 0 : server.requests();
+        final long errors = server == null ? 0 : server.errors();
         for (int i = 0; i < Integer.parseInt(time); i++) {
-            api.query().execute();
+            try {
+                api.query().execute();
+            } catch (RuntimeException e) {
+                // errorRate注入的503经过fallback抛出，也算一次完整的调用
+            }
+        }
+        if (server != null) {
+            counters.upstreamRequests += server.requests() - requests;
+            counters.upstreamErrors += server.errors() - errors;
+        }
+    }
+
+    /**
+     * embedded server收到的请求数和注入的错误响应数，用外部服务时都是0。
+     * server是每个线程各自的，多线程运行时直接累加
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long upstreamRequests;
+        public long upstreamErrors;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            upstreamRequests = 0;
+            upstreamErrors = 0;
         }
     }
 
@@ -18,10 +18,11 @@ import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.cache.CacheConfig;
 import org.apache.http.impl.client.cache.CachingHttpClientBuilder;
-import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.openjdk.jmh.annotations.AuxCounters;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
@@ -29,6 +30,7 @@ import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.annotations.Warmup;
 
 import java.util.concurrent.TimeUnit;
@@ -52,11 +54,25 @@ public class BenchmarkHystrixCache {
     };
 
     private HystrixTestCacheInterface feignClient;
+    private EmbeddedHttpbin embeddedServer;
 
-    // python -m httpbin.core --port 9000
-    @Param({"http://httpbin.org","http://localhost:9000"})
+    // embedded: 本地server每次返回完整的200; embedded-etag: 返回ETag, 过期后的条件请求得到304
+    // 外部服务通过 -p targetUtl=http://httpbin.org 或 -p targetUtl=http://localhost:9000(python -m httpbin.core --port 9000)
+    @Param({"embedded","embedded-etag"})
     private String targetUtl;
 
+    /**
+     * embedded server的响应body大小
+     */
+    @Param({"16384"})
+    private int payloadSize;
+
+    /**
+     * embedded server的延迟分布，格式见{@link EmbeddedHttpbin.Latency#parse(String)}
+     */
+    @Param({"none"})
+    private String latency;
+
     @Param({"httpClient","cacheHttpClient","cacheableApacheHttpClient"})
     private String client;
 
@@ -65,21 +81,29 @@ public class BenchmarkHystrixCache {
 
     @Setup
     public void setUp(){
+        String url = targetUtl;
+        if (targetUtl.startsWith("embedded")) {
+            // max-age=0: 每次都已过期，有ETag时走304，否则重新下载完整body
+            embeddedServer = new EmbeddedHttpbin(payloadSize, "max-age=0", targetUtl.endsWith("etag"))
+                    .latency(latency)
+                    .start();
+            url = embeddedServer.url();
+        }
+
         CacheConfig cacheConfig = CacheConfig
                 .custom()
                 .setMaxCacheEntries(3000)
                 .setMaxObjectSize(10240)
                 .build();
-        PoolingHttpClientConnectionManager poolingHttpClientConnectionManager = new PoolingHttpClientConnectionManager();
-
-
+        // 默认的PoolingHttpClientConnectionManager每个route只有2条连接，换成按负载调整的连接池
         CloseableHttpClient cacheHttpClient = CachingHttpClientBuilder.create()
                 .setCacheConfig(cacheConfig)
-                .setConnectionManager(poolingHttpClientConnectionManager)
+                .setConnectionManager(AdaptiveConnectionManager.builder().build())
                 .build();
 
         CloseableHttpClient httpClient = HttpClientBuilder
                 .create()
+                .setConnectionManager(AdaptiveConnectionManager.builder().build())
                 .build();
 
         final ApacheHttpClient orgHttpClient = new ApacheHttpClient(httpClient);
@@ -120,7 +144,14 @@ public class BenchmarkHystrixCache {
                 .retryer(Retryer.NEVER_RETRY)
                 .logLevel(Logger.Level.NONE)
                 .logger(new Logger.ErrorLogger())
-                .target(HystrixTestCacheInterface.class, targetUtl, fallbackFactory);
+                .target(HystrixTestCacheInterface.class, url, fallbackFactory);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (embeddedServer != null) {
+            embeddedServer.shutdown();
+        }
     }
 
     @Benchmark
@@ -129,12 +160,39 @@ public class BenchmarkHystrixCache {
     @Fork(3)
     @BenchmarkMode(Mode.Throughput)
     @OutputTimeUnit(TimeUnit.SECONDS)
-    public void call(){
+    public void call(Counters counters){
+        final EmbeddedHttpbin server = embeddedServer;
+        final long requests = server == null ? 0 : server.requests();
+        final long notModified = server == null ? 0 : server.notModified();
+        final long bodyBytes = server == null ? 0 : server.bodyBytes();
         for (int i = 0; i < Integer.parseInt(times); i++) {
             feignClient.query().execute();
         }
+        if (server != null) {
+            counters.upstreamRequests += server.requests() - requests;
+            counters.notModified += server.notModified() - notModified;
+            counters.bodyBytes += server.bodyBytes() - bodyBytes;
+        }
     }
 
+    /**
+     * embedded server收到的请求数、返回的304数和body字节数，用外部服务时都是0。
+     * server是每个线程各自的，多线程运行时直接累加
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long upstreamRequests;
+        public long notModified;
+        public long bodyBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            upstreamRequests = 0;
+            notModified = 0;
+            bodyBytes = 0;
+        }
+    }
 
     /**
      * 这里加Cache-Control是为了让client缓存生效
@@ -0,0 +1,197 @@
+package com.xinchen.feign;
+
+import com.netflix.hystrix.HystrixCommand;
+import com.netflix.hystrix.HystrixCommandGroupKey;
+import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.HystrixCommandProperties;
+import com.netflix.hystrix.HystrixThreadPoolProperties;
+import feign.Feign;
+import feign.Headers;
+import feign.Logger;
+import feign.RequestLine;
+import feign.Retryer;
+import feign.httpclient.ApacheHttpClient;
+import feign.hystrix.HystrixFeign;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * 隔离方式对比：Hystrix THREAD / Hystrix SEMAPHORE / 虚拟线程+信号量bulkhead({@link VirtualThreadFeign})
+ *
+ * 上游是{@link FakeUpstreamHttpClient}，固定延迟模拟IO等待。调用方并发数1/16/64/256分别对应四个benchmark方法，
+ * 同时输出吞吐和SampleTime(看p99)。超出bulkhead的调用被拒绝，计入rejected并退避一个上游耗时，completed才是成功的调用数
+ *
+ * JDK 21以下没有虚拟线程，virtual模式会退回平台线程，此时只能对比bulkhead的开销，看不到线程数的差异。
+ * 辅助结果virtualThreads为1表示用上了虚拟线程，liveThreads是每轮迭代结束时JVM的平台线程数
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 22:50
+ */
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class BenchmarkIsolation {
+
+    @Param({"hystrix-thread", "hystrix-semaphore", "virtual"})
+    private String mode;
+
+    /**
+     * bulkhead大小：Hystrix线程池的coreSize、Hystrix信号量和虚拟线程模式的信号量
+     */
+    @Param({"10", "256"})
+    private int bulkhead;
+
+    /**
+     * 模拟上游耗时(ms)
+     */
+    @Param({"5"})
+    private long latency;
+
+    private FakeUpstreamHttpClient upstream;
+    private Supplier<String> call;
+
+    @Setup
+    public void setup() {
+        upstream = new FakeUpstreamHttpClient(new byte[256], latency, TimeUnit.MILLISECONDS);
+        switch (mode) {
+            case "hystrix-thread":
+                call = hystrix(HystrixCommandProperties.ExecutionIsolationStrategy.THREAD);
+                break;
+            case "hystrix-semaphore":
+                call = hystrix(HystrixCommandProperties.ExecutionIsolationStrategy.SEMAPHORE);
+                break;
+            case "virtual":
+                final PlainTestInterface plain = VirtualThreadFeign.builder()
+                        .maxConcurrentCalls(bulkhead)
+                        .timeout(2, TimeUnit.SECONDS)
+                        .client(new ApacheHttpClient(upstream))
+                        .logLevel(Logger.Level.NONE)
+                        .retryer(Retryer.NEVER_RETRY)
+                        .target(PlainTestInterface.class, "http://localhost");
+                call = plain::query;
+                break;
+            default:
+                throw new IllegalStateException("Unknown mode: " + mode);
+        }
+    }
+
+    private Supplier<String> hystrix(HystrixCommandProperties.ExecutionIsolationStrategy strategy) {
+        final HystrixTestInterface api = HystrixFeign.builder()
+                .setterFactory((target, method) -> HystrixCommand.Setter
+                        .withGroupKey(HystrixCommandGroupKey.Factory.asKey(target.name()))
+                        .andCommandKey(HystrixCommandKey.Factory.asKey(Feign.configKey(target.type(), method)))
+                        .andThreadPoolPropertiesDefaults(HystrixThreadPoolProperties.Setter()
+                                .withCoreSize(bulkhead)
+                                .withMaximumSize(bulkhead)
+                                .withMaxQueueSize(-1))
+                        .andCommandPropertiesDefaults(HystrixCommandProperties.Setter()
+                                .withExecutionIsolationStrategy(strategy)
+                                .withExecutionIsolationSemaphoreMaxConcurrentRequests(bulkhead)
+                                .withExecutionTimeoutInMilliseconds(2000)
+                                // 只比较隔离方式，拒绝率高时熔断会把后续调用全部短路
+                                .withCircuitBreakerEnabled(false)
+                                .withFallbackEnabled(false)))
+                .client(new ApacheHttpClient(upstream))
+                .logLevel(Logger.Level.NONE)
+                .retryer(Retryer.NEVER_RETRY)
+                .target(HystrixTestInterface.class, "http://localhost");
+        return () -> api.query().execute();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String callers1(Counters counters) {
+        return call(counters);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String callers16(Counters counters) {
+        return call(counters);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public String callers64(Counters counters) {
+        return call(counters);
+    }
+
+    @Benchmark
+    @Threads(256)
+    public String callers256(Counters counters) {
+        return call(counters);
+    }
+
+    private String call(Counters counters) {
+        try {
+            final String body = call.get();
+            counters.completed++;
+            return body;
+        } catch (RuntimeException e) {
+            // 被拒绝后退避一个上游耗时再重试，否则快速失败的调用会刷高吞吐
+            counters.rejected++;
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(latency));
+            return null;
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long completed;
+        public long rejected;
+        public long virtualThreads;
+        public long liveThreads;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            completed = 0;
+            rejected = 0;
+        }
+
+        /**
+         * 线程数是整个JVM的，只由第0个benchmark线程记录，多线程运行时不会被累加
+         */
+        @TearDown(Level.Iteration)
+        public void sample(ThreadParams threadParams) {
+            final boolean first = threadParams.getThreadIndex() == 0;
+            virtualThreads = first && VirtualThreadFeign.isVirtual() ? 1 : 0;
+            liveThreads = first ? ManagementFactory.getThreadMXBean().getThreadCount() : 0;
+        }
+    }
+
+    @Headers("Accept: application/json")
+    interface HystrixTestInterface {
+        @RequestLine("GET /get")
+        HystrixCommand<String> query();
+    }
+
+    @Headers("Accept: application/json")
+    interface PlainTestInterface {
+        @RequestLine("GET /get")
+        String query();
+    }
+}
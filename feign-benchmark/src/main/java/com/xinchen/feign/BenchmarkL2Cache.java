@@ -0,0 +1,161 @@
+package com.xinchen.feign;
+
+import com.xinchen.feign.CacheableApacheHttpClient.CacheMeta;
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 持久化L2缓存
+ *
+ * <ul>
+ *     <li>lookup: L1未命中、L2命中时读出一个entry的耗时</li>
+ *     <li>warmStartup: 进程重启后打开已有的segment文件重建索引，直到第一个请求从L2返回的耗时，
+ *     辅助结果upstreamRequests应该是0(所有请求都由L2返回)</li>
+ * </ul>
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 19:50
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkL2Cache {
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public CacheMeta lookup(Lookup state) {
+        return state.l2.get(state.keys[state.next++ % state.keys.length]);
+    }
+
+    /**
+     * 每次调用都是一次完整的重启，用SingleShotTime多次采样
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public int warmStartup(Startup state, Counters counters) throws IOException {
+        final long before = state.upstream.requestsOnCurrentThread();
+        try (MappedL2Cache l2 = new MappedL2Cache(state.dir)) {
+            final CacheableApacheHttpClient client = CacheableApacheHttpClient.builder()
+                    .client(state.upstream)
+                    .secondLevel(l2)
+                    .build();
+            try (Response response = client.execute(state.request, new Request.Options())) {
+                return response.status();
+            }
+        } finally {
+            counters.upstreamRequests += state.upstream.requestsOnCurrentThread() - before;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Lookup {
+        @Param({"10000"})
+        int entries;
+
+        @Param({"1024", "16384"})
+        int bodySize;
+
+        Path dir;
+        MappedL2Cache l2;
+        String[] keys;
+        int next;
+
+        @Setup
+        public void setup() throws IOException {
+            dir = Files.createTempDirectory("l2-lookup");
+            l2 = new MappedL2Cache(dir);
+            keys = fill(l2, entries, bodySize);
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            l2.close();
+            delete(dir);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Startup {
+        @Param({"10000"})
+        int entries;
+
+        @Param({"1024", "16384"})
+        int bodySize;
+
+        Path dir;
+        Request request;
+        FakeUpstreamHttpClient upstream;
+
+        @Setup
+        public void setup() throws IOException {
+            dir = Files.createTempDirectory("l2-startup");
+            try (MappedL2Cache l2 = new MappedL2Cache(dir)) {
+                fill(l2, entries, bodySize);
+            }
+            request = Request.create(Request.HttpMethod.GET, "http://localhost/get?id=0",
+                    Collections.emptyMap(), null, Util.UTF_8, null);
+            upstream = new FakeUpstreamHttpClient();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            delete(dir);
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long upstreamRequests;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            upstreamRequests = 0;
+        }
+    }
+
+    private static String[] fill(MappedL2Cache l2, int entries, int bodySize) {
+        final String[] keys = new String[entries];
+        for (int i = 0; i < entries; i++) {
+            keys[i] = "GET http://localhost/get?id=" + i;
+            final CacheMeta cacheMeta = new CacheMeta(200, "OK", Collections.emptyMap(), bodySize,
+                    CachedBody.heap(new byte[bodySize]), TimeUnit.HOURS.toNanos(1));
+            l2.put(keys[i], cacheMeta, 0);
+        }
+        return keys;
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
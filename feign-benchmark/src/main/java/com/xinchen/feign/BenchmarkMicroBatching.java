@@ -0,0 +1,238 @@
+package com.xinchen.feign;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import feign.Client;
+import feign.Feign;
+import feign.Headers;
+import feign.Logger;
+import feign.Request;
+import feign.RequestLine;
+import feign.Response;
+import feign.Retryer;
+import feign.jackson.JacksonDecoder;
+import feign.jackson.JacksonEncoder;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按{@code TestInterface.mixedParams(domainId, name, type)}的形状单条查询记录，通过{@link MicroBatcher}合并成批量请求
+ *
+ * 上游是进程内的批量接口，每个请求固定耗时latency(与批次大小无关)。window为0时每次调用一个请求，
+ * 对比不同窗口下的吞吐，辅助结果记录每轮迭代的调用数、批次数和上游请求数
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 02:20
+ */
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(32)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class BenchmarkMicroBatching {
+
+    /**
+     * 合并窗口(ms)
+     */
+    @Param({"0", "1", "2", "5"})
+    private long window;
+
+    /**
+     * 上游每个请求的耗时(ms)
+     */
+    @Param({"1"})
+    private long latency;
+
+    /**
+     * 不同记录的数量
+     */
+    @Param({"1000"})
+    private int records;
+
+    private BatchUpstream upstream;
+    private MicroBatcher<RecordQuery, Record> batcher;
+
+    @Setup
+    public void setup() {
+        upstream = new BatchUpstream(latency);
+        final RecordBatchApi api = Feign.builder()
+                .client(upstream)
+                .encoder(new JacksonEncoder())
+                .decoder(new JacksonDecoder())
+                .logLevel(Logger.Level.NONE)
+                .retryer(Retryer.NEVER_RETRY)
+                .target(RecordBatchApi.class, "http://localhost");
+        batcher = MicroBatcher.<RecordQuery, Record>builder(queries -> {
+            final Map<RecordQuery, Record> byQuery = new HashMap<>();
+            for (Record record : api.batch(queries)) {
+                byQuery.put(new RecordQuery(record.domainId, record.name, record.type), record);
+            }
+            return byQuery;
+        })
+                .window(window, TimeUnit.MILLISECONDS)
+                .maxBatchSize(100)
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        batcher.close();
+    }
+
+    @Benchmark
+    public Record mixedParams(Counters counters) throws InterruptedException {
+        final int id = ThreadLocalRandom.current().nextInt(records);
+        try {
+            return batcher.get(new RecordQuery(id, "www" + id, "A"));
+        } finally {
+            counters.calls++;
+            if (counters.sampling) {
+                counters.sample(batcher.batches(), upstream.requests.sum());
+            }
+        }
+    }
+
+    /**
+     * calls由每个线程各自累加；批次数和上游请求数是所有线程共用的，由第0个线程记录本轮迭代开始以来的增量
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long calls;
+        public long batches;
+        public long upstreamRequests;
+        private boolean sampling;
+        private long[] start;
+
+        @Setup(Level.Iteration)
+        public void reset(ThreadParams threadParams) {
+            calls = 0;
+            sampling = threadParams.getThreadIndex() == 0;
+            start = null;
+        }
+
+        void sample(long batches, long upstreamRequests) {
+            if (start == null) {
+                start = new long[]{batches, upstreamRequests};
+            }
+            this.batches = batches - start[0];
+            this.upstreamRequests = upstreamRequests - start[1];
+        }
+    }
+
+    interface RecordBatchApi {
+        @RequestLine("POST /domains/records/batch")
+        @Headers("Content-Type: application/json")
+        List<Record> batch(List<RecordQuery> queries);
+    }
+
+    public static class RecordQuery {
+        public int domainId;
+        public String name;
+        public String type;
+
+        public RecordQuery() {
+        }
+
+        RecordQuery(int domainId, String name, String type) {
+            this.domainId = domainId;
+            this.name = name;
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof RecordQuery)) {
+                return false;
+            }
+            final RecordQuery that = (RecordQuery) o;
+            return domainId == that.domainId && Objects.equals(name, that.name) && Objects.equals(type, that.type);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(domainId, name, type);
+        }
+    }
+
+    public static class Record {
+        public int domainId;
+        public String name;
+        public String type;
+        public String value;
+    }
+
+    /**
+     * 进程内的批量接口：解析请求中的查询，逐条返回记录
+     */
+    static final class BatchUpstream implements Client {
+        private static final TypeReference<List<RecordQuery>> QUERIES = new TypeReference<List<RecordQuery>>() {};
+
+        private final ObjectMapper mapper = new ObjectMapper();
+        private final long latencyNanos;
+        final LongAdder requests = new LongAdder();
+
+        BatchUpstream(long latencyMillis) {
+            this.latencyNanos = TimeUnit.MILLISECONDS.toNanos(latencyMillis);
+        }
+
+        @Override
+        public Response execute(Request request, Request.Options options) throws IOException {
+            requests.increment();
+            final List<RecordQuery> queries = mapper.readValue(request.body(), QUERIES);
+            final List<Record> records = new ArrayList<>(queries.size());
+            for (RecordQuery query : queries) {
+                final Record record = new Record();
+                record.domainId = query.domainId;
+                record.name = query.name;
+                record.type = query.type;
+                record.value = "10.0.0." + query.domainId % 256;
+                records.add(record);
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(latencyNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("batch upstream interrupted", e);
+            }
+            return Response.builder()
+                    .status(200)
+                    .reason("OK")
+                    .request(request)
+                    .headers(Collections.emptyMap())
+                    .body(mapper.writeValueAsBytes(records))
+                    .build();
+        }
+    }
+}
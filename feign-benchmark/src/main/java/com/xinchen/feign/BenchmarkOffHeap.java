@@ -0,0 +1,136 @@
+package com.xinchen.feign;
+
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存装满大body时，对比body放在堆内和放在slab直接内存中的命中吞吐以及GC开销
+ *
+ * 需要配合GC profiler运行，关注gc.alloc.rate.norm、gc.count、gc.time：
+ * <pre>
+ * java -jar target/benchmarks.jar BenchmarkOffHeap -prof gc
+ * </pre>
+ * 填充缓存后Full GC一次，堆占用和slab的占用(MB)作为辅助结果heapUsedMb、slabReservedMb、slabUsedMb记录
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 18:40
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-XX:MaxDirectMemorySize=2g"})
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class BenchmarkOffHeap {
+
+    @Param({"heap", "offheap"})
+    private String storage;
+
+    @Param({"4096", "16384"})
+    private int bodySize;
+
+    /**
+     * 缓存中的entry数
+     */
+    @Param({"10000"})
+    private int entries;
+
+    private OffHeapBodyStorage offHeap;
+    private CacheableApacheHttpClient client;
+    private Request[] requests;
+    private Request.Options options;
+    private int next;
+    private long heapUsedMb;
+    private long slabReservedMb;
+    private long slabUsedMb;
+
+    @Setup
+    public void setup() throws IOException {
+        final FakeUpstreamHttpClient upstream = new FakeUpstreamHttpClient(new byte[bodySize], 0, TimeUnit.NANOSECONDS);
+        final CacheableApacheHttpClient.Builder builder = CacheableApacheHttpClient.builder()
+                .client(upstream)
+                // 假上游不返回Cache-Control，测量期间entry都不过期
+                .policy(new CachePolicy(true, 1, TimeUnit.HOURS))
+                .maximumSize(entries);
+        if ("offheap".equals(storage)) {
+            offHeap = new OffHeapBodyStorage((long) entries * bodySize * 2);
+            builder.bodyStorage(offHeap);
+        }
+        client = builder.build();
+        options = new Request.Options();
+
+        requests = new Request[entries];
+        for (int i = 0; i < entries; i++) {
+            requests[i] = Request.create(Request.HttpMethod.GET, "http://localhost/get?id=" + i,
+                    Collections.emptyMap(), null, Util.UTF_8, null);
+            client.execute(requests[i], options).close();
+        }
+        System.gc();
+        heapUsedMb = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() >> 20;
+        if (offHeap != null) {
+            slabReservedMb = offHeap.allocator().reservedBytes() >> 20;
+            slabUsedMb = offHeap.allocator().usedBytes() >> 20;
+        }
+    }
+
+    /**
+     * 轮流命中所有entry并读完body
+     */
+    @Benchmark
+    public long hit(Counters counters) throws IOException {
+        final Request request = requests[next++ % entries];
+        final byte[] buffer = new byte[4096];
+        long read = 0;
+        try (Response response = client.execute(request, options);
+             InputStream body = response.body().asInputStream()) {
+            for (int n; (n = body.read(buffer)) != -1; ) {
+                read += n;
+            }
+        }
+        if (counters.sampling) {
+            counters.heapUsedMb = heapUsedMb;
+            counters.slabReservedMb = slabReservedMb;
+            counters.slabUsedMb = slabUsedMb;
+        }
+        return read;
+    }
+
+    /**
+     * 占用是整个进程的量，只由第0个线程记录，多线程运行时不会被累加
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long heapUsedMb;
+        public long slabReservedMb;
+        public long slabUsedMb;
+        private boolean sampling;
+
+        @Setup(Level.Iteration)
+        public void reset(ThreadParams threadParams) {
+            sampling = threadParams.getThreadIndex() == 0;
+        }
+    }
+}
@@ -6,14 +6,13 @@ import feign.Response;
 import feign.Retryer;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
-import io.netty.buffer.ByteBuf;
-import io.reactivex.netty.protocol.http.server.HttpServer;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -35,8 +34,19 @@ import java.util.concurrent.TimeUnit;
 @OutputTimeUnit(TimeUnit.SECONDS)
 @State(Scope.Benchmark)
 public class BenchmarkRealRequest {
-    private static final int SERVER_PORT = 8765;
-    private HttpServer<ByteBuf, ByteBuf> server;
+    /**
+     * 响应body大小
+     */
+    @Param({"64"})
+    private int payloadSize;
+
+    /**
+     * 服务端的延迟分布，格式见{@link EmbeddedHttpbin.Latency#parse(String)}
+     */
+    @Param({"none"})
+    private String latency;
+
+    private EmbeddedHttpbin server;
     private OkHttpClient client;
     private TestInterface okFeign;
     private Request queryRequest;
@@ -44,8 +54,9 @@ public class BenchmarkRealRequest {
     @Setup
     public void setup() {
 
-        server = HttpServer.newServer(SERVER_PORT)
-                .start((request, response) -> null);
+        server = new EmbeddedHttpbin(payloadSize, null, false)
+                .latency(latency)
+                .start();
         client = new OkHttpClient();
         client.retryOnConnectionFailure();
         okFeign = Feign.builder()
@@ -53,14 +64,14 @@ public class BenchmarkRealRequest {
                 .logLevel(Logger.Level.NONE)
                 .logger(new Logger.ErrorLogger())
                 .retryer(new Retryer.Default())
-                .target(TestInterface.class, "http://localhost:" + SERVER_PORT);
+                .target(TestInterface.class, server.url());
         queryRequest = new Request.Builder()
-                .url("http://localhost:" + SERVER_PORT + "/?Action=GetUser&Version=2010-05-08&limit=1")
+                .url(server.url() + "/?Action=GetUser&Version=2010-05-08&limit=1")
                 .build();
     }
 
     @TearDown
-    public void tearDown() throws InterruptedException {
+    public void tearDown() {
         server.shutdown();
     }
 
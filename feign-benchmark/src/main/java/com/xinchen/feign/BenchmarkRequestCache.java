@@ -0,0 +1,84 @@
+package com.xinchen.feign;
+
+import feign.Client;
+import feign.Feign;
+import feign.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每次展开RequestTemplate(expand)与{@link RequestCacheCapability}按参数缓存Request(cached)对比
+ *
+ * 参数在cardinality组不同取值间轮换，缓存上限1024：cardinality小于上限时全部命中，4096时大部分未命中，
+ * 可以看到未命中时缓存本身的额外开销。client直接返回固定的Response，只测客户端这一侧
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 08:10
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class BenchmarkRequestCache {
+    private static final int MAXIMUM_SIZE = 1024;
+
+    @Param({"expand", "cached"})
+    private String mode;
+
+    @Param({"1", "16", "256", "4096"})
+    private int cardinality;
+
+    private TestInterface api;
+    private String[] names;
+    private int next;
+
+    @Setup
+    public void setup() {
+        final Response response = Response.builder()
+                .status(200)
+                .reason("ok")
+                .headers(Collections.emptyMap())
+                .request(feign.Request.create(feign.Request.HttpMethod.GET, "/", Collections.emptyMap(), null, feign.Util.UTF_8, null))
+                .build();
+        final Client client = (request, options) -> response;
+        final Feign.Builder builder = Feign.builder().client(client);
+        if ("cached".equals(mode)) {
+            builder.addCapability(RequestCacheCapability.builder()
+                    .cache("TestInterface#mixedParams(int,String,String)", MAXIMUM_SIZE)
+                    .cache("TestInterface#headers(String)", MAXIMUM_SIZE)
+                    .build());
+        }
+        api = builder.target(TestInterface.class, "http://localhost");
+
+        names = new String[cardinality];
+        for (int i = 0; i < cardinality; i++) {
+            names[i] = "name-" + i + "/ä";
+        }
+    }
+
+    @Benchmark
+    public void mixedParams() {
+        final int i = next++ % cardinality;
+        api.mixedParams(i, names[i], "A");
+    }
+
+    @Benchmark
+    public void headers() {
+        api.headers(names[next++ % cardinality]);
+    }
+}
@@ -0,0 +1,278 @@
+package com.xinchen.feign;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JMH结果归档：每次运行的JSON结果连同运行环境保存成一个文件，可以标记基线并与之比较
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar org.openjdk.jmh.Main BenchmarkCacheHit -rf json -rff jmh_result.json
+ * java -cp target/benchmarks.jar com.xinchen.feign.BenchmarkResultStore archive jmh_result.json main
+ * java -cp target/benchmarks.jar com.xinchen.feign.BenchmarkResultStore baseline 20261019-053000-main
+ * ... 修改代码后再跑一次并归档 ...
+ * java -cp target/benchmarks.jar com.xinchen.feign.BenchmarkResultStore compare json=compare.json
+ * </pre>
+ *
+ * 目录默认为jmh-results，可以用-Dresults.dir修改。每次运行保存为{id}.json：
+ * {"id", "label", "timestamp", "env": {java/os/cpu/heap/git等}, "results": [JMH原始结果]}，
+ * BASELINE文件保存当前基线的id。compare有退化时进程以1退出，便于接入CI
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 06:00
+ */
+public final class BenchmarkResultStore {
+    private static final String BASELINE = "BASELINE";
+    private static final DateTimeFormatter ID_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final Path directory;
+
+    public BenchmarkResultStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * 归档一份JMH JSON结果(-rf json的输出)
+     *
+     * @param label 可选的标签，例如分支名，会出现在id中
+     */
+    public Run archive(Path jmhResult, String label) throws IOException {
+        final JsonNode results = MAPPER.readTree(jmhResult.toFile());
+        if (!results.isArray()) {
+            throw new IOException("Not a JMH JSON result: " + jmhResult);
+        }
+        final ZonedDateTime now = ZonedDateTime.now();
+        String id = ID_FORMAT.format(now) + (label == null || label.isEmpty() ? "" : "-" + label.replaceAll("[^A-Za-z0-9._-]", "_"));
+        for (int i = 2; Files.exists(file(id)); i++) {
+            id = id.replaceAll("~\\d+$", "") + "~" + i;
+        }
+
+        final ObjectNode run = MAPPER.createObjectNode();
+        run.put("id", id);
+        run.put("label", label);
+        run.put("timestamp", now.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+        run.set("env", MAPPER.valueToTree(environment()));
+        run.set("results", results);
+        Files.createDirectories(directory);
+        MAPPER.writeValue(file(id).toFile(), run);
+        return new Run(run);
+    }
+
+    public Run load(String id) throws IOException {
+        final Path file = file(id);
+        if (!Files.exists(file)) {
+            throw new IOException("No such run: " + id);
+        }
+        return new Run(MAPPER.readTree(file.toFile()));
+    }
+
+    /**
+     * 所有归档的id，按时间升序
+     */
+    public List<String> list() throws IOException {
+        final List<String> ids = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return ids;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.json")) {
+            for (Path file : files) {
+                final String name = file.getFileName().toString();
+                ids.add(name.substring(0, name.length() - ".json".length()));
+            }
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    public Run latest() throws IOException {
+        final List<String> ids = list();
+        if (ids.isEmpty()) {
+            throw new IOException("No archived runs in " + directory);
+        }
+        return load(ids.get(ids.size() - 1));
+    }
+
+    public void markBaseline(String id) throws IOException {
+        load(id);
+        Files.write(directory.resolve(BASELINE), id.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return 标记的基线，没有标记时返回null
+     */
+    public Run baseline() throws IOException {
+        final Path file = directory.resolve(BASELINE);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        return load(new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim());
+    }
+
+    private Path file(String id) {
+        return directory.resolve(id + ".json");
+    }
+
+    /**
+     * 影响结果可比性的运行环境
+     */
+    static Map<String, Object> environment() {
+        final Map<String, Object> env = new LinkedHashMap<>();
+        env.put("java.version", System.getProperty("java.version"));
+        env.put("java.vendor", System.getProperty("java.vendor"));
+        env.put("java.vm.name", System.getProperty("java.vm.name"));
+        env.put("os.name", System.getProperty("os.name"));
+        env.put("os.version", System.getProperty("os.version"));
+        env.put("os.arch", System.getProperty("os.arch"));
+        env.put("cpus", Runtime.getRuntime().availableProcessors());
+        env.put("maxHeap", Runtime.getRuntime().maxMemory());
+        env.put("jvmArgs", ManagementFactory.getRuntimeMXBean().getInputArguments());
+        try {
+            env.put("host", InetAddress.getLocalHost().getHostName());
+        } catch (IOException e) {
+            env.put("host", null);
+        }
+        env.put("git.commit", git("rev-parse", "HEAD"));
+        final String status = git("status", "--porcelain");
+        env.put("git.dirty", status == null ? null : !status.isEmpty());
+        return env;
+    }
+
+    /**
+     * @return git命令的输出，不在git仓库中或者没有git时返回null
+     */
+    private static String git(String... args) {
+        final List<String> command = new ArrayList<>();
+        command.add("git");
+        Collections.addAll(command, args);
+        try {
+            final Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            final StringBuilder output = new StringBuilder();
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                for (String line; (line = reader.readLine()) != null; ) {
+                    output.append(line).append('\n');
+                }
+            }
+            return process.waitFor() == 0 ? output.toString().trim() : null;
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * 一次归档的运行
+     */
+    public static final class Run {
+        private final JsonNode json;
+
+        Run(JsonNode json) {
+            this.json = json;
+        }
+
+        public String id() {
+            return json.path("id").asText();
+        }
+
+        public String label() {
+            return json.path("label").asText(null);
+        }
+
+        public String timestamp() {
+            return json.path("timestamp").asText();
+        }
+
+        public JsonNode env() {
+            return json.path("env");
+        }
+
+        /**
+         * JMH原始结果数组
+         */
+        public ArrayNode results() {
+            return (ArrayNode) json.path("results");
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        final BenchmarkResultStore store = new BenchmarkResultStore(Paths.get(System.getProperty("results.dir", "jmh-results")));
+        final String command = args.length == 0 ? "list" : args[0];
+        switch (command) {
+            case "archive":
+                if (args.length < 2) {
+                    throw new IllegalArgumentException("usage: archive <jmh-result.json> [label]");
+                }
+                System.out.println(store.archive(Paths.get(args[1]), args.length > 2 ? args[2] : null).id());
+                break;
+            case "baseline":
+                if (args.length < 2) {
+                    throw new IllegalArgumentException("usage: baseline <id>");
+                }
+                store.markBaseline(args[1]);
+                break;
+            case "list":
+                final Run baseline = store.baseline();
+                for (String id : store.list()) {
+                    final Run run = store.load(id);
+                    System.out.printf("%s %-40s %3d results  git %s%n",
+                            baseline != null && baseline.id().equals(id) ? "*" : " ",
+                            id, run.results().size(), run.env().path("git.commit").asText("-"));
+                }
+                break;
+            case "compare":
+                final Map<String, String> options = new LinkedHashMap<>();
+                for (int i = 1; i < args.length; i++) {
+                    final int eq = args[i].indexOf('=');
+                    if (eq <= 0) {
+                        throw new IllegalArgumentException(
+                                "usage: compare [run=<id>] [baseline=<id>] [alpha=..] [threshold=..] [json=<file>], got: " + args[i]);
+                    }
+                    options.put(args[i].substring(0, eq), args[i].substring(eq + 1));
+                }
+                final Run current = options.containsKey("run") ? store.load(options.get("run")) : store.latest();
+                final Run base = options.containsKey("baseline") ? store.load(options.get("baseline")) : store.baseline();
+                if (base == null) {
+                    throw new IllegalStateException("No baseline marked, use 'baseline <id>' or baseline=<id>");
+                }
+                final BenchmarkComparison comparison = BenchmarkComparison.compare(base, current,
+                        Double.parseDouble(options.getOrDefault("alpha", "0.01")),
+                        Double.parseDouble(options.getOrDefault("threshold", "0.02")));
+                System.out.print(comparison.toText());
+                if (options.containsKey("json")) {
+                    MAPPER.writeValue(Paths.get(options.get("json")).toFile(), comparison.toJson());
+                }
+                if (comparison.hasRegressions()) {
+                    System.exit(1);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown command: " + command + ", expected archive/baseline/list/compare");
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.xinchen.feign;
+
+import com.netflix.hystrix.HystrixCommand;
+import com.netflix.hystrix.HystrixCommandGroupKey;
+import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.HystrixCommandProperties;
+import com.netflix.hystrix.HystrixThreadPoolProperties;
+import feign.Client;
+import feign.Feign;
+import feign.Logger;
+import feign.Request;
+import feign.RequestLine;
+import feign.Response;
+import feign.Retryer;
+import feign.Util;
+import feign.hystrix.HystrixFeign;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 热点路径的多核扩展性：所有线程共享同一份{@link Scope#Benchmark}状态，
+ * 暴露{@link CacheableApacheHttpClient}缓存、Feign代理和Hystrix线程池上的竞争
+ *
+ * <ul>
+ *     <li>cacheHit：1024个热点url轮流命中同一个CacheableApacheHttpClient</li>
+ *     <li>cacheMiss：每次一个新url，请求{@link FakeUpstreamHttpClient}并写入缓存，旧entry被淘汰</li>
+ *     <li>proxyCall：复用同一个Feign代理调用不走网络的Client</li>
+ *     <li>hystrixCommand：同一个HystrixFeign代理，命令在Hystrix线程池中执行</li>
+ * </ul>
+ *
+ * 直接运行main按1, 2, 4...到CPU核数(或-Dthreads=1,8,32,64)逐级运行，
+ * 打印每条路径的吞吐量和扩展效率 = ops(n) / (n * ops(1))：
+ * <pre>
+ * java -cp target/benchmarks.jar com.xinchen.feign.BenchmarkScaling
+ * </pre>
+ * 用org.openjdk.jmh.Main运行时用-t指定线程数
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 06:40
+ */
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class BenchmarkScaling {
+    private static final int HOT_KEYS = 1024;
+
+    private CacheableApacheHttpClient hitClient;
+    private CacheableApacheHttpClient missClient;
+    private Request[] hotRequests;
+    private Request.Options options;
+    private ScalingTestInterface proxy;
+    private HystrixScalingTestInterface hystrix;
+
+    /**
+     * 每个线程自己的游标，避免共享计数器本身成为竞争点
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private static final AtomicInteger THREADS = new AtomicInteger();
+
+        final int thread = THREADS.getAndIncrement();
+        int next = thread * 31;
+        long misses;
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        options = new Request.Options();
+        hitClient = CacheableApacheHttpClient.builder()
+                .client(new FakeUpstreamHttpClient())
+                .policy(new CachePolicy(true, 1, TimeUnit.HOURS))
+                .build();
+        hotRequests = new Request[HOT_KEYS];
+        for (int i = 0; i < HOT_KEYS; i++) {
+            hotRequests[i] = get("http://localhost/get?id=" + i);
+            hitClient.execute(hotRequests[i], options).close();
+        }
+        missClient = CacheableApacheHttpClient.builder()
+                .client(new FakeUpstreamHttpClient())
+                .policy(new CachePolicy(true, 1, TimeUnit.HOURS))
+                .maximumSize(HOT_KEYS)
+                .build();
+
+        final Client fakeClient = (request, requestOptions) -> Response.builder()
+                .status(200)
+                .reason("OK")
+                .headers(Collections.emptyMap())
+                .request(request)
+                .body(new byte[0])
+                .build();
+        proxy = Feign.builder()
+                .client(fakeClient)
+                .logLevel(Logger.Level.NONE)
+                .retryer(Retryer.NEVER_RETRY)
+                .target(ScalingTestInterface.class, "http://localhost");
+        final int cores = Runtime.getRuntime().availableProcessors();
+        hystrix = HystrixFeign.builder()
+                .setterFactory((target, method) -> HystrixCommand.Setter
+                        .withGroupKey(HystrixCommandGroupKey.Factory.asKey(target.name()))
+                        .andCommandKey(HystrixCommandKey.Factory.asKey(Feign.configKey(target.type(), method)))
+                        // 线程池足够大，测的是Hystrix本身的竞争而不是拒绝
+                        .andThreadPoolPropertiesDefaults(HystrixThreadPoolProperties.Setter()
+                                .withCoreSize(Math.max(64, cores * 2))
+                                .withMaximumSize(Math.max(64, cores * 2))
+                                .withMaxQueueSize(-1))
+                        .andCommandPropertiesDefaults(HystrixCommandProperties.Setter()
+                                .withExecutionTimeoutInMilliseconds(1000)
+                                .withCircuitBreakerEnabled(false)
+                                .withFallbackEnabled(false)))
+                .client(fakeClient)
+                .logLevel(Logger.Level.NONE)
+                .retryer(Retryer.NEVER_RETRY)
+                .target(HystrixScalingTestInterface.class, "http://localhost");
+    }
+
+    @Benchmark
+    public Response cacheHit(Cursor cursor) throws IOException {
+        try (Response response = hitClient.execute(hotRequests[cursor.next++ & (HOT_KEYS - 1)], options)) {
+            return response;
+        }
+    }
+
+    @Benchmark
+    public Response cacheMiss(Cursor cursor) throws IOException {
+        final Request request = get("http://localhost/miss?t=" + cursor.thread + "&n=" + cursor.misses++);
+        try (Response response = missClient.execute(request, options)) {
+            return response;
+        }
+    }
+
+    @Benchmark
+    public Response proxyCall() {
+        return proxy.query();
+    }
+
+    @Benchmark
+    public Response hystrixCommand() {
+        return hystrix.query().execute();
+    }
+
+    private static Request get(String url) {
+        return Request.create(Request.HttpMethod.GET, url, Collections.emptyMap(), null, Util.UTF_8, null);
+    }
+
+    interface ScalingTestInterface {
+        @RequestLine("GET /")
+        Response query();
+    }
+
+    interface HystrixScalingTestInterface {
+        @RequestLine("GET /")
+        HystrixCommand<Response> query();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        final List<Integer> threads = new ArrayList<>();
+        final String configured = System.getProperty("threads");
+        if (configured != null) {
+            for (String count : configured.split(",")) {
+                threads.add(Integer.parseInt(count.trim()));
+            }
+        } else {
+            final int cores = Runtime.getRuntime().availableProcessors();
+            for (int count = 1; count < cores; count *= 2) {
+                threads.add(count);
+            }
+            threads.add(cores);
+        }
+        final String include = BenchmarkScaling.class.getName() + "\\." + (args.length > 0 ? args[0] : ".*");
+
+        // path -> threads -> ops/s
+        final Map<String, Map<Integer, Double>> scores = new LinkedHashMap<>();
+        for (int count : threads) {
+            for (RunResult result : new Runner(new OptionsBuilder().include(include).threads(count).build()).run()) {
+                final String label = result.getParams().getBenchmark();
+                scores.computeIfAbsent(label.substring(label.lastIndexOf('.') + 1), path -> new TreeMap<>())
+                        .put(count, result.getPrimaryResult().getScore());
+            }
+        }
+
+        System.out.printf("%n%-16s %8s %16s %10s %12s%n", "path", "threads", "ops/s", "speedup", "efficiency");
+        for (Map.Entry<String, Map<Integer, Double>> path : scores.entrySet()) {
+            final double single = path.getValue().getOrDefault(1, Double.NaN);
+            for (Map.Entry<Integer, Double> score : path.getValue().entrySet()) {
+                final double speedup = score.getValue() / single;
+                System.out.printf("%-16s %8d %16.0f %10.2f %11.0f%%%n", path.getKey(), score.getKey(),
+                        score.getValue(), speedup, speedup / score.getKey() * 100);
+            }
+        }
+        System.out.println("cores: " + Runtime.getRuntime().availableProcessors());
+    }
+}
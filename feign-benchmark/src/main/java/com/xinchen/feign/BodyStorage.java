@@ -0,0 +1,26 @@
+package com.xinchen.feign;
+
+/**
+ * 决定{@link CacheableApacheHttpClient}写入缓存时body放在哪里
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 18:00
+ */
+public interface BodyStorage {
+
+    /**
+     * 直接引用从上游读到的byte[]
+     */
+    static BodyStorage heap() {
+        return body -> body;
+    }
+
+    /**
+     * 返回一份交给缓存持有的body，缓存移除entry时会调用一次{@link CachedBody#release()}
+     *
+     * @param body 调用方持有引用的body，可能是刚从上游读到的堆内body，也可能是304复用的已缓存body
+     * @return null表示无法存储
+     */
+    CachedBody store(CachedBody body);
+}
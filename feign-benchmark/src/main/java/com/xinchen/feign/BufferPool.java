@@ -0,0 +1,153 @@
+package com.xinchen.feign;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * 固定大小byte[] chunk的池，所有线程共享
+ *
+ * {@link PooledOutputStream}按chunk追加写入，变大时不像ByteArrayOutputStream那样整体拷贝扩容，
+ * 用完后chunk还回池里。池里闲置的chunk总量有上限，超出的直接丢给GC，池空时新分配
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 08:20
+ */
+public final class BufferPool {
+    private final int chunkSize;
+    private final ArrayBlockingQueue<byte[]> free;
+
+    /**
+     * 64KB的chunk，最多闲置16MB
+     */
+    public BufferPool() {
+        this(64 * 1024, 16L * 1024 * 1024);
+    }
+
+    public BufferPool(int chunkSize, long maxPooledBytes) {
+        if (chunkSize <= 0 || maxPooledBytes < chunkSize) {
+            throw new IllegalArgumentException("chunkSize must be positive and not larger than maxPooledBytes");
+        }
+        this.chunkSize = chunkSize;
+        this.free = new ArrayBlockingQueue<>((int) Math.min(Integer.MAX_VALUE, maxPooledBytes / chunkSize));
+    }
+
+    public int chunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * 池里闲置的chunk数
+     */
+    public int pooledChunks() {
+        return free.size();
+    }
+
+    public PooledOutputStream newStream() {
+        return new PooledOutputStream(this);
+    }
+
+    byte[] acquire() {
+        final byte[] chunk = free.poll();
+        return chunk == null ? new byte[chunkSize] : chunk;
+    }
+
+    void release(byte[] chunk) {
+        free.offer(chunk);
+    }
+
+    /**
+     * 写入池化chunk的输出流，非线程安全。close()不归还chunk(Jackson等会在写完时关闭目标流)，
+     * 用完必须调用{@link #release()}
+     */
+    public static final class PooledOutputStream extends OutputStream {
+        private final BufferPool pool;
+        private final List<byte[]> chunks = new ArrayList<>();
+        private byte[] current;
+        private int position;
+        private long size;
+
+        PooledOutputStream(BufferPool pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public void write(int b) {
+            if (current == null || position == current.length) {
+                nextChunk();
+            }
+            current[position++] = (byte) b;
+            size++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            while (len > 0) {
+                if (current == null || position == current.length) {
+                    nextChunk();
+                }
+                final int n = Math.min(len, current.length - position);
+                System.arraycopy(b, off, current, position, n);
+                position += n;
+                off += n;
+                len -= n;
+                size += n;
+            }
+        }
+
+        public long size() {
+            return size;
+        }
+
+        /**
+         * 拷贝出刚好size大小的数组
+         */
+        public byte[] toByteArray() {
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Too large for a byte[]: " + size);
+            }
+            final byte[] result = new byte[(int) size];
+            int offset = 0;
+            for (byte[] chunk : chunks) {
+                final int n = (int) Math.min(chunk.length, size - offset);
+                System.arraycopy(chunk, 0, result, offset, n);
+                offset += n;
+            }
+            return result;
+        }
+
+        /**
+         * 不经过中间数组，直接把内容写到out
+         */
+        public void writeTo(OutputStream out) throws IOException {
+            long remaining = size;
+            for (byte[] chunk : chunks) {
+                final int n = (int) Math.min(chunk.length, remaining);
+                out.write(chunk, 0, n);
+                remaining -= n;
+            }
+        }
+
+        /**
+         * 把chunk还给池，之后不能再使用这个流
+         */
+        public void release() {
+            for (byte[] chunk : chunks) {
+                pool.release(chunk);
+            }
+            chunks.clear();
+            current = null;
+            position = 0;
+            size = 0;
+        }
+
+        private void nextChunk() {
+            current = pool.acquire();
+            chunks.add(current);
+            position = 0;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.xinchen.feign;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 解析后的Cache-Control指令，如 {@code max-age=60, no-cache="Set-Cookie", private}
+ *
+ * 指令名不区分大小写，带引号的参数值中的逗号不作为分隔符
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 16:05
+ */
+final class CacheControl {
+    static final CacheControl EMPTY = new CacheControl(Collections.emptyMap());
+
+    private final Map<String, String> directives;
+
+    private CacheControl(Map<String, String> directives) {
+        this.directives = directives;
+    }
+
+    /**
+     * @param values 所有Cache-Control头的值，可以为null
+     */
+    static CacheControl parse(Collection<String> values) {
+        if (values == null || values.isEmpty()) {
+            return EMPTY;
+        }
+        Map<String, String> directives = new HashMap<>();
+        for (String value : values) {
+            parseInto(value, directives);
+        }
+        return new CacheControl(directives);
+    }
+
+    private static void parseInto(String value, Map<String, String> directives) {
+        int start = 0;
+        boolean quoted = false;
+        for (int i = 0; i <= value.length(); i++) {
+            if (i == value.length() || (value.charAt(i) == ',' && !quoted)) {
+                addDirective(value.substring(start, i), directives);
+                start = i + 1;
+            } else if (value.charAt(i) == '"') {
+                quoted = !quoted;
+            }
+        }
+    }
+
+    private static void addDirective(String token, Map<String, String> directives) {
+        token = token.trim();
+        if (token.isEmpty()) {
+            return;
+        }
+        int eq = token.indexOf('=');
+        if (eq < 0) {
+            directives.put(token.toLowerCase(Locale.ROOT), null);
+            return;
+        }
+        String argument = token.substring(eq + 1).trim();
+        if (argument.length() >= 2 && argument.startsWith("\"") && argument.endsWith("\"")) {
+            argument = argument.substring(1, argument.length() - 1);
+        }
+        directives.put(token.substring(0, eq).trim().toLowerCase(Locale.ROOT), argument);
+    }
+
+    boolean has(String directive) {
+        return directives.containsKey(directive);
+    }
+
+    /**
+     * delta-seconds类型的参数，如max-age，没有该指令或者值非法时返回-1
+     */
+    long seconds(String directive) {
+        String argument = directives.get(directive);
+        if (argument == null) {
+            return -1;
+        }
+        try {
+            long seconds = Long.parseLong(argument);
+            return seconds < 0 ? -1 : seconds;
+        } catch (NumberFormatException e) {
+            // RFC 7234 1.2.1: 溢出按最大值处理，其他非法值忽略
+            return !argument.isEmpty() && argument.chars().allMatch(Character::isDigit) ? Integer.MAX_VALUE : -1;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.xinchen.feign;
+
+import feign.Request;
+import org.apache.http.client.utils.DateUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按HTTP缓存语义(RFC 7234)决定{@link CacheableApacheHttpClient}中哪些请求可以走缓存、响应可以缓存多久
+ *
+ * <ul>
+ *     <li>只缓存安全方法(GET/HEAD)和可缓存的状态码</li>
+ *     <li>缓存时长取自响应的 Cache-Control: s-maxage(共享缓存)/max-age，其次是 Expires - Date，并扣掉 Age</li>
+ *     <li>响应没有任何过期信息时使用 heuristicTtl，设为0则不缓存</li>
+ *     <li>请求 no-store 不读不写缓存，请求 no-cache 跳过读缓存但结果可以写入</li>
+ *     <li>响应的 Vary 指定的请求头会拼到缓存key中，Vary: * 不缓存</li>
+ *     <li>带 ETag/Last-Modified 的响应过期后再保留 staleRetention，用条件请求重新验证，响应 no-cache 即每次都验证</li>
+ *     <li>调用方自己发的条件请求(If-None-Match/If-Modified-Since)不经过缓存</li>
+ * </ul>
+ *
+ * 请求和响应的header map都应该是大小写不敏感的(feign生成的{@link Request#headers()}即是如此)
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 16:10
+ */
+public final class CachePolicy {
+    /**
+     * RFC 7231 6.1 默认可缓存的状态码
+     */
+    private static final Set<Integer> CACHEABLE_STATUS =
+            new HashSet<>(Arrays.asList(200, 203, 204, 300, 301, 308, 404, 405, 410, 414, 501));
+
+    private static final String CACHE_CONTROL = "Cache-Control";
+
+    /**
+     * {@link #ttlNanos}的返回值，表示响应不能缓存
+     */
+    public static final long NOT_STORABLE = -1;
+
+    private final boolean shared;
+    private final long heuristicTtlNanos;
+    private final long staleRetentionNanos;
+
+    /**
+     * 共享缓存，没有过期信息的响应缓存1秒(与之前固定的expireAfterWrite一致)，可验证的entry过期后保留1分钟
+     */
+    public static CachePolicy standard() {
+        return new CachePolicy(true, 1, 60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param shared 是否作为共享缓存：使用s-maxage，不缓存private以及带Authorization的请求
+     * @param heuristicTtl 响应没有Cache-Control/Expires时的缓存时长，0表示不缓存
+     */
+    public CachePolicy(boolean shared, long heuristicTtl, TimeUnit unit) {
+        this(shared, heuristicTtl, 0, unit);
+    }
+
+    /**
+     * @param staleRetention 带ETag/Last-Modified的entry过期后继续保留的时间，期间用条件请求验证，0表示不做验证
+     */
+    public CachePolicy(boolean shared, long heuristicTtl, long staleRetention, TimeUnit unit) {
+        this.shared = shared;
+        this.heuristicTtlNanos = unit.toNanos(heuristicTtl);
+        this.staleRetentionNanos = unit.toNanos(staleRetention);
+    }
+
+    public long staleRetentionNanos() {
+        return staleRetentionNanos;
+    }
+
+    /**
+     * 请求是否可能使用缓存，不满足的请求直接发往上游，也不写缓存
+     */
+    public boolean isCacheable(Request request) {
+        final Request.HttpMethod method = request.httpMethod();
+        if (method != Request.HttpMethod.GET && method != Request.HttpMethod.HEAD) {
+            return false;
+        }
+        final Map<String, Collection<String>> headers = request.headers();
+        if (headers.containsKey("If-None-Match") || headers.containsKey("If-Modified-Since")) {
+            return false;
+        }
+        return !CacheControl.parse(headers.get(CACHE_CONTROL)).has("no-store");
+    }
+
+    /**
+     * 请求要求跳过已有缓存(no-cache, max-age=0, Pragma: no-cache)，上游的新响应仍然可以写入缓存
+     */
+    public boolean requiresUpstream(Request request) {
+        final Map<String, Collection<String>> headers = request.headers();
+        final Collection<String> cacheControl = headers.get(CACHE_CONTROL);
+        if (cacheControl == null) {
+            final Collection<String> pragma = headers.get("Pragma");
+            return pragma != null && pragma.contains("no-cache");
+        }
+        final CacheControl directives = CacheControl.parse(cacheControl);
+        return directives.has("no-cache") || directives.seconds("max-age") == 0;
+    }
+
+    /**
+     * 计算响应剩余的新鲜时间
+     *
+     * @param responseTimeMillis 收到响应的时间，用于根据Date计算响应已经存在的时间
+     * @return 新鲜时长(ns)，0表示已过期(只能用于条件请求)，{@link #NOT_STORABLE}表示不能缓存
+     */
+    public long ttlNanos(Request request, int status, Map<String, Collection<String>> responseHeaders,
+                         long responseTimeMillis) {
+        if (!CACHEABLE_STATUS.contains(status)) {
+            return NOT_STORABLE;
+        }
+        final CacheControl response = CacheControl.parse(responseHeaders.get(CACHE_CONTROL));
+        if (response.has("no-store")) {
+            return NOT_STORABLE;
+        }
+        if (shared && response.has("private")) {
+            return NOT_STORABLE;
+        }
+        if (shared && request.headers().containsKey("Authorization")
+                && !(response.has("public") || response.has("s-maxage") || response.has("must-revalidate"))) {
+            return NOT_STORABLE;
+        }
+        final List<String> vary = varyNames(responseHeaders);
+        if (vary != null && vary.contains("*")) {
+            return NOT_STORABLE;
+        }
+        // 可以存，但每次使用前都要验证
+        if (response.has("no-cache")) {
+            return 0;
+        }
+
+        final Date date = firstDate(responseHeaders.get("Date"));
+        final long lifetimeMillis = freshnessLifetimeMillis(response, responseHeaders, date);
+        if (lifetimeMillis < 0) {
+            return heuristicTtlNanos;
+        }
+        final long apparentAgeMillis = date == null ? 0 : Math.max(0, responseTimeMillis - date.getTime());
+        final long ageMillis = Math.max(apparentAgeMillis, TimeUnit.SECONDS.toMillis(ageSeconds(responseHeaders)));
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, lifetimeMillis - ageMillis));
+    }
+
+    /**
+     * @return 显式指定的新鲜时间(ms)，没有指定返回-1
+     */
+    private long freshnessLifetimeMillis(CacheControl response, Map<String, Collection<String>> responseHeaders,
+                                         Date date) {
+        if (shared && response.seconds("s-maxage") >= 0) {
+            return TimeUnit.SECONDS.toMillis(response.seconds("s-maxage"));
+        }
+        if (response.seconds("max-age") >= 0) {
+            return TimeUnit.SECONDS.toMillis(response.seconds("max-age"));
+        }
+        final Collection<String> expiresValues = responseHeaders.get("Expires");
+        if (expiresValues != null && !expiresValues.isEmpty()) {
+            // RFC 7234 5.3: 非法的Expires(比如"0")表示已经过期
+            final Date expires = firstDate(expiresValues);
+            if (expires == null) {
+                return 0;
+            }
+            final long dateMillis = date == null ? System.currentTimeMillis() : date.getTime();
+            return Math.max(0, expires.getTime() - dateMillis);
+        }
+        return -1;
+    }
+
+    private static long ageSeconds(Map<String, Collection<String>> responseHeaders) {
+        final Collection<String> age = responseHeaders.get("Age");
+        if (age == null || age.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(age.iterator().next().trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static Date firstDate(Collection<String> values) {
+        return values == null || values.isEmpty() ? null : DateUtils.parseDate(values.iterator().next());
+    }
+
+    /**
+     * @return 响应Vary指定的请求头(小写)，没有Vary返回null
+     */
+    public List<String> varyNames(Map<String, Collection<String>> responseHeaders) {
+        final Collection<String> vary = responseHeaders.get("Vary");
+        if (vary == null || vary.isEmpty()) {
+            return null;
+        }
+        final List<String> names = new ArrayList<>();
+        for (String value : vary) {
+            for (String name : value.split(",")) {
+                name = name.trim().toLowerCase(Locale.ROOT);
+                if (!name.isEmpty() && !names.contains(name)) {
+                    names.add(name);
+                }
+            }
+        }
+        Collections.sort(names);
+        return names.isEmpty() ? null : Collections.unmodifiableList(names);
+    }
+
+    /**
+     * 把Vary选中的请求头的值拼到缓存key后面
+     */
+    public String varyKey(String primaryKey, List<String> varyNames, Map<String, Collection<String>> requestHeaders) {
+        final StringBuilder key = new StringBuilder(primaryKey);
+        for (String name : varyNames) {
+            key.append('\n').append(name).append(':');
+            final Collection<String> values = requestHeaders.get(name);
+            if (values != null) {
+                key.append(String.join(",", values));
+            }
+        }
+        return key.toString();
+    }
+}
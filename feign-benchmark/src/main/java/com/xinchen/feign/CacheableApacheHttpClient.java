@@ -2,6 +2,8 @@ package com.xinchen.feign;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import feign.Client;
 import feign.Request;
 import feign.Response;
@@ -10,35 +12,44 @@ import feign.httpclient.ApacheHttpClient;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
-import org.apache.http.NameValuePair;
+import org.apache.http.HttpStatus;
 import org.apache.http.StatusLine;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.entity.DeflateInputStream;
 import org.apache.http.client.methods.Configurable;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.methods.RequestBuilder;
-import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.client.utils.URLEncodedUtils;
 import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.util.EntityUtils;
 
 import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PushbackInputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.Reader;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
 
 import static feign.Util.UTF_8;
 
@@ -47,92 +58,378 @@ import static feign.Util.UTF_8;
  *
  * see {@link ApacheHttpClient}
  *
+ * 没有传入HttpClient时自己创建一个，{@link #close()}时关闭它(连同连接池)；传入的HttpClient由调用方负责关闭
+ *
  * @author Xin Chen (xinchenmelody@gmail.com)
  * @version 1.0
  * @date Created In 2021/12/26 15:55
  */
-public class CacheableApacheHttpClient implements Client {
+public class CacheableApacheHttpClient implements Client, Closeable {
     private static final String ACCEPT_HEADER_NAME = "Accept";
+    private static final String ACCEPT_ENCODING_HEADER_NAME = "Accept-Encoding";
+    private static final String CONTENT_TYPE_HEADER_NAME = "Content-Type";
+    private static final String ACCEPT_ENCODING = "gzip, deflate";
 
-    private final HttpClient client;
-    private final Cache<String,CacheMeta> cachedMap = Caffeine.newBuilder()
-            .maximumSize(10_000)
-            .expireAfterWrite(1, TimeUnit.SECONDS).build();
-
+    /**
+     * 小于这个大小的body压缩收益不明显，不压缩
+     */
+    private static final int MIN_COMPRESS_SIZE = 256;
 
+    private final HttpClient client;
+    private final boolean ownsClient;
+    private final CachePolicy policy;
+    private final Cache<String,CacheMeta> cachedMap;
+
+    /**
+     * METHOD + url -> 上次响应的Vary头，用于拼出完整的缓存key
+     */
+    private final Cache<String, List<String>> varyIndex;
+
+    /**
+     * 正在请求上游的key，同一个key并发未命中时只有第一个线程(leader)真正发请求，其余线程等待它的结果
+     */
+    private final ConcurrentMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final boolean coalescing;
+    private final BodyStorage bodyStorage;
+
+    /**
+     * 可选的第二级缓存，L1未命中时先查它再请求上游
+     */
+    private final MappedL2Cache secondLevel;
+
+    private final boolean acceptEncoding;
+    private final boolean compressedAtRest;
+
+    /**
+     * Options -> 带超时的RequestConfig。Feign对同一个方法每次传的是同一个Options实例(没有重写equals)，
+     * weakKeys按引用比较，调用方每次新建Options时旧的entry随GC回收
+     */
+    private final Cache<Request.Options, RequestConfig> requestConfigs = Caffeine.newBuilder().weakKeys().build();
 
     public CacheableApacheHttpClient() {
-        this(HttpClientBuilder.create().build());
+        this(builder());
     }
 
     public CacheableApacheHttpClient(HttpClient client) {
-        this.client = client;
+        this(builder().client(client));
+    }
+
+    private CacheableApacheHttpClient(Builder builder) {
+        this.ownsClient = builder.client == null;
+        this.client = ownsClient ? defaultHttpClient(builder.acceptEncoding, builder.adaptiveConnections) : builder.client;
+        this.policy = builder.policy;
+        this.coalescing = builder.coalescing;
+        this.bodyStorage = builder.bodyStorage;
+        this.secondLevel = builder.secondLevel;
+        this.acceptEncoding = builder.acceptEncoding;
+        this.compressedAtRest = builder.compressedAtRest;
+        // 被淘汰、过期或覆盖的entry释放缓存持有的body引用
+        this.cachedMap = Caffeine.newBuilder()
+                .maximumSize(builder.maximumSize)
+                .expireAfter(new CacheMetaExpiry())
+                .removalListener((String key, CacheMeta value, RemovalCause cause) -> value.body.release())
+                .build();
+        this.varyIndex = Caffeine.newBuilder()
+                .maximumSize(builder.maximumSize)
+                .build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @param acceptEncoding 由本类解压时关闭HttpClient自带的解压
+     * @param adaptiveConnections 换成按负载调整连接数的{@link AdaptiveConnectionManager}，它的后台线程在{@link #close()}时停止
+     */
+    private static CloseableHttpClient defaultHttpClient(boolean acceptEncoding, boolean adaptiveConnections) {
+        final HttpClientBuilder builder = HttpClientBuilder.create();
+        if (adaptiveConnections) {
+            builder.setConnectionManager(AdaptiveConnectionManager.builder().build());
+        }
+        return acceptEncoding ? builder.disableContentCompression().build() : builder.build();
+    }
+
+    /**
+     * 关闭自己创建的HttpClient及其连接池，缓存仍然可以命中
+     */
+    @Override
+    public void close() throws IOException {
+        if (ownsClient && client instanceof Closeable) {
+            ((Closeable) client).close();
+        }
     }
 
     @Override
     public Response execute(Request request, Request.Options options) throws IOException {
-        HttpUriRequest httpUriRequest;
+        // 非安全方法或者 no-store 的请求不经过缓存
+        if (!policy.isCacheable(request)) {
+            return toFeignResponse(toCacheMeta(client.execute(convert(request, options)), request), request);
+        }
+
+        // 从缓存中获取，这里直接跳过client.execute，命中时不做请求转换
+        // 没有Vary的entry直接存在primaryKey下，一次getIfPresent即可；同一个key只查一次，两次之间entry可能刚好过期
+        final String primaryKey = primaryKeyFrom(request);
+        CacheMeta cached = cachedMap.getIfPresent(primaryKey);
+        final String cacheKey = null == cached ? cacheKeyFrom(primaryKey, request) : primaryKey;
+        if (null == cached && cacheKey != primaryKey) {
+            cached = cachedMap.getIfPresent(cacheKey);
+        }
+        if (null == cached && null != secondLevel) {
+            cached = promote(cacheKey);
+        }
+        // retain失败说明entry刚被移除，body已经释放，按未命中处理
+        if (null != cached && cached.isFresh() && !policy.requiresUpstream(request) && cached.body.retain()) {
+            return toFeignResponse(cached, request);
+        }
+
+        // 已过期但带ETag/Last-Modified的entry用条件请求验证，304时复用body
+        final HttpUriRequest httpUriRequest = convert(request, options);
+        final CacheMeta cacheMeta = coalescing
+                ? fetchCoalesced(cacheKey, request, httpUriRequest)
+                : fetch(request, httpUriRequest, cached);
+        return toFeignResponse(cacheMeta, request);
+    }
+
+    /**
+     * 从L2读出entry并放回L1，返回的body在堆内，调用方不需要持有引用
+     */
+    private CacheMeta promote(String cacheKey) {
+        final CacheMeta loaded = secondLevel.get(cacheKey);
+        if (loaded == null || (!loaded.isFresh() && !loaded.hasValidators())) {
+            return null;
+        }
+        final CachedBody body = bodyStorage.store(loaded.body);
+        if (body != null) {
+            final CacheMeta entry = body == loaded.body ? loaded : loaded.withBody(body);
+            // 并发请求可能已经写入了更新的entry
+            if (cachedMap.asMap().putIfAbsent(cacheKey, entry) != null) {
+                body.release();
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * single-flight: 同一个key只让leader请求上游，follower等待leader的{@link CacheMeta}，各自构建独立的{@link Response}
+     *
+     * follower各自retain body，leader的response可能已经关闭，body被释放时follower自己请求上游；
+     * leader的响应不能共享给这个follower时(见{@link #isShareable})，follower也自己请求上游
+     */
+    private CacheMeta fetchCoalesced(String cacheKey, Request request, HttpUriRequest httpUriRequest)
+            throws IOException {
+        final InFlight call = new InFlight(request);
+        final InFlight leader = inFlight.putIfAbsent(cacheKey, call);
+        if (leader != null) {
+            final CacheMeta shared = await(leader.result, httpUriRequest);
+            return isShareable(shared, leader.request, request) && shared.body.retain()
+                    ? shared
+                    : fetch(request, httpUriRequest, null);
+        }
+
         try {
-            httpUriRequest = toHttpUriRequest(request, options);
-        } catch (URISyntaxException e) {
-            throw new IOException("URL '" + request.url() + "' couldn't be parsed into a URI", e);
+            // 上一个leader可能刚好在我们未命中之后写入了缓存并退出
+            final CacheMeta current = cachedMap.getIfPresent(cacheKey);
+            final CacheMeta cacheMeta = null != current && current.isFresh() && !policy.requiresUpstream(request)
+                    && current.body.retain()
+                    ? current
+                    : fetch(request, httpUriRequest, current);
+            call.result.complete(cacheMeta);
+            return cacheMeta;
+        } catch (IOException | RuntimeException | Error e) {
+            call.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cacheKey, call);
         }
+    }
 
-        // 从缓存中获取，这里直接跳过client.execute
-        if (null!=cachedMap.getIfPresent(cacheKeyFrom(request))){
-            final CacheMeta cacheMeta = cachedMap.getIfPresent(cacheKeyFrom(request));
-            return Response.builder()
-                    .status(cacheMeta.statusCode)
-                    .reason(cacheMeta.reason)
-                    .headers(cacheMeta.headers)
-                    .request(request)
-                    .body(toFeignBody(cacheMeta))
-                    .build();
+    /**
+     * 只有会被写入缓存的响应才能共享：private、no-store、带Authorization等不能缓存的响应只属于leader自己；
+     * 还没有Vary索引时不同Vary请求头的请求也会合并到同一个key，要求两个请求在响应的Vary下得到同一个缓存key
+     */
+    private boolean isShareable(CacheMeta cacheMeta, Request leader, Request follower) {
+        if (!isStorable(cacheMeta)) {
+            return false;
         }
+        final List<String> vary = policy.varyNames(cacheMeta.headers);
+        if (vary == null) {
+            return true;
+        }
+        final String primaryKey = primaryKeyFrom(follower);
+        return policy.varyKey(primaryKey, vary, leader.headers())
+                .equals(policy.varyKey(primaryKey, vary, follower.headers()));
+    }
 
-        HttpResponse httpResponse = client.execute(httpUriRequest);
-        return toFeignResponse(httpResponse, request);
+    private CacheMeta await(CompletableFuture<CacheMeta> leader, HttpUriRequest httpUriRequest) throws IOException {
+        try {
+            return leader.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for in-flight request to " + httpUriRequest.getURI());
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new IOException(cause.getMessage(), cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
     }
 
-    HttpUriRequest toHttpUriRequest(Request request, Request.Options options)
-            throws URISyntaxException {
-        RequestBuilder requestBuilder = RequestBuilder.create(request.httpMethod().name());
+    /**
+     * @param cached 缓存中已有的entry(可能已过期)，带校验器时发条件请求
+     * @return 调用方持有一份body引用
+     */
+    private CacheMeta fetch(Request request, HttpUriRequest httpUriRequest, CacheMeta cached) throws IOException {
+        // 条件请求期间entry可能被移除，先持有body，304时这份引用转给返回值
+        final CacheMeta validatable = null != cached && cached.hasValidators() && cached.body.retain() ? cached : null;
+        if (validatable != null) {
+            if (validatable.etag != null) {
+                httpUriRequest.setHeader("If-None-Match", validatable.etag);
+            }
+            if (validatable.lastModified != null) {
+                httpUriRequest.setHeader("If-Modified-Since", validatable.lastModified);
+            }
+        }
 
-        // per request timeouts
-        RequestConfig requestConfig =
-                (client instanceof Configurable ? RequestConfig.copy(((Configurable) client).getConfig())
-                        : RequestConfig.custom())
-                        .setConnectTimeout(options.connectTimeoutMillis())
-                        .setSocketTimeout(options.readTimeoutMillis())
-                        .build();
-        requestBuilder.setConfig(requestConfig);
+        CacheMeta cacheMeta = null;
+        try {
+            HttpResponse httpResponse = client.execute(httpUriRequest);
+            if (validatable != null && httpResponse.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+                cacheMeta = revalidated(validatable, httpResponse, request);
+            } else {
+                cacheMeta = toCacheMeta(httpResponse, request);
+            }
+        } finally {
+            if (validatable != null && (cacheMeta == null || cacheMeta.body != validatable.body)) {
+                validatable.body.release();
+            }
+        }
+        store(request, cacheMeta);
+        return cacheMeta;
+    }
 
-        URI uri = new URIBuilder(request.url()).build();
+    /**
+     * 304: 用响应中的header更新已缓存的header，body沿用，重新计算ttl
+     */
+    private CacheMeta revalidated(CacheMeta cached, HttpResponse notModified, Request request) throws IOException {
+        final long responseTimeMillis = System.currentTimeMillis();
+        EntityUtils.consume(notModified.getEntity());
+
+        final Map<String, Collection<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.putAll(cached.headers);
+        for (Map.Entry<String, Collection<String>> header : toHeaders(notModified).entrySet()) {
+            // 304没有body，描述body的header以缓存的为准
+            if (!header.getKey().equalsIgnoreCase(Util.CONTENT_LENGTH)
+                    && !header.getKey().equalsIgnoreCase("Transfer-Encoding")) {
+                headers.put(header.getKey(), header.getValue());
+            }
+        }
+        final long ttlNanos = policy.ttlNanos(request, cached.statusCode, headers, responseTimeMillis);
+        return new CacheMeta(cached.statusCode, cached.reason, headers, cached.length, cached.body, ttlNanos);
+    }
+
+    /**
+     * 按响应的Vary更新索引后写入缓存，不可缓存的响应直接丢弃
+     *
+     * 缓存中的body由{@link BodyStorage}另外持有一份引用，调用方手里的cacheMeta不受影响
+     */
+    private void store(Request request, CacheMeta cacheMeta) {
+        if (!isStorable(cacheMeta)) {
+            return;
+        }
+        final CachedBody atRest = compressedAtRest && cacheMeta.body instanceof CachedBody.Heap
+                && cacheMeta.body.size() >= MIN_COMPRESS_SIZE
+                ? CachedBody.compress((CachedBody.Heap) cacheMeta.body)
+                : cacheMeta.body;
+        final CachedBody body = bodyStorage.store(atRest);
+        if (body == null) {
+            return;
+        }
+        final CacheMeta entry = body == cacheMeta.body ? cacheMeta : cacheMeta.withBody(body);
+        final String primaryKey = primaryKeyFrom(request);
+        final List<String> vary = policy.varyNames(cacheMeta.headers);
+        if (vary == null) {
+            varyIndex.invalidate(primaryKey);
+            cachedMap.put(primaryKey, entry);
+            // 重启后没有Vary索引，带Vary的entry只放在L1
+            if (secondLevel != null) {
+                secondLevel.put(primaryKey, cacheMeta, policy.staleRetentionNanos());
+            }
+        } else {
+            // primaryKey下不能留着旧的无Vary entry，否则命中路径会优先用它
+            cachedMap.invalidate(primaryKey);
+            varyIndex.put(primaryKey, vary);
+            cachedMap.put(policy.varyKey(primaryKey, vary, request.headers()), entry);
+        }
+    }
 
-        requestBuilder.setUri(uri.getScheme() + "://" + uri.getAuthority() + uri.getRawPath());
+    /**
+     * 新鲜的entry，或者虽然立即过期(no-cache, max-age=0)但可以用来做条件请求的entry
+     */
+    private boolean isStorable(CacheMeta cacheMeta) {
+        return cacheMeta.ttlNanos > 0
+                || (cacheMeta.ttlNanos == 0 && cacheMeta.hasValidators() && policy.staleRetentionNanos() > 0);
+    }
 
-        // request query params
-        List<NameValuePair> queryParams =
-                URLEncodedUtils.parse(uri, requestBuilder.getCharset());
-        for (NameValuePair queryParam : queryParams) {
-            requestBuilder.addParameter(queryParam);
+    private HttpUriRequest convert(Request request, Request.Options options) throws IOException {
+        try {
+            return toHttpUriRequest(request, options);
+        } catch (URISyntaxException e) {
+            throw new IOException("URL '" + request.url() + "' couldn't be parsed into a URI", e);
         }
+    }
+
+    /**
+     * Feign给出的url已经编码好，直接作为URI，不再拆开query重新编码；
+     * header只遍历一遍，先按长度过滤再比较名字，顺带取出Content-Type
+     */
+    HttpUriRequest toHttpUriRequest(Request request, Request.Options options)
+            throws URISyntaxException {
+        RequestBuilder requestBuilder = RequestBuilder.create(request.httpMethod().name());
+
+        // per request timeouts
+        requestBuilder.setConfig(requestConfigs.get(options, this::newRequestConfig));
+        requestBuilder.setUri(new URI(request.url()));
 
         // request headers
         boolean hasAcceptHeader = false;
+        boolean hasAcceptEncoding = false;
+        String contentTypeValue = null;
         for (Map.Entry<String, Collection<String>> headerEntry : request.headers().entrySet()) {
             String headerName = headerEntry.getKey();
-            if (headerName.equalsIgnoreCase(ACCEPT_HEADER_NAME)) {
-                hasAcceptHeader = true;
-            }
-
-            if (headerName.equalsIgnoreCase(Util.CONTENT_LENGTH)) {
-                // The 'Content-Length' header is always set by the Apache client and it
-                // doesn't like us to set it as well.
-                continue;
+            Collection<String> headerValues = headerEntry.getValue();
+            switch (headerName.length()) {
+                case 6:
+                    hasAcceptHeader |= headerName.equalsIgnoreCase(ACCEPT_HEADER_NAME);
+                    break;
+                case 12:
+                    if (contentTypeValue == null && headerName.equalsIgnoreCase(CONTENT_TYPE_HEADER_NAME)
+                            && headerValues != null && !headerValues.isEmpty()) {
+                        contentTypeValue = headerValues.iterator().next();
+                    }
+                    break;
+                case 14:
+                    if (headerName.equalsIgnoreCase(Util.CONTENT_LENGTH)) {
+                        // The 'Content-Length' header is always set by the Apache client and it
+                        // doesn't like us to set it as well.
+                        continue;
+                    }
+                    break;
+                case 15:
+                    hasAcceptEncoding |= headerName.equalsIgnoreCase(ACCEPT_ENCODING_HEADER_NAME);
+                    break;
+                default:
+                    break;
             }
 
-            for (String headerValue : headerEntry.getValue()) {
+            for (String headerValue : headerValues) {
                 requestBuilder.addHeader(headerName, headerValue);
             }
         }
@@ -140,14 +437,22 @@ public class CacheableApacheHttpClient implements Client {
         if (!hasAcceptHeader) {
             requestBuilder.addHeader(ACCEPT_HEADER_NAME, "*/*");
         }
+        if (acceptEncoding && !hasAcceptEncoding) {
+            requestBuilder.addHeader(ACCEPT_ENCODING_HEADER_NAME, ACCEPT_ENCODING);
+        }
 
         // request body
         if (request.body() != null) {
             HttpEntity entity = null;
             if (request.charset() != null) {
-                ContentType contentType = getContentType(request);
-                String content = new String(request.body(), request.charset());
-                entity = new StringEntity(content, contentType);
+                ContentType contentType = contentType(contentTypeValue, request.charset());
+                if (contentType != null && request.charset().equals(contentType.getCharset())) {
+                    // body已经是按这个charset编码的字节，原样发送，省掉new String和StringEntity再编码的两份拷贝
+                    entity = new ByteArrayEntity(request.body(), contentType);
+                } else {
+                    String content = new String(request.body(), request.charset());
+                    entity = new StringEntity(content, contentType);
+                }
             } else {
                 entity = new ByteArrayEntity(request.body());
             }
@@ -160,30 +465,134 @@ public class CacheableApacheHttpClient implements Client {
         return requestBuilder.build();
     }
 
-    private ContentType getContentType(Request request) {
-        ContentType contentType = null;
-        for (Map.Entry<String, Collection<String>> entry : request.headers().entrySet()){
-            if (entry.getKey().equalsIgnoreCase("Content-Type")) {
-                Collection<String> values = entry.getValue();
-                if (values != null && !values.isEmpty()) {
-                    contentType = ContentType.parse(values.iterator().next());
-                    if (contentType.getCharset() == null) {
-                        contentType = contentType.withCharset(request.charset());
-                    }
-                    break;
-                }
-            }
+    private RequestConfig newRequestConfig(Request.Options options) {
+        return (client instanceof Configurable ? RequestConfig.copy(((Configurable) client).getConfig())
+                : RequestConfig.custom())
+                .setConnectTimeout(options.connectTimeoutMillis())
+                .setSocketTimeout(options.readTimeoutMillis())
+                .build();
+    }
+
+    private static ContentType contentType(String value, Charset charset) {
+        if (value == null) {
+            return null;
         }
-        return contentType;
+        ContentType contentType = ContentType.parse(value);
+        return contentType.getCharset() == null ? contentType.withCharset(charset) : contentType;
     }
 
-    Response toFeignResponse(HttpResponse httpResponse, Request request) throws IOException {
+    CacheMeta toCacheMeta(HttpResponse httpResponse, Request request) throws IOException {
+        final long responseTimeMillis = System.currentTimeMillis();
         StatusLine statusLine = httpResponse.getStatusLine();
         int statusCode = statusLine.getStatusCode();
 
         String reason = statusLine.getReasonPhrase();
 
-        Map<String, Collection<String>> headers = new HashMap<String, Collection<String>>();
+        Map<String, Collection<String>> headers = toHeaders(httpResponse);
+
+        final HttpEntity entity = httpResponse.getEntity();
+        if (entity == null) {
+            // HEAD、204、304没有entity，按空body处理
+            final long ttlNanos = policy.ttlNanos(request, statusCode, headers, responseTimeMillis);
+            return new CacheMeta(statusCode, reason, headers, 0, CachedBody.heap(new byte[0]), ttlNanos);
+        }
+        Integer length =  entity.getContentLength() >= 0 && entity.getContentLength() <= Integer.MAX_VALUE
+                ? (int) entity.getContentLength()
+                : null;
+
+        final boolean encoded = headers.containsKey("Content-Encoding");
+        final CachedBody body = readBody(entity, headers);
+        if (encoded && !headers.containsKey("Content-Encoding")) {
+            // 解压后的长度
+            length = body.size();
+        }
+        EntityUtils.consume(entity);
+
+        final long ttlNanos = policy.ttlNanos(request, statusCode, headers, responseTimeMillis);
+        return new CacheMeta(statusCode, reason, headers, length, body, ttlNanos);
+    }
+
+    /**
+     * 按Content-Encoding边读边解压，压缩存储时gzip数据原样保留；解压后去掉Content-Encoding/Content-Length，
+     * 与HttpClient自带的解压一致。HttpClient已经解压过的响应没有Content-Encoding，直接读取
+     */
+    private CachedBody readBody(HttpEntity entity, Map<String, Collection<String>> headers) throws IOException {
+        final Collection<String> encodings = headers.get("Content-Encoding");
+        final String encoding = encodings == null || encodings.isEmpty()
+                ? null
+                : encodings.iterator().next().trim().toLowerCase(Locale.ROOT);
+        if (encoding == null || "identity".equals(encoding)) {
+            return CachedBody.heap(EntityUtils.toByteArray(entity));
+        }
+
+        final CachedBody body;
+        if ("gzip".equals(encoding) || "x-gzip".equals(encoding)) {
+            if (compressedAtRest) {
+                final byte[] gzip = EntityUtils.toByteArray(entity);
+                // 太短的(比如空body)不是完整的gzip，按解压后的原文保存，数据损坏时解压抛出IOException
+                body = gzip.length >= CachedBody.MIN_GZIP_SIZE ? CachedBody.gzipped(gzip) : CachedBody.heap(gunzip(gzip));
+            } else {
+                final InputStream content = nonEmptyContent(entity);
+                if (content == null) {
+                    body = CachedBody.heap(new byte[0]);
+                } else {
+                    try (InputStream in = new GZIPInputStream(content, 4096)) {
+                        body = CachedBody.heap(Util.toByteArray(in));
+                    }
+                }
+            }
+        } else if ("deflate".equals(encoding)) {
+            final InputStream content = nonEmptyContent(entity);
+            if (content == null) {
+                body = CachedBody.heap(new byte[0]);
+            } else {
+                // zlib或raw deflate都可能出现，DeflateInputStream会自动识别
+                try (InputStream in = new DeflateInputStream(content)) {
+                    body = CachedBody.heap(Util.toByteArray(in));
+                }
+            }
+        } else {
+            // 不认识的编码原样交给调用方
+            return CachedBody.heap(EntityUtils.toByteArray(entity));
+        }
+        headers.remove("Content-Encoding");
+        headers.remove(Util.CONTENT_LENGTH);
+        return body;
+    }
+
+    /**
+     * 空body(Content-Length: 0或没有数据的chunked)不是合法的gzip/deflate数据，与HttpClient的ResponseContentEncoding
+     * 一样当作空内容，返回null；否则返回还没读过的content
+     */
+    private static InputStream nonEmptyContent(HttpEntity entity) throws IOException {
+        final InputStream content = entity.getContent();
+        if (content == null) {
+            return null;
+        }
+        final PushbackInputStream in = new PushbackInputStream(content, 1);
+        final int first = in.read();
+        if (first == -1) {
+            in.close();
+            return null;
+        }
+        in.unread(first);
+        return in;
+    }
+
+    private static byte[] gunzip(byte[] gzip) throws IOException {
+        if (gzip.length == 0) {
+            return gzip;
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            return Util.toByteArray(in);
+        }
+    }
+
+    /**
+     * 大小写不敏感，CachePolicy按名字取Cache-Control/Vary等
+     */
+    private static Map<String, Collection<String>> toHeaders(HttpResponse httpResponse) {
+        Map<String, Collection<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
         for (Header header : httpResponse.getAllHeaders()) {
             String name = header.getName();
             String value = header.getValue();
@@ -195,67 +604,38 @@ public class CacheableApacheHttpClient implements Client {
             }
             headerValues.add(value);
         }
+        return headers;
+    }
 
-        final HttpEntity entity = httpResponse.getEntity();
-        Integer length =  entity.getContentLength() >= 0 && entity.getContentLength() <= Integer.MAX_VALUE
-                ? (int) entity.getContentLength()
-                : null;
-
-        final byte[] bytes = EntityUtils.toByteArray(entity);
-        EntityUtils.consume(entity);
-
-        // cache
-        CacheMeta cacheMeta = new CacheMeta(statusCode, reason, headers, length, bytes);
-        cachedMap.put(cacheKeyFrom(request), cacheMeta);
-
+    Response toFeignResponse(CacheMeta cacheMeta, Request request) throws IOException {
         return Response.builder()
-                .status(statusCode)
-                .reason(reason)
-                .headers(headers)
+                .status(cacheMeta.statusCode)
+                .reason(cacheMeta.reason)
+                .headers(cacheMeta.headers)
                 .request(request)
                 .body(toFeignBody(cacheMeta))
                 .build();
     }
 
+    /**
+     * 接管调用方持有的一份body引用，close时释放；堆内body没有引用计数，所有response共用同一个视图
+     */
     Response.Body toFeignBody(CacheMeta cacheMeta) throws IOException {
+        return cacheMeta.sharedView != null ? cacheMeta.sharedView : new RefCountedBodyView(cacheMeta);
+    }
 
-        return new Response.Body() {
-            @Override
-            public Integer length() {
-                return cacheMeta.length;
-            }
-
-            @Override
-            public boolean isRepeatable() {
-                return true;
-            }
-
-            @Override
-            public InputStream asInputStream() throws IOException {
-                return  new ByteArrayInputStream(cacheMeta.body);
-            }
-
-            @SuppressWarnings("deprecation")
-            @Override
-            public Reader asReader() throws IOException {
-                return new InputStreamReader(asInputStream(), UTF_8);
-            }
-
-            @Override
-            public Reader asReader(Charset charset) throws IOException {
-                Util.checkNotNull(charset, "charset should not be null");
-                return new InputStreamReader(asInputStream(), charset);
-            }
-
-            @Override
-            public void close() throws IOException {
-                // ignore
-            }
-        };
+    private String cacheKeyFrom(String primaryKey, Request request) {
+        final List<String> vary = varyIndex.getIfPresent(primaryKey);
+        return vary == null ? primaryKey : policy.varyKey(primaryKey, vary, request.headers());
     }
 
-    private String cacheKeyFrom(Request request) {
-        return request.url();
+    /**
+     * GET直接用url作为key，省掉一次字符串拼接；url以scheme开头，不会和其他方法的key冲突
+     */
+    static String primaryKeyFrom(Request request) {
+        return request.httpMethod() == Request.HttpMethod.GET
+                ? request.url()
+                : request.httpMethod().name() + ' ' + request.url();
     }
 
     static class CacheMeta {
@@ -263,14 +643,256 @@ public class CacheableApacheHttpClient implements Client {
         String reason;
         Map<String, Collection<String>> headers;
         Integer length;
-        byte[] body;
-
-        public CacheMeta(int statusCode, String reason, Map<String, Collection<String>> headers,  Integer length, byte[] body) {
+        CachedBody body;
+        /**
+         * 由{@link CachePolicy}计算的剩余新鲜时间，小于0表示不可缓存
+         */
+        long ttlNanos;
+        long freshUntilNanos;
+        /**
+         * 条件请求的校验器
+         */
+        String etag;
+        String lastModified;
+        /**
+         * 堆内body的只读视图，可以被多个response共享
+         */
+        Response.Body sharedView;
+
+        public CacheMeta(int statusCode, String reason, Map<String, Collection<String>> headers,  Integer length,
+                         CachedBody body, long ttlNanos) {
             this.statusCode = statusCode;
             this.reason = reason;
             this.headers = headers;
             this.length = length;
             this.body = body;
+            this.ttlNanos = ttlNanos;
+            this.freshUntilNanos = System.nanoTime() + Math.max(0, ttlNanos);
+            this.etag = firstHeader(headers, "ETag");
+            this.lastModified = firstHeader(headers, "Last-Modified");
+            this.sharedView = body.isRefCounted() ? null : new HeapBodyView(this);
+        }
+
+        /**
+         * 同一个响应换一份body存储，新鲜时间不变
+         */
+        CacheMeta withBody(CachedBody body) {
+            final CacheMeta copy = new CacheMeta(statusCode, reason, headers, length, body, ttlNanos);
+            copy.freshUntilNanos = freshUntilNanos;
+            return copy;
+        }
+
+        boolean isFresh() {
+            return ttlNanos > 0 && freshUntilNanos - System.nanoTime() > 0;
+        }
+
+        boolean hasValidators() {
+            return etag != null || lastModified != null;
+        }
+
+        private static String firstHeader(Map<String, Collection<String>> headers, String name) {
+            final Collection<String> values = headers.get(name);
+            return values == null || values.isEmpty() ? null : values.iterator().next();
+        }
+    }
+
+    /**
+     * 正在请求上游的leader，follower需要它的请求判断结果能不能共享
+     */
+    private static final class InFlight {
+        final Request request;
+        final CompletableFuture<CacheMeta> result = new CompletableFuture<>();
+
+        InFlight(Request request) {
+            this.request = request;
+        }
+    }
+
+    /**
+     * 每个entry按自己的ttl过期，读取不续期；带校验器的entry过期后再保留一段时间用于条件请求
+     */
+    private class CacheMetaExpiry implements Expiry<String, CacheMeta> {
+        @Override
+        public long expireAfterCreate(String key, CacheMeta value, long currentTime) {
+            if (!value.hasValidators()) {
+                return value.ttlNanos;
+            }
+            final long retained = value.ttlNanos + policy.staleRetentionNanos();
+            return retained < 0 ? Long.MAX_VALUE : retained;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CacheMeta value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CacheMeta value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    private abstract static class BodyView implements Response.Body, ArrayBackedBody {
+        final CacheMeta cacheMeta;
+
+        BodyView(CacheMeta cacheMeta) {
+            this.cacheMeta = cacheMeta;
+        }
+
+        @Override
+        public byte[] array() {
+            return cacheMeta.body instanceof CachedBody.Heap ? ((CachedBody.Heap) cacheMeta.body).bytes() : null;
+        }
+
+        @Override
+        public Integer length() {
+            return cacheMeta.length;
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @SuppressWarnings("deprecation")
+        @Override
+        public Reader asReader() throws IOException {
+            return new InputStreamReader(asInputStream(), UTF_8);
+        }
+
+        @Override
+        public Reader asReader(Charset charset) throws IOException {
+            Util.checkNotNull(charset, "charset should not be null");
+            return new InputStreamReader(asInputStream(), charset);
+        }
+    }
+
+    /**
+     * 不需要引用计数的body(堆内或压缩存储)的视图，无状态，close为空操作
+     */
+    private static final class HeapBodyView extends BodyView {
+        HeapBodyView(CacheMeta cacheMeta) {
+            super(cacheMeta);
+        }
+
+        @Override
+        public InputStream asInputStream() {
+            return cacheMeta.body.asInputStream();
+        }
+
+        @Override
+        public void close() {
+            // ignore
+        }
+    }
+
+    /**
+     * 每个response一个，close时释放一次引用，之后不能再读取
+     */
+    private static final class RefCountedBodyView extends BodyView {
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        RefCountedBodyView(CacheMeta cacheMeta) {
+            super(cacheMeta);
+        }
+
+        @Override
+        public InputStream asInputStream() throws IOException {
+            if (closed.get()) {
+                throw new IOException("Response body is closed");
+            }
+            return cacheMeta.body.asInputStream();
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                cacheMeta.body.release();
+            }
+        }
+    }
+
+    public static class Builder {
+        private HttpClient client;
+        private CachePolicy policy = CachePolicy.standard();
+        private boolean coalescing = true;
+        private BodyStorage bodyStorage = BodyStorage.heap();
+        private long maximumSize = 10_000;
+        private MappedL2Cache secondLevel;
+        private boolean acceptEncoding;
+        private boolean compressedAtRest;
+        private boolean adaptiveConnections;
+
+        public Builder client(HttpClient client) {
+            this.client = client;
+            return this;
+        }
+
+        /**
+         * 决定哪些请求走缓存以及每个entry的存活时间
+         */
+        public Builder policy(CachePolicy policy) {
+            this.policy = policy;
+            return this;
+        }
+
+        /**
+         * 是否合并同一个key上并发的未命中请求
+         */
+        public Builder coalescing(boolean coalescing) {
+            this.coalescing = coalescing;
+            return this;
+        }
+
+        /**
+         * 缓存中body的存储方式，默认直接引用堆内的byte[]
+         */
+        public Builder bodyStorage(BodyStorage bodyStorage) {
+            this.bodyStorage = bodyStorage;
+            return this;
+        }
+
+        public Builder maximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * 持久化的第二级缓存，由调用方负责关闭
+         */
+        public Builder secondLevel(MappedL2Cache secondLevel) {
+            this.secondLevel = secondLevel;
+            return this;
+        }
+
+        /**
+         * 请求时带上Accept-Encoding: gzip, deflate，响应由本类边读边解压；
+         * 默认创建的HttpClient会关闭自带的解压，自定义的HttpClient需要自己disableContentCompression()
+         */
+        public Builder acceptEncoding(boolean acceptEncoding) {
+            this.acceptEncoding = acceptEncoding;
+            return this;
+        }
+
+        /**
+         * 缓存中的body以gzip保存，读取时再解压：上游返回的gzip原样保存，未压缩的body写入缓存时压缩
+         */
+        public Builder compressedAtRest(boolean compressedAtRest) {
+            this.compressedAtRest = compressedAtRest;
+            return this;
+        }
+
+        /**
+         * 默认创建的HttpClient使用{@link AdaptiveConnectionManager}(默认每个route只有2条连接)，
+         * 传入了自定义的HttpClient时不起作用。用完要调用{@link CacheableApacheHttpClient#close()}
+         */
+        public Builder adaptiveConnections(boolean adaptiveConnections) {
+            this.adaptiveConnections = adaptiveConnections;
+            return this;
+        }
+
+        public CacheableApacheHttpClient build() {
+            return new CacheableApacheHttpClient(this);
         }
     }
 
@@ -0,0 +1,146 @@
+package com.xinchen.feign;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * {@link CacheableApacheHttpClient}中缓存的响应body
+ *
+ * 堆外实现需要引用计数：缓存持有一份引用，每个正在使用的{@link feign.Response}各持有一份，
+ * 计数归零后内存才会还给分配器。堆内实现的retain/release为空操作
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 18:00
+ */
+public abstract class CachedBody {
+    /**
+     * 10字节头加8字节尾，更短的不是完整的gzip
+     */
+    static final int MIN_GZIP_SIZE = 18;
+
+    public static CachedBody heap(byte[] bytes) {
+        return new Heap(bytes);
+    }
+
+    /**
+     * 直接保存上游返回的gzip数据，大小取gzip尾部的ISIZE(单个member，小于4GB)
+     */
+    public static CachedBody gzipped(byte[] gzip) {
+        if (gzip.length < MIN_GZIP_SIZE) {
+            throw new IllegalArgumentException("Not a gzip stream");
+        }
+        final int n = gzip.length;
+        final int inflatedSize = (gzip[n - 4] & 0xff) | (gzip[n - 3] & 0xff) << 8
+                | (gzip[n - 2] & 0xff) << 16 | (gzip[n - 1] & 0xff) << 24;
+        return new Compressed(gzip, inflatedSize);
+    }
+
+    /**
+     * 压缩后不小于原文时返回原body
+     */
+    static CachedBody compress(Heap body) {
+        final byte[] bytes = body.bytes();
+        final ByteArrayOutputStream gzip = new ByteArrayOutputStream(bytes.length / 4 + 32);
+        try (GZIPOutputStream out = new GZIPOutputStream(gzip, 4096)) {
+            out.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return gzip.size() < bytes.length ? new Compressed(gzip.toByteArray(), bytes.length) : body;
+    }
+
+    /**
+     * {@link #asInputStream()}读出的字节数
+     */
+    public abstract int size();
+
+    /**
+     * 每次调用返回一个新的独立的流
+     */
+    public abstract InputStream asInputStream();
+
+    /**
+     * 增加一次引用
+     *
+     * @return false表示body已经被释放，不能再使用
+     */
+    public boolean retain() {
+        return true;
+    }
+
+    /**
+     * 释放一次引用
+     */
+    public void release() {
+        // heap body由GC回收
+    }
+
+    /**
+     * 需要引用计数的body每个response单独持有一份引用，否则所有response可以共享同一个视图
+     */
+    public boolean isRefCounted() {
+        return false;
+    }
+
+    static final class Heap extends CachedBody {
+        private final byte[] bytes;
+
+        Heap(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        byte[] bytes() {
+            return bytes;
+        }
+
+        @Override
+        public int size() {
+            return bytes.length;
+        }
+
+        @Override
+        public InputStream asInputStream() {
+            return new ByteArrayInputStream(bytes);
+        }
+    }
+
+    /**
+     * 压缩存放的body，每次{@link #asInputStream()}时边读边解压
+     */
+    static final class Compressed extends CachedBody {
+        private final byte[] gzip;
+        private final int inflatedSize;
+
+        Compressed(byte[] gzip, int inflatedSize) {
+            this.gzip = gzip;
+            this.inflatedSize = inflatedSize;
+        }
+
+        /**
+         * 实际占用的字节数
+         */
+        int compressedSize() {
+            return gzip.length;
+        }
+
+        @Override
+        public int size() {
+            return inflatedSize;
+        }
+
+        @Override
+        public InputStream asInputStream() {
+            try {
+                return new GZIPInputStream(new ByteArrayInputStream(gzip), 4096);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
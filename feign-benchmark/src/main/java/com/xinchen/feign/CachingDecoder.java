@@ -0,0 +1,317 @@
+package com.xinchen.feign;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import feign.FeignException;
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import feign.codec.Decoder;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * 缓存解码后的对象，命中时跳过{@link Decoder}(比如Jackson)的反序列化
+ *
+ * <ul>
+ *     <li>key是 请求(与{@link CacheableApacheHttpClient}相同的primaryKey，加上响应Vary选中的请求头) + 目标{@link Type}</li>
+ *     <li>存活时间与字节缓存一样由{@link CachePolicy}按响应头计算，不可缓存或已过期的响应每次都解码</li>
+ *     <li>命中还要求响应的校验器(ETag，没有时Last-Modified)与缓存对象解码时的一致，
+ *     上游返回了新内容时重新解码；两者都没有的响应不缓存(Date只有秒级精度，不能区分同一秒内的不同内容)</li>
+ *     <li>Iterator/Stream只能消费一次，缓存的是读完后的List，每次返回新的iterator()/stream()</li>
+ *     <li>缓存的对象会被多个调用方共享，由{@link CopyStrategy}决定存入和取出时是否拷贝</li>
+ * </ul>
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 20:40
+ */
+public class CachingDecoder implements Decoder {
+    private final Decoder delegate;
+    private final CachePolicy policy;
+    private final CopyStrategy copyStrategy;
+    private final Cache<Key, Entry> cache;
+
+    /**
+     * 缓存对象存入时把集合包装成不可修改的
+     */
+    public CachingDecoder(Decoder delegate) {
+        this(delegate, CachePolicy.standard(), CopyStrategy.unmodifiable(), 10_000);
+    }
+
+    public CachingDecoder(Decoder delegate, CachePolicy policy, CopyStrategy copyStrategy, long maximumSize) {
+        this.delegate = delegate;
+        this.policy = policy;
+        this.copyStrategy = copyStrategy;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new EntryExpiry())
+                .build();
+    }
+
+    @Override
+    public Object decode(Response response, Type type) throws IOException, FeignException {
+        final Request request = response.request();
+        if (!policy.isCacheable(request)) {
+            return delegate.decode(response, type);
+        }
+
+        final Map<String, Collection<String>> headers = response.headers();
+        final Key key = new Key(keyFrom(request, headers), type);
+        final Entry cached = cache.getIfPresent(key);
+        if (null != cached && cached.isFresh() && cached.matches(headers) && !policy.requiresUpstream(request)) {
+            Util.ensureClosed(response);
+            return view(copyStrategy.read(cached.value), type);
+        }
+
+        final long responseTimeMillis = System.currentTimeMillis();
+        final Object decoded = delegate.decode(response, type);
+        final long ttlNanos = policy.ttlNanos(request, response.status(), headers, responseTimeMillis);
+        final Entry entry = ttlNanos > 0 ? Entry.from(headers, ttlNanos) : null;
+        if (entry == null || !entry.hasValidators()) {
+            return decoded;
+        }
+
+        final Class<?> rawType = rawType(type);
+        if (rawType == Iterator.class || rawType == Stream.class) {
+            // 读完一次性的结果，缓存List，本次也从List返回
+            final List<Object> drained = drain(decoded);
+            Util.ensureClosed(response);
+            entry.value = copyStrategy.store(drained);
+            cache.put(key, entry);
+            return view(copyStrategy.read(entry.value), type);
+        }
+        entry.value = copyStrategy.store(decoded);
+        cache.put(key, entry);
+        return copyStrategy.read(entry.value);
+    }
+
+    private String keyFrom(Request request, Map<String, Collection<String>> responseHeaders) {
+        final String primaryKey = CacheableApacheHttpClient.primaryKeyFrom(request);
+        final List<String> vary = policy.varyNames(responseHeaders);
+        return vary == null ? primaryKey : policy.varyKey(primaryKey, vary, request.headers());
+    }
+
+    /**
+     * 缓存的List按目标类型给出新的一次性视图
+     */
+    @SuppressWarnings("unchecked")
+    private static Object view(Object value, Type type) {
+        final Class<?> rawType = rawType(type);
+        if (rawType == Iterator.class) {
+            return ((Collection<Object>) value).iterator();
+        }
+        if (rawType == Stream.class) {
+            return ((Collection<Object>) value).stream();
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> drain(Object decoded) {
+        final Iterator<Object> iterator = decoded instanceof Stream
+                ? ((Stream<Object>) decoded).iterator()
+                : (Iterator<Object>) decoded;
+        final List<Object> drained = new ArrayList<>();
+        while (iterator.hasNext()) {
+            drained.add(iterator.next());
+        }
+        if (decoded instanceof Stream) {
+            ((Stream<Object>) decoded).close();
+        }
+        return drained;
+    }
+
+    private static Class<?> rawType(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            return rawType(((ParameterizedType) type).getRawType());
+        }
+        return Object.class;
+    }
+
+    /**
+     * 缓存对象在调用方之间共享时的拷贝规则
+     */
+    public interface CopyStrategy {
+
+        /**
+         * 解码结果本身就是不可变的(或者调用方保证只读)，不做任何拷贝
+         */
+        static CopyStrategy shared() {
+            return new CopyStrategy() {
+                @Override
+                public Object store(Object decoded) {
+                    return decoded;
+                }
+
+                @Override
+                public Object read(Object cached) {
+                    return cached;
+                }
+            };
+        }
+
+        /**
+         * 存入时把顶层的List/Set/Map/Collection包装成不可修改的，元素本身仍然共享
+         */
+        static CopyStrategy unmodifiable() {
+            return new CopyStrategy() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object store(Object decoded) {
+                    if (decoded instanceof List) {
+                        return Collections.unmodifiableList((List<Object>) decoded);
+                    }
+                    if (decoded instanceof Set) {
+                        return Collections.unmodifiableSet((Set<Object>) decoded);
+                    }
+                    if (decoded instanceof Map) {
+                        return Collections.unmodifiableMap((Map<Object, Object>) decoded);
+                    }
+                    if (decoded instanceof Collection) {
+                        return Collections.unmodifiableCollection((Collection<Object>) decoded);
+                    }
+                    return decoded;
+                }
+
+                @Override
+                public Object read(Object cached) {
+                    return cached;
+                }
+            };
+        }
+
+        /**
+         * 每次取出时调用copier做防御性拷贝(比如深拷贝可变的bean)，缓存中的对象不会被调用方修改
+         */
+        static CopyStrategy copyOnRead(UnaryOperator<Object> copier) {
+            return new CopyStrategy() {
+                @Override
+                public Object store(Object decoded) {
+                    return decoded;
+                }
+
+                @Override
+                public Object read(Object cached) {
+                    return copier.apply(cached);
+                }
+            };
+        }
+
+        /**
+         * @return 放进缓存的对象
+         */
+        Object store(Object decoded);
+
+        /**
+         * @return 交给调用方的对象
+         */
+        Object read(Object cached);
+    }
+
+    private static final class Key {
+        private final String request;
+        private final Type type;
+        private final int hash;
+
+        Key(String request, Type type) {
+            this.request = request;
+            this.type = type;
+            this.hash = 31 * request.hashCode() + type.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return hash == other.hash && request.equals(other.request) && type.equals(other.type);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Entry {
+        private final String etag;
+        private final String lastModified;
+        private final long ttlNanos;
+        private final long freshUntilNanos;
+        private Object value;
+
+        private Entry(String etag, String lastModified, long ttlNanos) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.ttlNanos = ttlNanos;
+            this.freshUntilNanos = System.nanoTime() + ttlNanos;
+        }
+
+        static Entry from(Map<String, Collection<String>> headers, long ttlNanos) {
+            return new Entry(firstHeader(headers, "ETag"), firstHeader(headers, "Last-Modified"), ttlNanos);
+        }
+
+        boolean hasValidators() {
+            return etag != null || lastModified != null;
+        }
+
+        boolean isFresh() {
+            return freshUntilNanos - System.nanoTime() > 0;
+        }
+
+        /**
+         * 响应和解码缓存对象时的是同一份内容
+         */
+        boolean matches(Map<String, Collection<String>> headers) {
+            if (etag != null) {
+                return etag.equals(firstHeader(headers, "ETag"));
+            }
+            return lastModified != null && lastModified.equals(firstHeader(headers, "Last-Modified"));
+        }
+
+        private static String firstHeader(Map<String, Collection<String>> headers, String name) {
+            final Collection<String> values = headers.get(name);
+            return values == null || values.isEmpty() ? null : values.iterator().next();
+        }
+    }
+
+    /**
+     * 与字节缓存一样按entry自己的ttl过期，读取不续期
+     */
+    private static class EntryExpiry implements Expiry<Key, Entry> {
+        @Override
+        public long expireAfterCreate(Key key, Entry value, long currentTime) {
+            return value.ttlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(Key key, Entry value, long currentTime, long currentDuration) {
+            return value.ttlNanos;
+        }
+
+        @Override
+        public long expireAfterRead(Key key, Entry value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
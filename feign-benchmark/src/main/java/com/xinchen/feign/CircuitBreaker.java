@@ -0,0 +1,111 @@
+package com.xinchen.feign;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单个方法的熔断器，状态切换全部用CAS，调用路径上没有锁
+ *
+ * <ul>
+ *     <li>CLOSED：正常放行，结果记入{@link RollingWindow}；窗口内调用数达到minimumCalls且失败率或慢调用率超过阈值时打开</li>
+ *     <li>OPEN：直接拒绝，openNanos之后第一个调用抢到试探名额进入HALF_OPEN</li>
+ *     <li>HALF_OPEN：只放行这一个试探调用，成功则清空窗口回到CLOSED，失败重新打开</li>
+ * </ul>
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 23:20
+ */
+public final class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    static final int DENIED = 0;
+    static final int PERMITTED = 1;
+    static final int TRIAL = 2;
+
+    private static final int CLOSED = 0;
+    private static final int OPEN = 1;
+    private static final int HALF_OPEN = 2;
+
+    private final RollingWindow window;
+    private final int minimumCalls;
+    private final int failureRatePercent;
+    private final long slowCallNanos;
+    private final int slowCallRatePercent;
+    private final long openNanos;
+
+    private final AtomicInteger state = new AtomicInteger(CLOSED);
+    private volatile long openedAt;
+
+    CircuitBreaker(CircuitBreakerCapability.Builder config) {
+        this.window = new RollingWindow(config.buckets, config.windowNanos / config.buckets);
+        this.minimumCalls = config.minimumCalls;
+        this.failureRatePercent = config.failureRatePercent;
+        this.slowCallNanos = config.slowCallNanos;
+        this.slowCallRatePercent = config.slowCallRatePercent;
+        this.openNanos = config.openNanos;
+    }
+
+    public State state() {
+        switch (state.get()) {
+            case OPEN:
+                return State.OPEN;
+            case HALF_OPEN:
+                return State.HALF_OPEN;
+            default:
+                return State.CLOSED;
+        }
+    }
+
+    /**
+     * @return 窗口内的失败率(0-100)，调用数不足minimumCalls时为-1
+     */
+    public int failureRate() {
+        final long[] totals = window.snapshot(System.nanoTime());
+        return totals[0] < minimumCalls ? -1 : (int) (totals[1] * 100 / totals[0]);
+    }
+
+    /**
+     * @return {@link #DENIED}、{@link #PERMITTED}或{@link #TRIAL}，传回{@link #onResult}
+     */
+    int tryAcquire(long nowNanos) {
+        switch (state.get()) {
+            case CLOSED:
+                return PERMITTED;
+            case OPEN:
+                return nowNanos - openedAt >= openNanos && state.compareAndSet(OPEN, HALF_OPEN) ? TRIAL : DENIED;
+            default:
+                return DENIED;
+        }
+    }
+
+    void onResult(int permit, long startNanos, long endNanos, boolean failure) {
+        final boolean slow = slowCallNanos > 0 && endNanos - startNanos >= slowCallNanos;
+        if (permit == TRIAL) {
+            if (failure || slow) {
+                openedAt = endNanos;
+                state.set(OPEN);
+            } else {
+                window.reset();
+                state.set(CLOSED);
+            }
+            return;
+        }
+        window.record(endNanos, failure, slow);
+        if ((failure || slow) && state.get() == CLOSED && shouldOpen(endNanos)) {
+            openedAt = endNanos;
+            state.compareAndSet(CLOSED, OPEN);
+        }
+    }
+
+    private boolean shouldOpen(long nowNanos) {
+        final long[] totals = window.snapshot(nowNanos);
+        if (totals[0] < minimumCalls) {
+            return false;
+        }
+        return totals[1] * 100 >= totals[0] * failureRatePercent
+                || slowCallRatePercent > 0 && totals[2] * 100 >= totals[0] * slowCallRatePercent;
+    }
+}
@@ -0,0 +1,206 @@
+package com.xinchen.feign;
+
+import feign.Capability;
+import feign.Feign;
+import feign.InvocationHandlerFactory;
+import feign.Target;
+import feign.hystrix.FallbackFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 替代HystrixFeign的熔断+降级{@link Capability}，不需要线程池、Observable和Hystrix的滚动统计
+ *
+ * <pre>
+ * Feign.builder()
+ *      .addCapability(CircuitBreakerCapability.builder().fallbackFactory(fallbackFactory).build())
+ *      .target(Api.class, url);
+ * </pre>
+ *
+ * 每个方法一个{@link CircuitBreaker}，key与Hystrix的commandKey一样是{@link Feign#configKey}。
+ * 调用失败或熔断打开时按{@link FallbackFactory}的语义用异常创建降级实例并调用同名方法，没有配置降级时抛出原异常，
+ * 熔断打开时抛出{@link CircuitBreakerOpenException}
+ *
+ * 包装的是前面的InvocationHandlerFactory创建的handler，自定义的InvocationHandlerFactory和
+ * 先添加的Capability(如{@link RequestCacheCapability})都在熔断器里面执行
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 23:20
+ */
+public final class CircuitBreakerCapability implements Capability {
+    private final Builder config;
+    private final FallbackFactory<?> fallbackFactory;
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    private CircuitBreakerCapability(Builder builder) {
+        this.config = builder;
+        this.fallbackFactory = builder.fallbackFactory;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * configKey -> 熔断器，用于查看状态
+     */
+    public Map<String, CircuitBreaker> breakers() {
+        return Collections.unmodifiableMap(breakers);
+    }
+
+    @Override
+    public InvocationHandlerFactory enrich(InvocationHandlerFactory invocationHandlerFactory) {
+        return (target, dispatch) -> new CircuitBreakerInvocationHandler(
+                invocationHandlerFactory.create(target, dispatch), target, dispatch.keySet());
+    }
+
+    private final class CircuitBreakerInvocationHandler implements InvocationHandler {
+        private final InvocationHandler delegate;
+        private final Target<?> target;
+        private final Map<Method, CircuitBreaker> methodBreakers = new HashMap<>();
+
+        CircuitBreakerInvocationHandler(InvocationHandler delegate, Target<?> target, Iterable<Method> methods) {
+            this.delegate = delegate;
+            this.target = target;
+            for (Method method : methods) {
+                methodBreakers.put(method, breakers.computeIfAbsent(Feign.configKey(target.type(), method),
+                        key -> new CircuitBreaker(config)));
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("equals".equals(method.getName())) {
+                try {
+                    final Object other = args.length > 0 && args[0] != null ? Proxy.getInvocationHandler(args[0]) : null;
+                    return other instanceof CircuitBreakerInvocationHandler
+                            && target.equals(((CircuitBreakerInvocationHandler) other).target);
+                } catch (IllegalArgumentException e) {
+                    return false;
+                }
+            } else if ("hashCode".equals(method.getName())) {
+                return target.hashCode();
+            } else if ("toString".equals(method.getName())) {
+                return target.toString();
+            }
+
+            final CircuitBreaker breaker = methodBreakers.get(method);
+            final long start = System.nanoTime();
+            final int permit = breaker.tryAcquire(start);
+            if (permit == CircuitBreaker.DENIED) {
+                return fallback(method, args,
+                        new CircuitBreakerOpenException(Feign.configKey(target.type(), method)));
+            }
+            final Object result;
+            try {
+                result = delegate.invoke(proxy, method, args);
+            } catch (Throwable e) {
+                breaker.onResult(permit, start, System.nanoTime(), true);
+                return fallback(method, args, e);
+            }
+            breaker.onResult(permit, start, System.nanoTime(), false);
+            return result;
+        }
+
+        private Object fallback(Method method, Object[] args, Throwable cause) throws Throwable {
+            if (fallbackFactory == null) {
+                throw cause;
+            }
+            final Object fallback = fallbackFactory.create(cause);
+            if (!target.type().isInstance(fallback)) {
+                throw new IllegalStateException("Fallback " + fallback + " is not an instance of " + target.type());
+            }
+            try {
+                return method.invoke(fallback, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * 熔断打开时拒绝调用抛出的异常，不携带堆栈
+     */
+    public static class CircuitBreakerOpenException extends RuntimeException {
+        public CircuitBreakerOpenException(String configKey) {
+            super("Circuit breaker is open for " + configKey, null, false, false);
+        }
+    }
+
+    public static final class Builder {
+        FallbackFactory<?> fallbackFactory;
+        int buckets = 10;
+        long windowNanos = TimeUnit.SECONDS.toNanos(10);
+        int minimumCalls = 20;
+        int failureRatePercent = 50;
+        long slowCallNanos;
+        int slowCallRatePercent;
+        long openNanos = TimeUnit.SECONDS.toNanos(5);
+
+        /**
+         * 降级工厂，与HystrixFeign的target(type, url, fallbackFactory)相同
+         */
+        public Builder fallbackFactory(FallbackFactory<?> fallbackFactory) {
+            this.fallbackFactory = fallbackFactory;
+            return this;
+        }
+
+        /**
+         * 滚动窗口长度和bucket数量，默认10秒10个bucket，与Hystrix一致
+         */
+        public Builder window(long window, TimeUnit unit, int buckets) {
+            this.windowNanos = unit.toNanos(window);
+            this.buckets = buckets;
+            return this;
+        }
+
+        /**
+         * 窗口内至少有多少次调用才计算失败率，默认20
+         */
+        public Builder minimumCalls(int minimumCalls) {
+            this.minimumCalls = minimumCalls;
+            return this;
+        }
+
+        /**
+         * 失败率达到多少(百分比)时打开，默认50
+         */
+        public Builder failureRateThreshold(int percent) {
+            this.failureRatePercent = percent;
+            return this;
+        }
+
+        /**
+         * 耗时超过slowCall的调用算慢调用，慢调用率达到percent时打开，默认不启用
+         */
+        public Builder slowCallThreshold(long slowCall, TimeUnit unit, int percent) {
+            this.slowCallNanos = unit.toNanos(slowCall);
+            this.slowCallRatePercent = percent;
+            return this;
+        }
+
+        /**
+         * 打开后多久放行试探调用，默认5秒
+         */
+        public Builder openDuration(long duration, TimeUnit unit) {
+            this.openNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        public CircuitBreakerCapability build() {
+            if (buckets <= 0 || windowNanos < buckets) {
+                throw new IllegalArgumentException("window must be at least one nanosecond per bucket");
+            }
+            return new CircuitBreakerCapability(this);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.xinchen.feign;
+
+import feign.Feign;
+import feign.Logger;
+import feign.Retryer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 冷启动测试：每次测量都fork一个全新的JVM，记录从进程启动到第一次调用成功的时间和前N次调用的延迟
+ *
+ * <pre>
+ * java -cp target/benchmark com.xinchen.feign.ColdStart stacks=okhttp,apache,cacheable,hystrix forks=10 calls=20 cds=true
+ * </pre>
+ *
+ * 参数均为key=value：
+ * <ul>
+ *     <li>stacks：逗号分隔的客户端，okhttp/apache/cacheable({@link CacheableApacheHttpClient})/hystrix，
+ *     以及{@link LoadSweep}支持的其他client，默认okhttp,apache,cacheable,hystrix</li>
+ *     <li>forks：每个客户端启动几个JVM，默认10</li>
+ *     <li>calls：每个JVM里连续调用的次数，默认20</li>
+ *     <li>cds：是否额外测一组AppCDS，默认false。先用-XX:ArchiveClassesAtExit跑一遍所有客户端生成动态归档，
+ *     再用-XX:SharedArchiveFile启动，需要JDK 13+并且classpath只能是jar</li>
+ *     <li>jar：子进程的classpath，默认是当前类所在的jar(shade后的target/benchmark)</li>
+ *     <li>archive：CDS归档路径，默认jar同目录下的benchmark.jsa</li>
+ *     <li>jvmArgs：子进程额外的JVM参数，空格分隔，例如-XX:TieredStopAtLevel=1</li>
+ *     <li>latency/payload：{@link EmbeddedHttpbin}的延迟分布和body大小，默认none/1024</li>
+ * </ul>
+ *
+ * 输出的各列都是所有fork的中位数：jvm为进程启动到main的时间，build为构建客户端，
+ * first为构建完成到第一次调用成功，ttfs为进程启动到第一次调用成功(父进程计时)
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 07:40
+ */
+public final class ColdStart {
+    private static final String PREFIX = "coldstart ";
+
+    private ColdStart() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Map<String, String> options = options(args);
+        final String[] stacks = options.getOrDefault("stacks", "okhttp,apache,cacheable,hystrix").split(",");
+        final int forks = Integer.parseInt(options.getOrDefault("forks", "10"));
+        final int calls = Integer.parseInt(options.getOrDefault("calls", "20"));
+        final String classpath = options.getOrDefault("jar", defaultClasspath());
+        final List<String> jvmArgs = options.containsKey("jvmArgs")
+                ? Arrays.asList(options.get("jvmArgs").trim().split("\\s+"))
+                : new ArrayList<>();
+
+        final Map<String, List<String>> variants = new LinkedHashMap<>();
+        variants.put("default", jvmArgs);
+        Path archive = null;
+        if (Boolean.parseBoolean(options.getOrDefault("cds", "false"))) {
+            checkCds(classpath);
+            archive = Paths.get(options.getOrDefault("archive",
+                    new File(new File(classpath).getAbsoluteFile().getParentFile(), "benchmark.jsa").getPath()));
+            variants.put("appcds", with(jvmArgs, "-XX:SharedArchiveFile=" + archive));
+        }
+
+        final EmbeddedHttpbin server = new EmbeddedHttpbin(Integer.parseInt(options.getOrDefault("payload", "1024")), null, false)
+                .latency(options.getOrDefault("latency", "none"))
+                .start();
+        try {
+            if (archive != null) {
+                Files.deleteIfExists(archive);
+                // 训练运行覆盖所有客户端，一个归档给所有客户端用
+                final Sample training = fork(classpath, with(jvmArgs, "-XX:ArchiveClassesAtExit=" + archive),
+                        String.join(",", stacks), server.url(), calls);
+                System.out.println("CDS archive " + archive + " (" + Files.size(archive) / 1024
+                        + " KB) created by training run in " + ms(training.exitNanos) + " ms");
+            }
+            System.out.printf("%-10s %-8s %6s %8s %8s %8s %8s %8s %8s %8s%n",
+                    "stack", "variant", "forks", "jvm", "build", "first", "ttfs", "ttfs p90", "call#2", "call#" + calls);
+            for (String stack : stacks) {
+                for (Map.Entry<String, List<String>> variant : variants.entrySet()) {
+                    final List<Sample> samples = new ArrayList<>(forks);
+                    for (int i = 0; i < forks; i++) {
+                        samples.add(fork(classpath, variant.getValue(), stack, server.url(), calls));
+                    }
+                    print(stack, variant.getKey(), samples, calls);
+                }
+            }
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    /**
+     * 在子进程里运行，只输出带{@link #PREFIX}的行给父进程解析
+     */
+    public static final class Probe {
+        private Probe() {
+        }
+
+        public static void main(String[] args) {
+            final long start = System.nanoTime();
+            final Map<String, String> options = options(args);
+            final String url = options.get("url");
+            final int calls = Integer.parseInt(options.get("calls"));
+            for (String stack : options.get("stack").split(",")) {
+                final long buildStart = System.nanoTime();
+                final LoadSweep.LoadTestInterface api = target(stack, url);
+                final long built = System.nanoTime();
+
+                final long[] latencies = new long[calls];
+                int failures = 0;
+                long firstSuccess = 0;
+                for (int i = 0; i < calls; ) {
+                    final long callStart = System.nanoTime();
+                    try {
+                        api.query();
+                    } catch (RuntimeException e) {
+                        if (firstSuccess == 0 && ++failures < 100) {
+                            continue;
+                        }
+                        throw e;
+                    }
+                    final long end = System.nanoTime();
+                    if (firstSuccess == 0) {
+                        firstSuccess = end;
+                        System.out.println(PREFIX + "first " + (buildStart - start) + " " + (built - buildStart) + " " + (end - built));
+                        System.out.flush();
+                    }
+                    latencies[i++] = end - callStart;
+                }
+                final StringBuilder line = new StringBuilder(PREFIX).append("calls ").append(failures);
+                for (long latency : latencies) {
+                    line.append(' ').append(latency);
+                }
+                System.out.println(line);
+            }
+            System.out.flush();
+            // hystrix等会留下非daemon线程，CDS的动态归档也在exit时生成
+            System.exit(0);
+        }
+    }
+
+    static LoadSweep.LoadTestInterface target(String stack, String url) {
+        if ("cacheable".equals(stack)) {
+            return Feign.builder()
+                    .client(new CacheableApacheHttpClient())
+                    .logLevel(Logger.Level.NONE)
+                    .retryer(Retryer.NEVER_RETRY)
+                    .target(LoadSweep.LoadTestInterface.class, url);
+        }
+        return LoadSweep.target(stack, url, 10);
+    }
+
+    private static Sample fork(String classpath, List<String> jvmArgs, String stack, String url, int calls)
+            throws IOException, InterruptedException {
+        final List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(classpath);
+        command.add(Probe.class.getName());
+        command.add("stack=" + stack);
+        command.add("url=" + url);
+        command.add("calls=" + calls);
+
+        final Sample sample = new Sample();
+        final long start = System.nanoTime();
+        final Process process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.startsWith(PREFIX)) {
+                    continue;
+                }
+                final String[] fields = line.substring(PREFIX.length()).split(" ");
+                if ("first".equals(fields[0]) && sample.ttfsNanos == 0) {
+                    sample.ttfsNanos = System.nanoTime() - start;
+                    sample.mainNanos = Long.parseLong(fields[1]);
+                    sample.buildNanos = Long.parseLong(fields[2]);
+                    sample.firstNanos = Long.parseLong(fields[3]);
+                } else if ("calls".equals(fields[0]) && sample.calls == null) {
+                    sample.failures = Integer.parseInt(fields[1]);
+                    sample.calls = new long[fields.length - 2];
+                    for (int i = 0; i < sample.calls.length; i++) {
+                        sample.calls[i] = Long.parseLong(fields[i + 2]);
+                    }
+                }
+            }
+        }
+        if (!process.waitFor(2, TimeUnit.MINUTES)) {
+            process.destroyForcibly();
+            throw new IllegalStateException("Probe did not exit: " + command);
+        }
+        sample.exitNanos = System.nanoTime() - start;
+        if (process.exitValue() != 0 || sample.calls == null) {
+            throw new IllegalStateException("Probe failed with exit code " + process.exitValue() + ": " + command);
+        }
+        return sample;
+    }
+
+    private static void print(String stack, String variant, List<Sample> samples, int calls) {
+        final int n = samples.size();
+        final long[] jvm = new long[n];
+        final long[] build = new long[n];
+        final long[] first = new long[n];
+        final long[] ttfs = new long[n];
+        final long[] second = new long[n];
+        final long[] last = new long[n];
+        int failures = 0;
+        for (int i = 0; i < n; i++) {
+            final Sample sample = samples.get(i);
+            // 父进程看到的总时间减去子进程main之后的部分，剩下的是JVM启动和加载main类
+            jvm[i] = sample.ttfsNanos - sample.mainNanos - sample.buildNanos - sample.firstNanos;
+            build[i] = sample.buildNanos;
+            first[i] = sample.firstNanos;
+            ttfs[i] = sample.ttfsNanos;
+            second[i] = sample.calls[Math.min(1, calls - 1)];
+            last[i] = sample.calls[calls - 1];
+            failures += sample.failures;
+        }
+        System.out.printf("%-10s %-8s %6d %8s %8s %8s %8s %8s %8s %8s%s%n",
+                stack, variant, n, ms(percentile(jvm, 50)), ms(percentile(build, 50)), ms(percentile(first, 50)),
+                ms(percentile(ttfs, 50)), ms(percentile(ttfs, 90)), ms(percentile(second, 50)), ms(percentile(last, 50)),
+                failures == 0 ? "" : "  (" + failures + " failed calls before first success)");
+    }
+
+    private static void checkCds(String classpath) {
+        final String version = System.getProperty("java.specification.version");
+        if (version.startsWith("1.") || Integer.parseInt(version) < 13) {
+            throw new IllegalStateException("Dynamic AppCDS archives need JDK 13+, running " + version);
+        }
+        for (String entry : classpath.split(File.pathSeparator)) {
+            if (!new File(entry).isFile()) {
+                throw new IllegalStateException("AppCDS only supports jar files on the classpath, got " + entry
+                        + "; run from the shaded target/benchmark or pass jar=");
+            }
+        }
+    }
+
+    private static String defaultClasspath() {
+        try {
+            final File location = new File(ColdStart.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            return location.isFile() ? location.getPath() : System.getProperty("java.class.path");
+        } catch (URISyntaxException e) {
+            return System.getProperty("java.class.path");
+        }
+    }
+
+    private static List<String> with(List<String> args, String extra) {
+        final List<String> result = new ArrayList<>(args);
+        result.add(extra);
+        return result;
+    }
+
+    static long percentile(long[] values, double percentile) {
+        final long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        final int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static String ms(long nanos) {
+        return String.format("%.1f", nanos / 1e6);
+    }
+
+    private static Map<String, String> options(String[] args) {
+        final Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            final int eq = arg.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected key=value: " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+
+    private static final class Sample {
+        long mainNanos;
+        long buildNanos;
+        long firstNanos;
+        long ttfsNanos;
+        long exitNanos;
+        int failures;
+        long[] calls;
+    }
+}
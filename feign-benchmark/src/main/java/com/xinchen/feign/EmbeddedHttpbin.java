@@ -0,0 +1,505 @@
+package com.xinchen.feign;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpStatusClass;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import org.apache.http.client.utils.DateUtils;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static feign.Util.UTF_8;
+
+/**
+ * 本地启动的httpbin替身，所有路径都返回同一份json，避免benchmark依赖外网
+ *
+ * 开启etag后会返回ETag/Last-Modified，并对If-None-Match/If-Modified-Since返回304，用于衡量条件请求节省的带宽
+ *
+ * {@link #latency}可以注入固定、均匀、指数分布的延迟和按比例出现的长尾延迟，{@link #errors}按比例返回错误状态码。
+ * 延迟由event loop定时写出，不阻塞IO线程。随机数由seed和请求序号算出，第n个请求的延迟和是否出错在每次运行中都相同
+ *
+ * 除了默认返回payload的所有路径，还支持httpbin的/status/{code}、/bytes/{n}和/delay/{seconds}，
+ * 参数不是合法数字或超出范围时返回400
+ *
+ * {@link #http2()}切换成HTTP/2 prior knowledge(h2c，不经过Upgrade)，每个stream转换成HTTP/1.1对象后复用同一个handler
+ *
+ * 直接基于netty-codec-http，响应一次性写出并保持长连接
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 17:05
+ */
+public class EmbeddedHttpbin {
+    /**
+     * /bytes/{n}最多返回的字节数，与httpbin相同
+     */
+    private static final int MAX_BYTES = 100 * 1024;
+    /**
+     * /delay/{seconds}最长的延迟秒数，与httpbin相同
+     */
+    private static final double MAX_DELAY_SECONDS = 10;
+
+    private final byte[] payload;
+    private final String cacheControl;
+    private final boolean etag;
+    private final String etagValue;
+    private final String lastModified;
+
+    private boolean http2;
+    private Latency latency = Latency.NONE;
+    private double errorRate;
+    private int errorStatus = 503;
+    private long seed = 42;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder connections = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder bodyBytes = new LongAdder();
+
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+    private Channel serverChannel;
+
+    /**
+     * @param payloadSize 响应body的大致字节数
+     * @param cacheControl 响应的Cache-Control，null表示不返回
+     * @param etag 是否返回校验器并支持304
+     */
+    public EmbeddedHttpbin(int payloadSize, String cacheControl, boolean etag) {
+        this.payload = payload(payloadSize);
+        this.cacheControl = cacheControl;
+        this.etag = etag;
+        this.etagValue = "\"" + Integer.toHexString(Arrays.hashCode(payload)) + "\"";
+        this.lastModified = DateUtils.formatDate(new Date());
+    }
+
+    /**
+     * 每个响应延迟latency，其中outlierRate比例的响应改为延迟outlierLatency，需要在{@link #start()}之前调用
+     */
+    public EmbeddedHttpbin latency(long latency, double outlierRate, long outlierLatency, TimeUnit unit) {
+        return latency(Latency.fixed(latency, unit).withOutliers(outlierRate, outlierLatency, unit));
+    }
+
+    /**
+     * 响应延迟的分布，需要在{@link #start()}之前调用
+     */
+    public EmbeddedHttpbin latency(Latency latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * 按{@link Latency#parse(String)}的格式指定延迟分布，便于作为JMH参数
+     */
+    public EmbeddedHttpbin latency(String spec) {
+        return latency(Latency.parse(spec));
+    }
+
+    /**
+     * rate比例的请求返回status(不带payload)，需要在{@link #start()}之前调用
+     */
+    public EmbeddedHttpbin errors(double rate, int status) {
+        if (rate < 0 || rate > 1 || status < 400) {
+            throw new IllegalArgumentException("rate must be in [0, 1] and status >= 400");
+        }
+        this.errorRate = rate;
+        this.errorStatus = status;
+        return this;
+    }
+
+    /**
+     * 延迟和错误的随机种子，默认42
+     */
+    public EmbeddedHttpbin seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * 只接受HTTP/2 prior knowledge连接，需要在{@link #start()}之前调用
+     */
+    public EmbeddedHttpbin http2() {
+        this.http2 = true;
+        return this;
+    }
+
+    long delayNanos(long sequence) {
+        return latency.nanos(random(sequence, 1), random(sequence, 2));
+    }
+
+    boolean isError(long sequence) {
+        return errorRate > 0 && random(sequence, 3) < errorRate;
+    }
+
+    /**
+     * 第sequence个请求的第stream个随机数，[0, 1)均匀分布，与线程和请求到达顺序无关
+     */
+    private double random(long sequence, int stream) {
+        // SplitMix64
+        long z = seed + sequence * 0x9E3779B97F4A7C15L + stream * 0xD1B54A32D192ED03L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (z >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * 在随机端口上启动
+     */
+    public EmbeddedHttpbin start() {
+        bossGroup = new NioEventLoopGroup(1);
+        workerGroup = new NioEventLoopGroup();
+        final ChannelHandler handler = new Handler();
+        serverChannel = new ServerBootstrap()
+                .group(bossGroup, workerGroup)
+                .channel(NioServerSocketChannel.class)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        connections.increment();
+                        if (http2) {
+                            ch.pipeline()
+                                    .addLast(Http2FrameCodecBuilder.forServer().build())
+                                    .addLast(new Http2MultiplexHandler(new ChannelInitializer<Http2StreamChannel>() {
+                                        @Override
+                                        protected void initChannel(Http2StreamChannel stream) {
+                                            stream.pipeline()
+                                                    .addLast(new Http2StreamFrameToHttpObjectCodec(true))
+                                                    .addLast(new HttpObjectAggregator(1 << 20))
+                                                    .addLast(handler);
+                                        }
+                                    }));
+                        } else {
+                            ch.pipeline()
+                                    .addLast(new HttpServerCodec())
+                                    .addLast(new HttpObjectAggregator(1 << 20))
+                                    .addLast(handler);
+                        }
+                    }
+                })
+                .bind(new InetSocketAddress(0))
+                .syncUninterruptibly()
+                .channel();
+        return this;
+    }
+
+    public int port() {
+        return ((InetSocketAddress) serverChannel.localAddress()).getPort();
+    }
+
+    public String url() {
+        return "http://localhost:" + port();
+    }
+
+    public void shutdown() {
+        if (serverChannel != null) {
+            serverChannel.close().syncUninterruptibly();
+            bossGroup.shutdownGracefully();
+            workerGroup.shutdownGracefully();
+        }
+    }
+
+    /**
+     * @param delaySeconds /delay/{seconds}解析出的秒数，其他路径或不合法时为NaN
+     */
+    FullHttpResponse respond(FullHttpRequest request, String path, double delaySeconds, long sequence) {
+        requests.increment();
+        final FullHttpResponse response;
+        if (isError(sequence)) {
+            errors.increment();
+            response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.valueOf(errorStatus));
+        } else if (path.startsWith("/status/")) {
+            final int status = parseInt(path.substring("/status/".length()), 100, 599);
+            response = status < 0 ? badRequest()
+                    : new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.valueOf(status));
+        } else if (path.startsWith("/bytes/")) {
+            final int size = parseInt(path.substring("/bytes/".length()), 0, MAX_BYTES);
+            if (size < 0) {
+                response = badRequest();
+            } else {
+                final byte[] bytes = payload(size);
+                bodyBytes.add(bytes.length);
+                response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK,
+                        Unpooled.wrappedBuffer(bytes));
+                response.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/json");
+            }
+        } else if (path.startsWith("/delay/") && Double.isNaN(delaySeconds)) {
+            response = badRequest();
+        } else if (etag && isNotModified(request.headers())) {
+            notModified.increment();
+            response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NOT_MODIFIED);
+        } else {
+            bodyBytes.add(payload.length);
+            response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK,
+                    Unpooled.wrappedBuffer(payload));
+            response.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/json");
+        }
+
+        final HttpHeaders headers = response.headers();
+        headers.set(HttpHeaderNames.DATE, DateUtils.formatDate(new Date()));
+        if (cacheControl != null) {
+            headers.set(HttpHeaderNames.CACHE_CONTROL, cacheControl);
+        }
+        // 校验器只描述成功的表示，错误响应带上它们会被当成可以重新验证的entry；304必须带上与200相同的校验器
+        if (etag && (response.status().codeClass() == HttpStatusClass.SUCCESS
+                || response.status().equals(HttpResponseStatus.NOT_MODIFIED))) {
+            headers.set(HttpHeaderNames.ETAG, etagValue);
+            headers.set(HttpHeaderNames.LAST_MODIFIED, lastModified);
+        }
+        HttpUtil.setContentLength(response, response.content().readableBytes());
+        return response;
+    }
+
+    private static FullHttpResponse badRequest() {
+        return new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.BAD_REQUEST);
+    }
+
+    /**
+     * 解析路径里的整数参数，不是数字或不在[min, max]内时返回-1
+     */
+    private static int parseInt(String value, int min, int max) {
+        try {
+            final int parsed = Integer.parseInt(value);
+            return parsed < min || parsed > max ? -1 : parsed;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * /delay/{seconds}的秒数，不合法时返回NaN
+     */
+    private static double delaySeconds(String path) {
+        try {
+            final double seconds = Double.parseDouble(path.substring("/delay/".length()));
+            return seconds >= 0 && seconds <= MAX_DELAY_SECONDS ? seconds : Double.NaN;
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private boolean isNotModified(HttpHeaders requestHeaders) {
+        final String ifNoneMatch = requestHeaders.get(HttpHeaderNames.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return ifNoneMatch.contains(etagValue) || "*".equals(ifNoneMatch.trim());
+        }
+        return lastModified.equals(requestHeaders.get(HttpHeaderNames.IF_MODIFIED_SINCE));
+    }
+
+    /**
+     * 累计接受的TCP连接数
+     */
+    public long connections() {
+        return connections.sum();
+    }
+
+    public long requests() {
+        return requests.sum();
+    }
+
+    public long notModified() {
+        return notModified.sum();
+    }
+
+    /**
+     * 由{@link #errors}注入的错误响应数
+     */
+    public long errors() {
+        return errors.sum();
+    }
+
+    /**
+     * 已发送的响应body字节数(不含header)
+     */
+    public long bodyBytes() {
+        return bodyBytes.sum();
+    }
+
+    public String stats() {
+        return "connections=" + connections() + ", requests=" + requests() + ", notModified=" + notModified()
+                + ", errors=" + errors() + ", bodyBytes=" + bodyBytes();
+    }
+
+    private static byte[] payload(int size) {
+        final String prefix = "{\"args\":{},\"headers\":{},\"origin\":\"127.0.0.1\",\"data\":\"";
+        final String suffix = "\"}";
+        final StringBuilder json = new StringBuilder(Math.max(size, prefix.length() + suffix.length()));
+        json.append(prefix);
+        for (int i = prefix.length() + suffix.length(); i < size; i++) {
+            json.append((char) ('a' + i % 26));
+        }
+        return json.append(suffix).toString().getBytes(UTF_8);
+    }
+
+    /**
+     * 延迟分布：由两个[0, 1)均匀分布的随机数算出一次响应的延迟
+     */
+    @FunctionalInterface
+    public interface Latency {
+        Latency NONE = (u, v) -> 0;
+
+        long nanos(double u, double v);
+
+        static Latency fixed(long latency, TimeUnit unit) {
+            final long nanos = unit.toNanos(latency);
+            return (u, v) -> nanos;
+        }
+
+        static Latency uniform(long min, long max, TimeUnit unit) {
+            final long minNanos = unit.toNanos(min);
+            final long rangeNanos = unit.toNanos(max) - minNanos;
+            if (rangeNanos < 0) {
+                throw new IllegalArgumentException("max must be >= min");
+            }
+            return (u, v) -> minNanos + (long) (u * rangeNanos);
+        }
+
+        static Latency exponential(long mean, TimeUnit unit) {
+            final long meanNanos = unit.toNanos(mean);
+            return (u, v) -> (long) (-Math.log(1 - u) * meanNanos);
+        }
+
+        /**
+         * rate比例的响应改为延迟outlier，是否为长尾由第二个随机数决定，与基础分布相互独立
+         */
+        default Latency withOutliers(double rate, long outlier, TimeUnit unit) {
+            if (rate <= 0) {
+                return this;
+            }
+            final long outlierNanos = unit.toNanos(outlier);
+            return (u, v) -> v < rate ? outlierNanos : nanos(u, v);
+        }
+
+        /**
+         * 解析延迟分布，时长单位为ns/us/ms/s：
+         *
+         * <ul>
+         *     <li>none 或 0</li>
+         *     <li>fixed:5ms</li>
+         *     <li>uniform:1ms-10ms</li>
+         *     <li>exp:5ms，均值为5ms的指数分布</li>
+         *     <li>以上任意一种加上,0.01@50ms，1%的响应延迟50ms</li>
+         * </ul>
+         */
+        static Latency parse(String spec) {
+            final String trimmed = spec.trim().toLowerCase(Locale.ROOT);
+            final int comma = trimmed.indexOf(',');
+            if (comma >= 0) {
+                final String outlier = trimmed.substring(comma + 1);
+                final int at = outlier.indexOf('@');
+                if (at < 0) {
+                    throw new IllegalArgumentException("Outlier must be rate@duration: " + spec);
+                }
+                return parse(trimmed.substring(0, comma))
+                        .withOutliers(Double.parseDouble(outlier.substring(0, at)),
+                                parseNanos(outlier.substring(at + 1)), TimeUnit.NANOSECONDS);
+            }
+            if (trimmed.isEmpty() || "none".equals(trimmed) || "0".equals(trimmed)) {
+                return NONE;
+            }
+            final int colon = trimmed.indexOf(':');
+            final String kind = colon < 0 ? "fixed" : trimmed.substring(0, colon);
+            final String value = trimmed.substring(colon + 1);
+            switch (kind) {
+                case "fixed":
+                    return fixed(parseNanos(value), TimeUnit.NANOSECONDS);
+                case "uniform":
+                    final int dash = value.indexOf('-');
+                    if (dash < 0) {
+                        throw new IllegalArgumentException("Uniform latency must be min-max: " + spec);
+                    }
+                    return uniform(parseNanos(value.substring(0, dash)), parseNanos(value.substring(dash + 1)),
+                            TimeUnit.NANOSECONDS);
+                case "exp":
+                    return exponential(parseNanos(value), TimeUnit.NANOSECONDS);
+                default:
+                    throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+            }
+        }
+
+        static long parseNanos(String duration) {
+            final String value = duration.trim();
+            int unitStart = value.length();
+            while (unitStart > 0 && Character.isLetter(value.charAt(unitStart - 1))) {
+                unitStart--;
+            }
+            final double amount = Double.parseDouble(value.substring(0, unitStart));
+            switch (value.substring(unitStart)) {
+                case "ns":
+                    return (long) amount;
+                case "us":
+                    return (long) (amount * 1_000);
+                case "":
+                case "ms":
+                    return (long) (amount * 1_000_000);
+                case "s":
+                    return (long) (amount * 1_000_000_000);
+                default:
+                    throw new IllegalArgumentException("Unknown duration unit: " + duration);
+            }
+        }
+    }
+
+    @ChannelHandler.Sharable
+    private class Handler extends SimpleChannelInboundHandler<FullHttpRequest> {
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+            final long n = sequence.getAndIncrement();
+            final String path = new QueryStringDecoder(request.uri()).path();
+            final double delaySeconds = path.startsWith("/delay/") ? delaySeconds(path) : Double.NaN;
+            final FullHttpResponse response = respond(request, path, delaySeconds, n);
+            final boolean keepAlive = HttpUtil.isKeepAlive(request);
+            HttpUtil.setKeepAlive(response, keepAlive);
+            final long delay = Double.isNaN(delaySeconds)
+                    ? delayNanos(n)
+                    : TimeUnit.MILLISECONDS.toNanos((long) (delaySeconds * 1000));
+            if (delay > 0) {
+                ctx.executor().schedule(() -> write(ctx, response, keepAlive), delay, TimeUnit.NANOSECONDS);
+            } else {
+                write(ctx, response, keepAlive);
+            }
+        }
+
+        private void write(ChannelHandlerContext ctx, FullHttpResponse response, boolean keepAlive) {
+            final ChannelFuture future = ctx.writeAndFlush(response);
+            if (!keepAlive) {
+                future.addListener(ChannelFutureListener.CLOSE);
+            }
+        }
+    }
+}
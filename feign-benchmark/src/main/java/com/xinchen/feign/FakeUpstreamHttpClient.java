@@ -0,0 +1,177 @@
+package com.xinchen.feign;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+import static feign.Util.UTF_8;
+
+/**
+ * 不走网络的假上游，给{@link CacheableApacheHttpClient}相关的benchmark使用
+ *
+ * 固定返回200和同一份body(带Date头)，可以模拟上游耗时，并统计真正打到上游的请求数。
+ * 请求body会像发送到socket一样被完整写出(写到丢弃的输出流)
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 15:10
+ */
+@SuppressWarnings("deprecation")
+public class FakeUpstreamHttpClient extends CloseableHttpClient {
+    private final byte[] body;
+    private final long latencyNanos;
+    private byte[] gzipBody;
+    private String etag;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder requestBytes = new LongAdder();
+    private final ThreadLocal<long[]> requestsOnThread = ThreadLocal.withInitial(() -> new long[1]);
+
+    public FakeUpstreamHttpClient() {
+        this("{\"args\":{},\"url\":\"http://localhost/get\"}".getBytes(UTF_8), 0, TimeUnit.NANOSECONDS);
+    }
+
+    public FakeUpstreamHttpClient(byte[] body, long latency, TimeUnit unit) {
+        this.body = body;
+        this.latencyNanos = unit.toNanos(latency);
+    }
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context)
+            throws IOException {
+        requests.increment();
+        requestsOnThread.get()[0]++;
+        if (request instanceof HttpEntityEnclosingRequest) {
+            final HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            if (entity != null) {
+                entity.writeTo(new OutputStream() {
+                    @Override
+                    public void write(int b) {
+                        requestBytes.increment();
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) {
+                        requestBytes.add(len);
+                    }
+                });
+            }
+        }
+        if (latencyNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(latencyNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("fake upstream interrupted");
+            }
+        }
+        FakeResponse response = new FakeResponse();
+        response.setHeader("Date", DateUtils.formatDate(new Date()));
+        response.setHeader("Content-Type", "application/json");
+        if (etag != null) {
+            response.setHeader("ETag", etag);
+        }
+        final Header acceptEncoding = request.getFirstHeader("Accept-Encoding");
+        if (gzipBody != null && acceptEncoding != null && acceptEncoding.getValue().contains("gzip")) {
+            response.setHeader("Content-Encoding", "gzip");
+            response.setEntity(new ByteArrayEntity(gzipBody));
+        } else {
+            response.setEntity(new ByteArrayEntity(body));
+        }
+        return response;
+    }
+
+    /**
+     * 请求带Accept-Encoding: gzip时返回gzip压缩的body
+     */
+    public FakeUpstreamHttpClient gzip() {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.gzipBody = compressed.toByteArray();
+        return this;
+    }
+
+    /**
+     * 响应带上固定的ETag(body不变)，条件请求仍然返回完整的200
+     */
+    public FakeUpstreamHttpClient etag() {
+        this.etag = "\"" + Integer.toHexString(Arrays.hashCode(body)) + "\"";
+        return this;
+    }
+
+    /**
+     * 所有线程累计打到上游的请求数
+     */
+    public long requests() {
+        return requests.sum();
+    }
+
+    /**
+     * 所有请求body累计的字节数
+     */
+    public long requestBytes() {
+        return requestBytes.sum();
+    }
+
+    /**
+     * 当前线程打到上游的请求数，{@code @AuxCounters}按线程统计时使用
+     */
+    public long requestsOnCurrentThread() {
+        return requestsOnThread.get()[0];
+    }
+
+    @Override
+    public void close() {
+        // nothing to release
+    }
+
+    /**
+     * HttpClient接口里已废弃的方法，用全限定名避免import废弃类型产生警告
+     */
+    @Override
+    @Deprecated
+    public org.apache.http.params.HttpParams getParams() {
+        throw new UnsupportedOperationException("FakeUpstreamHttpClient has no HttpParams");
+    }
+
+    @Override
+    @Deprecated
+    public org.apache.http.conn.ClientConnectionManager getConnectionManager() {
+        throw new UnsupportedOperationException("FakeUpstreamHttpClient has no connection manager");
+    }
+
+    private static class FakeResponse extends BasicHttpResponse implements CloseableHttpResponse {
+        FakeResponse() {
+            super(HttpVersion.HTTP_1_1, 200, "OK");
+        }
+
+        @Override
+        public void close() {
+            // nothing to release
+        }
+    }
+}
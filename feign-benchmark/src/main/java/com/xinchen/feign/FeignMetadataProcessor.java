@@ -0,0 +1,304 @@
+package com.xinchen.feign;
+
+import feign.Body;
+import feign.CollectionFormat;
+import feign.Headers;
+import feign.Param;
+import feign.Request;
+import feign.RequestLine;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 编译期读取接口上的@RequestLine/@Headers/@Body/@Param，为每个接口生成{@code <接口binary name>$$FeignMetadata}，
+ * 运行时由{@link GeneratedContract}加载，不再走{@link feign.Contract.Default}的反射解析
+ *
+ * 只处理Contract.Default能表达、并且生成结果与反射解析完全一致的接口：
+ * 泛型接口、有父接口、泛型方法、用了其他feign注解、@Param没写名字等情况不生成，运行时回退到反射解析，
+ * 注解本身写错(RequestLine格式不对、Headers缺少冒号)的也不生成，让反射解析在运行时报出原来的错误
+ *
+ * 这个类只能依赖JDK和feign-core，它在其他源文件之前单独编译
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 07:10
+ */
+@SupportedAnnotationTypes("feign.RequestLine")
+public class FeignMetadataProcessor extends AbstractProcessor {
+    private static final String SUFFIX = "$$FeignMetadata";
+    private static final String BUILDER = "com.xinchen.feign.GeneratedMetadata";
+    private static final Pattern REQUEST_LINE_PATTERN = Pattern.compile("^([A-Z]+)[ ]*(.*)$");
+    private static final Set<String> HTTP_METHODS = Arrays.stream(Request.HttpMethod.values())
+            .map(Enum::name)
+            .collect(Collectors.toSet());
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        final Set<TypeElement> interfaces = new LinkedHashSet<>();
+        for (Element method : roundEnv.getElementsAnnotatedWith(RequestLine.class)) {
+            final Element owner = method.getEnclosingElement();
+            if (owner.getKind() == ElementKind.INTERFACE) {
+                interfaces.add((TypeElement) owner);
+            }
+        }
+        for (TypeElement type : interfaces) {
+            try {
+                final String source = generate(type);
+                write(type, source);
+            } catch (Unsupported e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                        "Feign metadata not generated, falling back to reflection: " + e.getMessage(), e.element);
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Cannot write Feign metadata: " + e, type);
+            }
+        }
+        return false;
+    }
+
+    private String generate(TypeElement type) throws Unsupported {
+        checkType(type);
+        final String packageName = packageOf(type).getQualifiedName().toString();
+        final String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        final String className = binaryName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1) + SUFFIX;
+
+        final Headers classHeaders = type.getAnnotation(Headers.class);
+        if (classHeaders != null) {
+            checkHeaders(classHeaders.value(), type);
+        }
+
+        final StringBuilder methods = new StringBuilder();
+        int count = 0;
+        for (Element member : type.getEnclosedElements()) {
+            if (member.getKind() != ElementKind.METHOD
+                    || member.getModifiers().contains(Modifier.STATIC)
+                    || member.getModifiers().contains(Modifier.DEFAULT)) {
+                continue;
+            }
+            methods.append(method(type, (ExecutableElement) member, classHeaders));
+            count++;
+        }
+
+        final StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("/**\n * Generated by ").append(getClass().getName()).append(" from ")
+                .append(type.getQualifiedName()).append(", do not edit\n */\n")
+                .append("public final class ").append(className).append(" implements ").append(BUILDER).append(".Factory {\n")
+                .append("    @Override\n")
+                .append("    public java.util.List<feign.MethodMetadata> create() {\n")
+                .append("        final java.util.List<feign.MethodMetadata> result = new java.util.ArrayList<>(").append(count).append(");\n")
+                .append(methods)
+                .append("        return result;\n")
+                .append("    }\n")
+                .append("}\n");
+        return source.toString();
+    }
+
+    private void checkType(TypeElement type) throws Unsupported {
+        if (!type.getTypeParameters().isEmpty()) {
+            throw new Unsupported("generic interface", type);
+        }
+        if (!type.getInterfaces().isEmpty()) {
+            throw new Unsupported("interface extends another interface", type);
+        }
+        for (Element element = type; element.getKind() != ElementKind.PACKAGE; element = element.getEnclosingElement()) {
+            if (element.getModifiers().contains(Modifier.PRIVATE)) {
+                throw new Unsupported("private interface", type);
+            }
+        }
+        checkFeignAnnotations(type, Headers.class);
+    }
+
+    private String method(TypeElement type, ExecutableElement method, Headers classHeaders) throws Unsupported {
+        if (!method.getTypeParameters().isEmpty()) {
+            throw new Unsupported("generic method", method);
+        }
+        final RequestLine requestLine = method.getAnnotation(RequestLine.class);
+        if (requestLine == null) {
+            throw new Unsupported("method without @RequestLine", method);
+        }
+        checkFeignAnnotations(method, RequestLine.class, Headers.class, Body.class);
+
+        final List<? extends VariableElement> parameters = method.getParameters();
+        final StringBuilder configKey = new StringBuilder(type.getSimpleName()).append('#').append(method.getSimpleName()).append('(');
+        final StringBuilder call = new StringBuilder("        result.add(").append(BUILDER).append(".method(")
+                .append(type.getQualifiedName()).append(".class, ");
+        final StringBuilder parameterTypes = new StringBuilder();
+        for (int i = 0; i < parameters.size(); i++) {
+            final TypeMirror erasure = processingEnv.getTypeUtils().erasure(parameters.get(i).asType());
+            configKey.append(i == 0 ? "" : ",").append(simpleName(erasure));
+            parameterTypes.append(", ").append(erasure).append(".class");
+        }
+        configKey.append(')');
+        call.append(literal(configKey.toString())).append(", ").append(literal(method.getSimpleName().toString()))
+                .append(parameterTypes).append(")\n");
+
+        // 和Contract.Default一致: 先接口上的注解，再按声明顺序处理方法上的注解，最后逐个参数
+        if (classHeaders != null) {
+            call.append("                .classHeaders(").append(literals(classHeaders.value())).append(")\n");
+        }
+        for (AnnotationMirror annotation : method.getAnnotationMirrors()) {
+            final String name = annotation.getAnnotationType().toString();
+            if (name.equals(RequestLine.class.getCanonicalName())) {
+                call.append(requestLine(requestLine, method));
+            } else if (name.equals(Body.class.getCanonicalName())) {
+                final String body = method.getAnnotation(Body.class).value();
+                if (body.isEmpty()) {
+                    throw new Unsupported("empty @Body", method);
+                }
+                call.append("                .body(").append(literal(body)).append(")\n");
+            } else if (name.equals(Headers.class.getCanonicalName())) {
+                final String[] headers = method.getAnnotation(Headers.class).value();
+                checkHeaders(headers, method);
+                call.append("                .headers(").append(literals(headers)).append(")\n");
+            }
+        }
+        for (int i = 0; i < parameters.size(); i++) {
+            call.append(parameter(parameters.get(i), i));
+        }
+        return call.append("                .build());\n").toString();
+    }
+
+    private String requestLine(RequestLine requestLine, ExecutableElement method) throws Unsupported {
+        final String value = requestLine.value();
+        if (value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            throw new Unsupported("multi-line @RequestLine", method);
+        }
+        final Matcher matcher = REQUEST_LINE_PATTERN.matcher(value);
+        if (!matcher.find() || !HTTP_METHODS.contains(matcher.group(1))) {
+            throw new Unsupported("@RequestLine does not start with an HTTP verb", method);
+        }
+        final CollectionFormat collectionFormat = requestLine.collectionFormat();
+        return "                .requestLine(feign.Request.HttpMethod." + matcher.group(1) + ", " + literal(matcher.group(2))
+                + ", " + requestLine.decodeSlash() + ", feign.CollectionFormat." + collectionFormat.name() + ")\n";
+    }
+
+    private String parameter(VariableElement parameter, int index) throws Unsupported {
+        checkFeignAnnotations(parameter, Param.class);
+        final Param param = parameter.getAnnotation(Param.class);
+        if (param != null) {
+            if (param.value().isEmpty()) {
+                // 名字取决于编译时有没有-parameters，留给反射解析
+                throw new Unsupported("@Param without value", parameter);
+            }
+            final String expander = expander(param);
+            return "                .param(" + index + ", " + literal(param.value()) + ", "
+                    + (expander == null ? "null" : expander + ".class") + ")\n";
+        }
+        return "                .parameter(" + index + ")\n";
+    }
+
+    private String expander(Param param) {
+        String expander;
+        try {
+            expander = param.expander().getCanonicalName();
+        } catch (MirroredTypeException e) {
+            expander = processingEnv.getTypeUtils().erasure(e.getTypeMirror()).toString();
+        }
+        return expander.equals(Param.ToStringExpander.class.getCanonicalName()) ? null : expander;
+    }
+
+    private void checkHeaders(String[] headers, Element element) throws Unsupported {
+        if (headers.length == 0) {
+            throw new Unsupported("empty @Headers", element);
+        }
+        for (String header : headers) {
+            if (header.indexOf(':') < 0) {
+                throw new Unsupported("header without ':' " + header, element);
+            }
+        }
+    }
+
+    /**
+     * Contract.Default不认识的feign注解可能被其他Contract解释，这种接口不生成
+     */
+    private void checkFeignAnnotations(Element element, Class<?>... supported) throws Unsupported {
+        outer:
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            final TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+            if (!packageOf(annotationType).getQualifiedName().contentEquals("feign")) {
+                continue;
+            }
+            for (Class<?> type : supported) {
+                if (annotationType.getQualifiedName().contentEquals(type.getCanonicalName())) {
+                    continue outer;
+                }
+            }
+            throw new Unsupported("unsupported annotation @" + annotationType.getSimpleName(), element);
+        }
+    }
+
+    /**
+     * 与Class.getSimpleName()一致，用于拼configKey
+     */
+    private static String simpleName(TypeMirror type) {
+        if (type.getKind() == TypeKind.ARRAY) {
+            return simpleName(((ArrayType) type).getComponentType()) + "[]";
+        }
+        if (type.getKind() == TypeKind.DECLARED) {
+            return ((DeclaredType) type).asElement().getSimpleName().toString();
+        }
+        return type.toString();
+    }
+
+    private PackageElement packageOf(Element element) {
+        return processingEnv.getElementUtils().getPackageOf(element);
+    }
+
+    private String literal(String value) {
+        return processingEnv.getElementUtils().getConstantExpression(value);
+    }
+
+    private String literals(String[] values) {
+        return Arrays.stream(values).map(this::literal).collect(Collectors.joining(", "));
+    }
+
+    private void write(TypeElement type, String source) throws IOException {
+        final String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        try (Writer writer = processingEnv.getFiler().createSourceFile(binaryName + SUFFIX, type).openWriter()) {
+            writer.write(source);
+        }
+    }
+
+    private static final class Unsupported extends Exception {
+        private final transient Element element;
+
+        Unsupported(String reason, Element element) {
+            super(reason);
+            this.element = element;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.xinchen.feign;
+
+import feign.Contract;
+import feign.MethodMetadata;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 优先使用{@link FeignMetadataProcessor}在编译期生成的MethodMetadata，省掉启动时的注解反射和解析
+ *
+ * 每个接口只通过Class.forName查找一次生成类，结果缓存在ClassValue里；
+ * 没有生成类的接口(泛型接口、继承的接口、用了QueryMap/HeaderMap等)交给fallback解析
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 07:00
+ */
+public class GeneratedContract implements Contract {
+    private static final ClassValue<Optional<GeneratedMetadata.Factory>> FACTORIES = new ClassValue<Optional<GeneratedMetadata.Factory>>() {
+        @Override
+        protected Optional<GeneratedMetadata.Factory> computeValue(Class<?> type) {
+            try {
+                final Class<?> generated = Class.forName(type.getName() + GeneratedMetadata.SUFFIX, true, type.getClassLoader());
+                return Optional.of((GeneratedMetadata.Factory) generated.getDeclaredConstructor().newInstance());
+            } catch (ClassNotFoundException e) {
+                return Optional.empty();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot instantiate generated metadata of " + type.getName(), e);
+            }
+        }
+    };
+
+    private final Contract fallback;
+
+    public GeneratedContract() {
+        this(new Contract.Default());
+    }
+
+    public GeneratedContract(Contract fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public List<MethodMetadata> parseAndValidateMetadata(Class<?> targetType) {
+        final Optional<GeneratedMetadata.Factory> factory = FACTORIES.get(targetType);
+        return factory.isPresent() ? factory.get().create() : fallback.parseAndValidateMetadata(targetType);
+    }
+
+    /**
+     * @return targetType是否有生成的MethodMetadata
+     */
+    public static boolean isGenerated(Class<?> targetType) {
+        return FACTORIES.get(targetType).isPresent();
+    }
+}
@@ -0,0 +1,182 @@
+package com.xinchen.feign;
+
+import feign.CollectionFormat;
+import feign.Feign;
+import feign.MethodMetadata;
+import feign.Param;
+import feign.Request;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static feign.Util.checkState;
+
+/**
+ * {@link FeignMetadataProcessor}生成代码使用的{@link MethodMetadata}构造器
+ *
+ * 注解的值在编译期已经读出并校验，这里只按{@link feign.Contract.Default}的顺序把它们写进MethodMetadata，
+ * 运行时不再读取注解、不再匹配RequestLine正则。Method对象仍然通过getMethod取得，
+ * 因为Feign的InvocationHandler要用它分发调用
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 06:50
+ */
+public final class GeneratedMetadata {
+    /**
+     * 生成类名 = 接口的binary name + SUFFIX
+     */
+    public static final String SUFFIX = "$$FeignMetadata";
+
+    /**
+     * 生成类实现的接口，每次调用都返回新的MethodMetadata，Feign会在上面继续填充expander
+     */
+    public interface Factory {
+        List<MethodMetadata> create();
+    }
+
+    private static final Constructor<MethodMetadata> CONSTRUCTOR;
+
+    static {
+        try {
+            // MethodMetadata的构造器是包级私有的
+            CONSTRUCTOR = MethodMetadata.class.getDeclaredConstructor();
+            CONSTRUCTOR.setAccessible(true);
+        } catch (NoSuchMethodException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final MethodMetadata data;
+    private final Method method;
+    private final Class<?>[] parameterTypes;
+
+    private GeneratedMetadata(MethodMetadata data, Method method, Class<?>[] parameterTypes) {
+        this.data = data;
+        this.method = method;
+        this.parameterTypes = parameterTypes;
+    }
+
+    /**
+     * @param configKey 编译期按{@link Feign#configKey(Class, Method)}的规则算好的key
+     */
+    public static GeneratedMetadata method(Class<?> targetType, String configKey, String name, Class<?>... parameterTypes) {
+        final Method method;
+        final MethodMetadata data;
+        try {
+            method = targetType.getMethod(name, parameterTypes);
+            data = CONSTRUCTOR.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Generated metadata is out of date for " + configKey, e);
+        }
+        data.targetType(targetType);
+        data.method(method);
+        data.returnType(method.getGenericReturnType());
+        data.configKey(configKey);
+        return new GeneratedMetadata(data, method, parameterTypes);
+    }
+
+    /**
+     * 接口上的@Headers
+     */
+    public GeneratedMetadata classHeaders(String... headers) {
+        final Map<String, Collection<String>> map = toMap(headers);
+        map.putAll(data.template().headers());
+        data.template().headers(null);
+        data.template().headers(map);
+        return this;
+    }
+
+    /**
+     * 已经拆分好的@RequestLine
+     */
+    public GeneratedMetadata requestLine(Request.HttpMethod httpMethod, String uri, boolean decodeSlash, CollectionFormat collectionFormat) {
+        data.template().method(httpMethod);
+        data.template().uri(uri);
+        data.template().decodeSlash(decodeSlash);
+        data.template().collectionFormat(collectionFormat);
+        return this;
+    }
+
+    /**
+     * 方法上的@Body
+     */
+    public GeneratedMetadata body(String body) {
+        if (body.indexOf('{') == -1) {
+            data.template().body(body);
+        } else {
+            data.template().bodyTemplate(body);
+        }
+        return this;
+    }
+
+    /**
+     * 方法上的@Headers
+     */
+    public GeneratedMetadata headers(String... headers) {
+        data.template().headers(toMap(headers));
+        return this;
+    }
+
+    /**
+     * 带@Param的参数
+     *
+     * @param expander 默认的ToStringExpander传null
+     */
+    public GeneratedMetadata param(int index, String name, Class<? extends Param.Expander> expander) {
+        Collection<String> names = data.indexToName().get(index);
+        if (names == null) {
+            names = new ArrayList<>();
+        }
+        names.add(name);
+        data.indexToName().put(index, names);
+        if (expander != null) {
+            data.indexToExpanderClass().put(index, expander);
+        }
+        if (!data.template().hasRequestVariable(name)) {
+            data.formParams().add(name);
+        }
+        if (parameterTypes[index] == URI.class) {
+            data.urlIndex(index);
+        } else if (parameterTypes[index] != Request.Options.class) {
+            checkState(data.formParams().isEmpty() || data.bodyIndex() == null,
+                    "Body parameters cannot be used with form parameters.%s", data.warnings());
+        }
+        return this;
+    }
+
+    /**
+     * 没有注解的参数: URI作为url，Options跳过，其余作为body
+     */
+    public GeneratedMetadata parameter(int index) {
+        if (parameterTypes[index] == URI.class) {
+            data.urlIndex(index);
+        } else if (parameterTypes[index] != Request.Options.class) {
+            checkState(data.formParams().isEmpty(), "Body parameters cannot be used with form parameters.%s", data.warnings());
+            checkState(data.bodyIndex() == null, "Method has too many Body parameters: %s%s", method, data.warnings());
+            data.bodyIndex(index);
+            data.bodyType(method.getGenericParameterTypes()[index]);
+        }
+        return this;
+    }
+
+    public MethodMetadata build() {
+        return data;
+    }
+
+    private static Map<String, Collection<String>> toMap(String[] headers) {
+        final Map<String, Collection<String>> result = new LinkedHashMap<>(headers.length);
+        for (String header : headers) {
+            final int colon = header.indexOf(':');
+            result.computeIfAbsent(header.substring(0, colon), name -> new ArrayList<>(1))
+                    .add(header.substring(colon + 1).trim());
+        }
+        return result;
+    }
+}
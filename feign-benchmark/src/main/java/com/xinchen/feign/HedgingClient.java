@@ -0,0 +1,342 @@
+package com.xinchen.feign;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import feign.Util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 对冲请求：幂等请求在hedge delay内没有返回时再发一份相同的请求，先成功的响应胜出，另一份返回后直接关闭
+ *
+ * <ul>
+ *     <li>delay可以固定，也可以取最近若干次调用耗时的百分位(例如p95)，样本不足时用固定值</li>
+ *     <li>hedge budget：每个请求存入budgetPercent%个令牌，每次对冲消耗一个，额外请求量不超过budgetPercent%(另有少量突发)</li>
+ *     <li>只对冲GET/HEAD/OPTIONS</li>
+ * </ul>
+ *
+ * 每次尝试都在executor上执行，调用线程只负责等待，所以executor的线程数至少是并发调用数的两倍，
+ * 默认每次尝试一个虚拟线程(JDK 21以下为按需创建的平台线程)。同步的HTTP客户端读到一半无法中断，
+ * 落败的请求会继续执行完，返回后立即关闭响应
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 01:00
+ */
+public class HedgingClient implements Client {
+    private static final long TOKEN = 1000;
+
+    private final Client delegate;
+    private final ExecutorService executor;
+    private final long fixedDelayNanos;
+    private final double percentile;
+    private final long budgetPerRequest;
+    private final long maxTokens;
+
+    private final LatencyTracker latencies;
+    private final AtomicLong tokens;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+
+    private HedgingClient(Builder builder) {
+        this.delegate = builder.delegate;
+        this.executor = builder.executor != null ? builder.executor : VirtualThreads.newExecutor("feign-hedge-");
+        this.fixedDelayNanos = builder.delayNanos;
+        this.percentile = builder.percentile;
+        this.budgetPerRequest = Math.round(builder.budgetPercent * TOKEN / 100);
+        this.maxTokens = builder.maxBurst * TOKEN;
+        this.latencies = new LatencyTracker(builder.samples, builder.percentile);
+        this.tokens = new AtomicLong(maxTokens);
+    }
+
+    public static Builder builder(Client delegate) {
+        return new Builder(delegate);
+    }
+
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        requests.increment();
+        if (!isIdempotent(request.httpMethod())) {
+            return delegate.execute(request, options);
+        }
+        deposit();
+        final CompletableFuture<Response> winner = new CompletableFuture<>();
+        final CompletableFuture<Response> primary = attempt(request, options, winner);
+
+        try {
+            return primary.get(hedgeDelayNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // 继续对冲
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandon(primary);
+            throw new IOException("Interrupted waiting for " + request.url(), e);
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        }
+
+        if (!withdraw()) {
+            return await(primary);
+        }
+        hedges.increment();
+        final CompletableFuture<Response> hedge = attempt(request, options, winner);
+        final AtomicInteger failures = new AtomicInteger();
+        primary.whenComplete((response, error) -> settle(winner, response, error, failures, null));
+        hedge.whenComplete((response, error) -> settle(winner, response, error, failures, hedgeWins));
+        return await(winner);
+    }
+
+    private CompletableFuture<Response> attempt(Request request, Request.Options options,
+                                                CompletableFuture<Response> winner) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                if (winner.isDone()) {
+                    // 另一份已经返回，还没开始的尝试不再发出
+                    throw new CancellationException();
+                }
+                final long start = System.nanoTime();
+                try {
+                    final Response response = delegate.execute(request, options);
+                    latencies.record(System.nanoTime() - start);
+                    return response;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            final CompletableFuture<Response> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    private static void settle(CompletableFuture<Response> winner, Response response, Throwable error,
+                               AtomicInteger failures, LongAdder wins) {
+        if (error == null) {
+            // 先计数：complete之后调用方可能已经返回并读取统计
+            if (wins != null) {
+                wins.increment();
+            }
+            if (!winner.complete(response)) {
+                if (wins != null) {
+                    wins.decrement();
+                }
+                Util.ensureClosed(response);
+            }
+        } else if (failures.incrementAndGet() == 2) {
+            winner.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * 等待primary，或者等待winner(没选中的那份由{@link #settle}关闭)
+     */
+    private static Response await(CompletableFuture<Response> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandon(future);
+            throw new IOException("Interrupted waiting for response", e);
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        }
+    }
+
+    /**
+     * 调用方不再等待，尝试之后完成时关闭响应，归还连接
+     */
+    private static void abandon(CompletableFuture<Response> future) {
+        future.whenComplete((response, error) -> {
+            if (response != null) {
+                Util.ensureClosed(response);
+            }
+        });
+    }
+
+    private static IOException rethrow(Throwable cause) throws IOException {
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof UncheckedIOException) {
+            throw ((UncheckedIOException) cause).getCause();
+        }
+        if (cause instanceof IOException) {
+            throw (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        throw new IOException(cause);
+    }
+
+    private static boolean isIdempotent(Request.HttpMethod method) {
+        return method == Request.HttpMethod.GET || method == Request.HttpMethod.HEAD
+                || method == Request.HttpMethod.OPTIONS;
+    }
+
+    long hedgeDelayNanos() {
+        if (percentile <= 0) {
+            return fixedDelayNanos;
+        }
+        final long tracked = latencies.value();
+        return tracked > 0 ? tracked : fixedDelayNanos;
+    }
+
+    private void deposit() {
+        while (true) {
+            final long current = tokens.get();
+            if (current >= maxTokens || tokens.compareAndSet(current, Math.min(maxTokens, current + budgetPerRequest))) {
+                return;
+            }
+        }
+    }
+
+    private boolean withdraw() {
+        while (true) {
+            final long current = tokens.get();
+            if (current < TOKEN) {
+                return false;
+            }
+            if (tokens.compareAndSet(current, current - TOKEN)) {
+                return true;
+            }
+        }
+    }
+
+    public long requests() {
+        return requests.sum();
+    }
+
+    /**
+     * 发出的对冲请求数
+     */
+    public long hedges() {
+        return hedges.sum();
+    }
+
+    /**
+     * 对冲请求先于原请求返回的次数
+     */
+    public long hedgeWins() {
+        return hedgeWins.sum();
+    }
+
+    public String stats() {
+        return "requests=" + requests() + ", hedges=" + hedges() + ", hedgeWins=" + hedgeWins()
+                + ", delayMicros=" + TimeUnit.NANOSECONDS.toMicros(hedgeDelayNanos());
+    }
+
+    /**
+     * 最近samples次调用耗时的环形缓冲，每写入samples/8个样本重新排序计算一次百分位，读路径只读一个volatile
+     */
+    static final class LatencyTracker {
+        private final AtomicLongArray samples;
+        private final double percentile;
+        private final AtomicLong written = new AtomicLong();
+        private final int refreshEvery;
+        private volatile long value;
+
+        LatencyTracker(int size, double percentile) {
+            this.samples = new AtomicLongArray(size);
+            this.percentile = percentile;
+            this.refreshEvery = Math.max(1, size / 8);
+        }
+
+        void record(long nanos) {
+            final long index = written.getAndIncrement();
+            samples.set((int) (index % samples.length()), nanos);
+            if (percentile > 0 && (index + 1) % refreshEvery == 0) {
+                value = compute();
+            }
+        }
+
+        /**
+         * @return 样本没有填满一轮时返回0
+         */
+        long value() {
+            return value;
+        }
+
+        private long compute() {
+            if (written.get() < samples.length()) {
+                return 0;
+            }
+            final long[] copy = new long[samples.length()];
+            for (int i = 0; i < copy.length; i++) {
+                copy[i] = samples.get(i);
+            }
+            Arrays.sort(copy);
+            return copy[Math.min(copy.length - 1, (int) Math.ceil(percentile / 100 * copy.length) - 1)];
+        }
+    }
+
+    public static final class Builder {
+        private final Client delegate;
+        private ExecutorService executor;
+        private long delayNanos = TimeUnit.MILLISECONDS.toNanos(10);
+        private double percentile;
+        private int samples = 1024;
+        private double budgetPercent = 10;
+        private long maxBurst = 10;
+
+        private Builder(Client delegate) {
+            this.delegate = delegate;
+        }
+
+        /**
+         * 固定的对冲延迟，使用百分位时作为样本不足时的默认值，默认10ms
+         */
+        public Builder delay(long delay, TimeUnit unit) {
+            this.delayNanos = unit.toNanos(delay);
+            return this;
+        }
+
+        /**
+         * 用最近samples次调用耗时的百分位(0-100)作为对冲延迟
+         */
+        public Builder percentileDelay(double percentile, int samples) {
+            this.percentile = percentile;
+            this.samples = samples;
+            return this;
+        }
+
+        /**
+         * 额外请求占比上限(百分比)和允许的突发对冲次数，默认10%和10次
+         */
+        public Builder budget(double percent, long maxBurst) {
+            this.budgetPercent = percent;
+            this.maxBurst = maxBurst;
+            return this;
+        }
+
+        public Builder executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public HedgingClient build() {
+            return new HedgingClient(this);
+        }
+    }
+}
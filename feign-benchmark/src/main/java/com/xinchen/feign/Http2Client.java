@@ -0,0 +1,51 @@
+package com.xinchen.feign;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * 基于OkHttp的HTTP/2 prior knowledge客户端：不经过Upgrade直接用h2c，同一主机的并发调用复用一条连接上的多个stream
+ *
+ * HTTP/1.1下每条连接同一时间只能承载一个请求，并发数就是连接数；这里并发调用只受服务端
+ * SETTINGS_MAX_CONCURRENT_STREAMS限制，连接数通常是1(冷启动时同时发起的调用可能各自建一条，之后合并)
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 03:00
+ */
+public final class Http2Client implements Client {
+    private final OkHttpClient okHttpClient;
+    private final Client delegate;
+
+    public Http2Client() {
+        this(new OkHttpClient.Builder());
+    }
+
+    /**
+     * @param builder 其他OkHttp配置(超时、连接池等)，protocols会被覆盖
+     */
+    public Http2Client(OkHttpClient.Builder builder) {
+        this.okHttpClient = builder
+                .protocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE))
+                .build();
+        this.delegate = new feign.okhttp.OkHttpClient(okHttpClient);
+    }
+
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        return delegate.execute(request, options);
+    }
+
+    /**
+     * 连接池中的连接数
+     */
+    public int connectionCount() {
+        return okHttpClient.connectionPool().connectionCount();
+    }
+}
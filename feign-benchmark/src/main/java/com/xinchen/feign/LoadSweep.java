@@ -0,0 +1,204 @@
+package com.xinchen.feign;
+
+import com.netflix.hystrix.HystrixCommand;
+import com.netflix.hystrix.HystrixCommandGroupKey;
+import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.HystrixCommandProperties;
+import com.netflix.hystrix.HystrixThreadPoolProperties;
+import feign.Client;
+import feign.Feign;
+import feign.Logger;
+import feign.RequestLine;
+import feign.Retryer;
+import feign.httpclient.ApacheHttpClient;
+import feign.hystrix.HystrixFeign;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用{@link OpenLoopLoadGenerator}逐级提高请求速率，找出某个客户端配置的饱和拐点
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.xinchen.feign.LoadSweep client=hystrix rates=100,200,400,800 latency=fixed:5ms
+ * </pre>
+ *
+ * 参数均为key=value：
+ * <ul>
+ *     <li>client：default(HttpURLConnection)/okhttp/apache(每个route 2条连接)/apache-adaptive/hystrix/breaker/virtual，默认okhttp</li>
+ *     <li>rates：逗号分隔的每秒调用数，默认100,200,400,800,1600,3200</li>
+ *     <li>duration/warmup：每一级测量和预热的秒数，默认10/2</li>
+ *     <li>url：上游地址，默认在本进程启动{@link EmbeddedHttpbin}</li>
+ *     <li>latency/payload/errorRate：EmbeddedHttpbin的延迟分布、body大小和503比例，默认fixed:5ms/1024/0</li>
+ *     <li>bulkhead：hystrix线程池和virtual的最大并发调用数，默认10</li>
+ *     <li>stopAtKnee：到达拐点后是否停止，默认true</li>
+ * </ul>
+ *
+ * 达到目标速率不到95%、失败比例超过1%或者p99超过第一级p99的10倍时认为已饱和
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 05:40
+ */
+public final class LoadSweep {
+
+    private LoadSweep() {
+    }
+
+    interface LoadTestInterface {
+        @RequestLine("GET /get")
+        String query();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        final Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            final int eq = arg.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected key=value: " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        final String clientName = options.getOrDefault("client", "okhttp");
+        final String[] rateValues = options.getOrDefault("rates", "100,200,400,800,1600,3200").split(",");
+        final double[] rates = new double[rateValues.length];
+        for (int i = 0; i < rates.length; i++) {
+            rates[i] = Double.parseDouble(rateValues[i].trim());
+        }
+        final int bulkhead = Integer.parseInt(options.getOrDefault("bulkhead", "10"));
+
+        EmbeddedHttpbin server = null;
+        String url = options.get("url");
+        if (url == null) {
+            server = new EmbeddedHttpbin(Integer.parseInt(options.getOrDefault("payload", "1024")), null, false)
+                    .latency(options.getOrDefault("latency", "fixed:5ms"))
+                    .errors(Double.parseDouble(options.getOrDefault("errorRate", "0")), 503)
+                    .start();
+            url = server.url();
+        }
+        try {
+            final LoadTestInterface api = target(clientName, url, bulkhead);
+            // 建立连接、加载类
+            api.query();
+            final OpenLoopLoadGenerator.Builder generator = OpenLoopLoadGenerator.builder()
+                    .duration(Long.parseLong(options.getOrDefault("duration", "10")), TimeUnit.SECONDS)
+                    .warmup(Long.parseLong(options.getOrDefault("warmup", "2")), TimeUnit.SECONDS);
+            System.out.println("client " + clientName + " -> " + url);
+            final List<OpenLoopLoadGenerator.Result> results = sweep(generator, rates, api::query,
+                    Boolean.parseBoolean(options.getOrDefault("stopAtKnee", "true")));
+            final OpenLoopLoadGenerator.Result knee = knee(results);
+            System.out.println(knee == null
+                    ? "no knee up to " + rates[rates.length - 1] + "/s"
+                    : "knee at " + knee.targetRate() + "/s");
+        } finally {
+            if (server != null) {
+                System.out.println("embedded server: " + server.stats());
+                server.shutdown();
+            }
+        }
+    }
+
+    /**
+     * 依次按rates压测并打印每一级的结果
+     *
+     * @param stopAtKnee 到达拐点后不再压更高的速率
+     */
+    public static List<OpenLoopLoadGenerator.Result> sweep(OpenLoopLoadGenerator.Builder generator, double[] rates,
+                                                           OpenLoopLoadGenerator.Call call, boolean stopAtKnee)
+            throws InterruptedException {
+        final List<OpenLoopLoadGenerator.Result> results = new ArrayList<>();
+        for (double rate : rates) {
+            final OpenLoopLoadGenerator.Result result = generator.rate(rate).build().run(call);
+            results.add(result);
+            System.out.println(result);
+            if (stopAtKnee && isSaturated(results.get(0), result)) {
+                break;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @return 第一个饱和的结果，都没有饱和时返回null
+     */
+    public static OpenLoopLoadGenerator.Result knee(List<OpenLoopLoadGenerator.Result> results) {
+        for (OpenLoopLoadGenerator.Result result : results) {
+            if (isSaturated(results.get(0), result)) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    static boolean isSaturated(OpenLoopLoadGenerator.Result baseline, OpenLoopLoadGenerator.Result result) {
+        return result.achievedRate() < result.targetRate() * 0.95
+                || result.failureRatio() > 0.01
+                || result.latency().getValueAtPercentile(99) > baseline.latency().getValueAtPercentile(99) * 10;
+    }
+
+    static LoadTestInterface target(String client, String url, int bulkhead) {
+        switch (client) {
+            case "default":
+                return plain(new Client.Default(null, null)).target(LoadTestInterface.class, url);
+            case "okhttp":
+                return plain(okHttp()).target(LoadTestInterface.class, url);
+            case "apache":
+                return plain(new ApacheHttpClient(HttpClientBuilder.create().build()))
+                        .target(LoadTestInterface.class, url);
+            case "apache-adaptive":
+                return plain(new ApacheHttpClient(HttpClientBuilder.create()
+                        .setConnectionManager(AdaptiveConnectionManager.builder().build())
+                        .build()))
+                        .target(LoadTestInterface.class, url);
+            case "hystrix":
+                return HystrixFeign.builder()
+                        .setterFactory((target, method) -> HystrixCommand.Setter
+                                .withGroupKey(HystrixCommandGroupKey.Factory.asKey(target.name()))
+                                .andCommandKey(HystrixCommandKey.Factory.asKey(Feign.configKey(target.type(), method)))
+                                .andThreadPoolPropertiesDefaults(HystrixThreadPoolProperties.Setter()
+                                        .withCoreSize(bulkhead)
+                                        .withMaximumSize(bulkhead)
+                                        .withMaxQueueSize(-1))
+                                .andCommandPropertiesDefaults(HystrixCommandProperties.Setter()
+                                        .withExecutionTimeoutInMilliseconds(2000)))
+                        .client(okHttp())
+                        .logLevel(Logger.Level.NONE)
+                        .retryer(Retryer.NEVER_RETRY)
+                        .target(LoadTestInterface.class, url);
+            case "breaker":
+                return plain(okHttp())
+                        .addCapability(CircuitBreakerCapability.builder().build())
+                        .target(LoadTestInterface.class, url);
+            case "virtual":
+                return VirtualThreadFeign.builder()
+                        .maxConcurrentCalls(bulkhead)
+                        .timeout(2, TimeUnit.SECONDS)
+                        .client(okHttp())
+                        .logLevel(Logger.Level.NONE)
+                        .retryer(Retryer.NEVER_RETRY)
+                        .target(LoadTestInterface.class, url);
+            default:
+                throw new IllegalArgumentException("Unknown client: " + client);
+        }
+    }
+
+    private static Feign.Builder plain(Client client) {
+        return Feign.builder()
+                .client(client)
+                .logLevel(Logger.Level.NONE)
+                .retryer(Retryer.NEVER_RETRY);
+    }
+
+    private static Client okHttp() {
+        // 开环压测时在途请求可能很多，保留足够的空闲连接
+        return new feign.okhttp.OkHttpClient(new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(512, 5, TimeUnit.MINUTES))
+                .build());
+    }
+}
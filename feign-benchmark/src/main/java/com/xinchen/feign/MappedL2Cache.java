@@ -0,0 +1,609 @@
+package com.xinchen.feign;
+
+import com.xinchen.feign.CacheableApacheHttpClient.CacheMeta;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+import static feign.Util.UTF_8;
+
+/**
+ * {@link CacheableApacheHttpClient}的第二级缓存，把entry追加写入内存映射的segment文件，重启后重新加载仍然有效的entry
+ *
+ * <ul>
+ *     <li>segment是固定大小的文件，写满后切换到下一个；记录格式为 [int 长度][int crc32][内容]，长度为0表示segment结束，
+ *     crc不对(写到一半进程退出)的记录及其之后的内容被丢弃</li>
+ *     <li>内存中的索引只有 key -> (segment id, offset) 打包成的long，同一个key后写的记录覆盖之前的</li>
+ *     <li>过期时间按墙上时间保存，加载和读取时跳过已过期的记录</li>
+ *     <li>后台定期压缩：已写满的segment中有效记录的比例低于一半时，把有效记录搬到当前segment，然后删除整个文件</li>
+ *     <li>写入在当前segment上CAS预留空间，各自写入不同的区域，只有切换segment时才加锁</li>
+ * </ul>
+ *
+ * 只是缓存，写入失败(比如磁盘写满、segment数达到上限)时直接放弃，不影响请求
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 19:10
+ */
+public class MappedL2Cache implements Closeable {
+    private static final String SUFFIX = ".seg";
+    private static final int RECORD_HEADER = 8;
+    private static final double COMPACT_LIVE_RATIO = 0.5;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final ConcurrentMap<String, Long> index = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+    private final ScheduledExecutorService compactor;
+
+    /**
+     * 只由持有this锁的线程切换
+     */
+    private volatile Segment active;
+
+    /**
+     * close之后get总是未命中，put不再写入，也不再创建segment文件
+     */
+    private volatile boolean closed;
+
+    /**
+     * 64MB一个segment，最多16个，每30秒检查一次是否需要压缩
+     */
+    public MappedL2Cache(Path directory) throws IOException {
+        this(directory, 64 << 20, 16, 30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param segmentSize 单个segment文件的字节数，超过它的entry不会写入
+     * @param maxSegments segment文件数上限，用完后不再写入，直到压缩腾出空间
+     * @param compactionInterval 后台压缩的检查间隔，0表示不在后台压缩
+     */
+    public MappedL2Cache(Path directory, int segmentSize, int maxSegments, long compactionInterval, TimeUnit unit)
+            throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+
+        // 同一个目录只能被一个进程使用
+        this.lockChannel = FileChannel.open(directory.resolve(".lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock acquired;
+        try {
+            acquired = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            acquired = null;
+        }
+        this.lock = acquired;
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("L2 cache directory is in use: " + directory);
+        }
+
+        load();
+        if (compactionInterval > 0) {
+            this.compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+                final Thread thread = new Thread(r, "l2-cache-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            compactor.scheduleWithFixedDelay(this::compactQuietly, compactionInterval, compactionInterval, unit);
+        } else {
+            this.compactor = null;
+        }
+    }
+
+    /**
+     * 索引中的entry数(可能包含已经过期但还没被读到或压缩掉的)
+     */
+    public int size() {
+        return index.size();
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * @return 没有或已过期返回null，body在堆内
+     */
+    CacheMeta get(String key) {
+        if (closed) {
+            return null;
+        }
+        final Long location = index.get(key);
+        if (location == null) {
+            return null;
+        }
+        final Segment segment = segments.get(segmentId(location));
+        if (segment == null) {
+            // 刚被压缩搬走
+            return getMoved(key, location);
+        }
+        final ByteBuffer record = segment.record(offset(location));
+        final long now = System.currentTimeMillis();
+        if (record.getLong() <= now) {
+            index.remove(key, location);
+            return null;
+        }
+        return readMeta(record, now);
+    }
+
+    private CacheMeta getMoved(String key, long staleLocation) {
+        final Long location = index.get(key);
+        return location == null || location == staleLocation ? null : get(key);
+    }
+
+    /**
+     * @param staleRetentionNanos 带校验器的entry过期后继续保留的时间，与L1一致
+     * @return 是否写入
+     */
+    boolean put(String key, CacheMeta cacheMeta, long staleRetentionNanos) {
+        if (closed) {
+            return false;
+        }
+        final long now = System.currentTimeMillis();
+        final long freshUntilMillis = now + TimeUnit.NANOSECONDS.toMillis(
+                Math.max(0, cacheMeta.freshUntilNanos - System.nanoTime()));
+        final long expireAtMillis = cacheMeta.hasValidators()
+                ? freshUntilMillis + TimeUnit.NANOSECONDS.toMillis(staleRetentionNanos)
+                : freshUntilMillis;
+        if (expireAtMillis <= now) {
+            return false;
+        }
+        final byte[] payload;
+        try {
+            payload = encode(key, cacheMeta, expireAtMillis, freshUntilMillis);
+        } catch (IOException e) {
+            return false;
+        }
+        return append(key, -1, payload, false) >= 0;
+    }
+
+    /**
+     * 压缩所有有效记录比例低于一半的已写满segment
+     */
+    public void compact() throws IOException {
+        for (Segment segment : new ArrayList<>(segments.values())) {
+            if (closed) {
+                return;
+            }
+            // 当前segment不压缩；已封住的segment上还有没写完的记录时下次再压缩
+            if (!segment.isSealed() || segment.writers.get() > 0) {
+                continue;
+            }
+            final long now = System.currentTimeMillis();
+            final List<Integer> live = new ArrayList<>();
+            long liveBytes = 0;
+            for (int offset = 0; offset < segment.written(); ) {
+                final ByteBuffer record = segment.record(offset);
+                if (record == null) {
+                    break;
+                }
+                if (isLive(record, segment.location(offset), now)) {
+                    live.add(offset);
+                    liveBytes += RECORD_HEADER + record.remaining();
+                }
+                offset += RECORD_HEADER + record.remaining();
+            }
+            if (liveBytes >= segment.written() * COMPACT_LIVE_RATIO) {
+                continue;
+            }
+
+            for (int offset : live) {
+                final ByteBuffer record = segment.record(offset);
+                final String key = readKey(record.duplicate());
+                final byte[] payload = new byte[record.remaining()];
+                record.get(payload);
+                if (append(key, segment.location(offset), payload, true) < 0) {
+                    // 没有空间搬，保留这个segment
+                    return;
+                }
+            }
+            // 剩下指向这个segment的都是过期的
+            index.values().removeIf(location -> segmentId(location) == segment.id);
+            segments.remove(segment.id);
+            segment.close();
+            Files.deleteIfExists(segment.path);
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException | RuntimeException e) {
+            // 下次再试
+        }
+    }
+
+    private boolean isLive(ByteBuffer record, long location, long now) {
+        final ByteBuffer view = record.duplicate();
+        if (view.getLong() <= now) {
+            return false;
+        }
+        view.getLong();
+        final Long current = index.get(readString(view));
+        return current != null && current == location;
+    }
+
+    /**
+     * 在当前segment上预留空间并写入，写完后更新索引；当前segment放不下时切换到新的segment
+     *
+     * @param previous 压缩搬移时记录原来的位置，只有索引仍指向它时才替换；普通写入为-1
+     * @param compacting 压缩时可以临时多用一个segment，否则segment数到上限后永远无法压缩
+     * @return 打包后的位置，空间不足返回-1
+     */
+    private long append(String key, long previous, byte[] payload, boolean compacting) {
+        final int recordSize = RECORD_HEADER + payload.length;
+        if (recordSize > segmentSize) {
+            return -1;
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+
+        Segment segment = active;
+        while (true) {
+            if (segment != null) {
+                // 压缩线程看到writers为0时，这个segment上的记录和索引都已经写完
+                segment.writers.incrementAndGet();
+                try {
+                    final int offset = segment.reserve(recordSize, segmentSize);
+                    if (offset >= 0) {
+                        segment.write(offset, payload, (int) crc.getValue());
+                        final long location = segment.location(offset);
+                        if (previous < 0) {
+                            index.put(key, location);
+                        } else {
+                            index.replace(key, previous, location);
+                        }
+                        return location;
+                    }
+                } finally {
+                    segment.writers.decrementAndGet();
+                }
+            }
+            segment = roll(segment, compacting);
+            if (segment == null) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * 封住写满的segment并切换到新的segment，其他线程已经切换过时直接返回新的
+     *
+     * @return 新的当前segment，segment数到上限或创建失败返回null
+     */
+    private synchronized Segment roll(Segment full, boolean compacting) {
+        if (closed) {
+            return null;
+        }
+        if (active != full) {
+            return active;
+        }
+        if (segments.size() >= (compacting ? maxSegments + 1 : maxSegments)) {
+            return null;
+        }
+        final Segment next;
+        try {
+            next = Segment.create(directory, full == null ? 0 : full.id + 1, segmentSize);
+        } catch (IOException e) {
+            return null;
+        }
+        if (full != null) {
+            full.seal();
+        }
+        segments.put(next.id, next);
+        active = next;
+        return next;
+    }
+
+    private void load() throws IOException {
+        final List<Integer> ids = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                final String name = file.getFileName().toString();
+                try {
+                    ids.add(Integer.parseInt(name.substring(0, name.length() - SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // 不是segment
+                }
+            }
+        }
+        ids.sort(null);
+
+        final long now = System.currentTimeMillis();
+        for (int id : ids) {
+            final Segment segment = Segment.open(directory, id, segmentSize);
+            segments.put(id, segment);
+            if (active != null) {
+                active.seal();
+            }
+            active = segment;
+            int offset = 0;
+            while (true) {
+                final ByteBuffer record = segment.validRecord(offset);
+                if (record == null) {
+                    break;
+                }
+                final long location = segment.location(offset);
+                final boolean expired = record.getLong() <= now;
+                record.getLong();
+                final String key = readString(record);
+                if (expired) {
+                    index.remove(key);
+                } else {
+                    index.put(key, location);
+                }
+                offset += RECORD_HEADER + record.limit();
+            }
+            segment.position.set(offset);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        if (compactor != null) {
+            compactor.shutdown();
+            try {
+                compactor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            for (Segment segment : segments.values()) {
+                segment.buffer.force();
+                segment.close();
+            }
+            segments.clear();
+            index.clear();
+            active = null;
+        }
+        lock.release();
+        lockChannel.close();
+    }
+
+    private static byte[] encode(String key, CacheMeta cacheMeta, long expireAtMillis, long freshUntilMillis)
+            throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + cacheMeta.body.size());
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(expireAtMillis);
+        out.writeLong(freshUntilMillis);
+        writeString(out, key);
+        out.writeInt(cacheMeta.statusCode);
+        writeString(out, cacheMeta.reason);
+        out.writeInt(cacheMeta.headers.size());
+        for (Map.Entry<String, Collection<String>> header : cacheMeta.headers.entrySet()) {
+            writeString(out, header.getKey());
+            out.writeInt(header.getValue().size());
+            for (String value : header.getValue()) {
+                writeString(out, value);
+            }
+        }
+        out.writeInt(cacheMeta.length == null ? -1 : cacheMeta.length);
+        out.writeInt(cacheMeta.body.size());
+        try (InputStream body = cacheMeta.body.asInputStream()) {
+            final byte[] buffer = new byte[8192];
+            for (int n; (n = body.read(buffer)) != -1; ) {
+                out.write(buffer, 0, n);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param record position在freshUntil处
+     */
+    private static CacheMeta readMeta(ByteBuffer record, long now) {
+        final long freshUntilMillis = record.getLong();
+        readString(record);
+        final int status = record.getInt();
+        final String reason = readString(record);
+        final int headerCount = record.getInt();
+        final Map<String, Collection<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (int i = 0; i < headerCount; i++) {
+            final String name = readString(record);
+            final int valueCount = record.getInt();
+            final List<String> values = new ArrayList<>(valueCount);
+            for (int j = 0; j < valueCount; j++) {
+                values.add(readString(record));
+            }
+            headers.put(name, values);
+        }
+        final int length = record.getInt();
+        final byte[] body = new byte[record.getInt()];
+        record.get(body);
+        final long ttlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, freshUntilMillis - now));
+        return new CacheMeta(status, reason, headers, length < 0 ? null : length, CachedBody.heap(body), ttlNanos);
+    }
+
+    private static String readKey(ByteBuffer record) {
+        record.getLong();
+        record.getLong();
+        return readString(record);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        final byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static int segmentId(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int offset(long location) {
+        return (int) location;
+    }
+
+    private static final class Segment {
+        private final int id;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        /**
+         * 下一条记录的位置；封住后为 -(封住时的位置) - 1
+         */
+        private final AtomicInteger position = new AtomicInteger();
+        /**
+         * 预留了空间但还没写完(包括更新索引)的线程数
+         */
+        private final AtomicInteger writers = new AtomicInteger();
+
+        private Segment(int id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        static Segment create(Path directory, int id, int size) throws IOException {
+            final Path path = directory.resolve(String.format("%08d%s", id, SUFFIX));
+            Files.deleteIfExists(path);
+            return open(directory, id, size);
+        }
+
+        static Segment open(Path directory, int id, int size) throws IOException {
+            final Path path = directory.resolve(String.format("%08d%s", id, SUFFIX));
+            final FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(id, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+
+        long location(int offset) {
+            return (long) id << 32 | offset;
+        }
+
+        /**
+         * @return 预留到的位置，放不下或已封住返回-1
+         */
+        int reserve(int recordSize, int segmentSize) {
+            while (true) {
+                final int current = position.get();
+                if (current < 0 || current > segmentSize - recordSize) {
+                    return -1;
+                }
+                if (position.compareAndSet(current, current + recordSize)) {
+                    return current;
+                }
+            }
+        }
+
+        void write(int offset, byte[] payload, int crc) {
+            final ByteBuffer target = buffer.duplicate();
+            ((Buffer) target).position(offset);
+            // 先写内容再写长度，长度非0时记录一定完整
+            target.putInt(0).putInt(crc).put(payload);
+            buffer.putInt(offset, payload.length);
+        }
+
+        /**
+         * 之后不再接受预留，剩下的空间作废
+         */
+        void seal() {
+            while (true) {
+                final int current = position.get();
+                if (current < 0 || position.compareAndSet(current, -current - 1)) {
+                    return;
+                }
+            }
+        }
+
+        boolean isSealed() {
+            return position.get() < 0;
+        }
+
+        /**
+         * 已预留的字节数
+         */
+        int written() {
+            final int current = position.get();
+            return current < 0 ? -current - 1 : current;
+        }
+
+        /**
+         * @return 记录内容(position=0)，没有更多记录返回null
+         */
+        ByteBuffer record(int offset) {
+            if (offset + RECORD_HEADER > buffer.capacity()) {
+                return null;
+            }
+            final int length = buffer.getInt(offset);
+            if (length <= 0 || offset + RECORD_HEADER + length > buffer.capacity()) {
+                return null;
+            }
+            final ByteBuffer record = buffer.duplicate();
+            ((Buffer) record).limit(offset + RECORD_HEADER + length).position(offset + RECORD_HEADER);
+            return record.slice();
+        }
+
+        /**
+         * 加载时使用，额外校验crc
+         */
+        ByteBuffer validRecord(int offset) {
+            final ByteBuffer record = record(offset);
+            if (record == null) {
+                return null;
+            }
+            final CRC32 crc = new CRC32();
+            crc.update(record.duplicate());
+            return (int) crc.getValue() == buffer.getInt(offset + 4) ? record : null;
+        }
+
+        void close() throws IOException {
+            // 映射在GC时才会解除，正在读取的线程仍然可以访问
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.xinchen.feign;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 把时间窗口内的单条调用合并成一次批量调用，类似HystrixCollapser，但不依赖Hystrix
+ *
+ * <pre>
+ * MicroBatcher&lt;RecordQuery, Record&gt; batcher = MicroBatcher.builder(batchApi::load)
+ *         .window(2, TimeUnit.MILLISECONDS)
+ *         .maxBatchSize(100)
+ *         .build();
+ * Record record = batcher.get(query);
+ * </pre>
+ *
+ * <ul>
+ *     <li>批次从第一次调用开始计时，到达window或者maxBatchSize时发出，window为0时每次调用单独发出</li>
+ *     <li>同一批次中相同的key只请求一次，共享同一个future</li>
+ *     <li>批量结果按key拆分给各个调用方，结果中没有的key得到null；批量调用失败时整批调用都失败</li>
+ * </ul>
+ *
+ * 批量调用在executor上执行，默认每批一个虚拟线程(JDK 21以下为按需创建的平台线程)
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 02:00
+ */
+public final class MicroBatcher<K, V> implements Closeable {
+
+    /**
+     * 批量加载，通常是一个Feign批量接口
+     */
+    @FunctionalInterface
+    public interface BatchLoader<K, V> {
+        Map<K, V> load(List<K> keys) throws Exception;
+    }
+
+    private final BatchLoader<K, V> loader;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final ExecutorService executor;
+    private final ScheduledThreadPoolExecutor timer;
+
+    private final Object lock = new Object();
+    private Batch<K, V> current;
+    /**
+     * close之后计时器已经停止，新的调用直接失败
+     */
+    private boolean closed;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    private MicroBatcher(Builder<K, V> builder) {
+        this.loader = builder.loader;
+        this.windowNanos = builder.windowNanos;
+        this.maxBatchSize = builder.maxBatchSize;
+        this.executor = builder.executor != null ? builder.executor : VirtualThreads.newExecutor("feign-batch-");
+        this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+            final Thread thread = new Thread(r, "feign-batch-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    public static <K, V> Builder<K, V> builder(BatchLoader<K, V> loader) {
+        return new Builder<>(loader);
+    }
+
+    public CompletableFuture<V> submit(K key) {
+        calls.increment();
+        final CompletableFuture<V> future;
+        Batch<K, V> full = null;
+        synchronized (lock) {
+            if (closed) {
+                final CompletableFuture<V> rejected = new CompletableFuture<>();
+                rejected.completeExceptionally(new IllegalStateException("MicroBatcher is closed"));
+                return rejected;
+            }
+            if (current == null) {
+                current = new Batch<>();
+                if (windowNanos > 0) {
+                    final Batch<K, V> scheduled = current;
+                    current.timeout = timer.schedule(() -> flush(scheduled), windowNanos, TimeUnit.NANOSECONDS);
+                }
+            }
+            future = current.add(key);
+            if (windowNanos == 0 || current.size() >= maxBatchSize) {
+                full = current;
+                current = null;
+            }
+        }
+        if (full != null) {
+            if (full.timeout != null) {
+                full.timeout.cancel(false);
+            }
+            dispatch(full);
+        }
+        return future;
+    }
+
+    /**
+     * 同步等待结果，批量调用抛出的运行时异常原样抛出
+     */
+    public V get(K key) throws InterruptedException {
+        try {
+            return submit(key).get();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CompletionException(cause);
+        }
+    }
+
+    private void flush(Batch<K, V> batch) {
+        synchronized (lock) {
+            if (current != batch) {
+                // 已经因为满了发出
+                return;
+            }
+            current = null;
+        }
+        dispatch(batch);
+    }
+
+    private void dispatch(Batch<K, V> batch) {
+        batches.increment();
+        try {
+            executor.execute(() -> load(batch));
+        } catch (RejectedExecutionException e) {
+            batch.fail(e);
+        }
+    }
+
+    private void load(Batch<K, V> batch) {
+        final Map<K, V> results;
+        try {
+            results = loader.load(new ArrayList<>(batch.futures.keySet()));
+        } catch (Throwable e) {
+            batch.fail(e);
+            return;
+        }
+        for (Map.Entry<K, CompletableFuture<V>> entry : batch.futures.entrySet()) {
+            entry.getValue().complete(results == null ? null : results.get(entry.getKey()));
+        }
+    }
+
+    /**
+     * 单条调用次数
+     */
+    public long calls() {
+        return calls.sum();
+    }
+
+    /**
+     * 发出的批量调用次数
+     */
+    public long batches() {
+        return batches.sum();
+    }
+
+    public String stats() {
+        final long batchCount = batches();
+        return "calls=" + calls() + ", batches=" + batchCount
+                + ", callsPerBatch=" + (batchCount == 0 ? 0 : calls() / (double) batchCount);
+    }
+
+    /**
+     * 停止计时器，还没发出的批次立即发出，之后的调用返回失败的future
+     */
+    @Override
+    public void close() {
+        final Batch<K, V> pending;
+        synchronized (lock) {
+            closed = true;
+            pending = current;
+            current = null;
+        }
+        timer.shutdownNow();
+        if (pending != null) {
+            dispatch(pending);
+        }
+    }
+
+    private static final class Batch<K, V> {
+        final Map<K, CompletableFuture<V>> futures = new LinkedHashMap<>();
+        ScheduledFuture<?> timeout;
+
+        CompletableFuture<V> add(K key) {
+            return futures.computeIfAbsent(key, k -> new CompletableFuture<>());
+        }
+
+        int size() {
+            return futures.size();
+        }
+
+        void fail(Throwable error) {
+            for (CompletableFuture<V> future : futures.values()) {
+                future.completeExceptionally(error);
+            }
+        }
+    }
+
+    public static final class Builder<K, V> {
+        private final BatchLoader<K, V> loader;
+        private long windowNanos = TimeUnit.MILLISECONDS.toNanos(1);
+        private int maxBatchSize = 100;
+        private ExecutorService executor;
+
+        private Builder(BatchLoader<K, V> loader) {
+            this.loader = loader;
+        }
+
+        /**
+         * 批次从第一次调用开始最多等待多久，0表示不合并，默认1ms
+         */
+        public Builder<K, V> window(long window, TimeUnit unit) {
+            this.windowNanos = unit.toNanos(window);
+            return this;
+        }
+
+        /**
+         * 一个批次最多包含多少个不同的key，默认100
+         */
+        public Builder<K, V> maxBatchSize(int maxBatchSize) {
+            if (maxBatchSize <= 0) {
+                throw new IllegalArgumentException("maxBatchSize must be positive");
+            }
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        public Builder<K, V> executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public MicroBatcher<K, V> build() {
+            return new MicroBatcher<>(this);
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.xinchen.feign;
+
+import feign.AsyncClient;
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.pool.AbstractChannelPoolHandler;
+import io.netty.channel.pool.AbstractChannelPoolMap;
+import io.netty.channel.pool.ChannelPool;
+import io.netty.channel.pool.FixedChannelPool;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static feign.Util.UTF_8;
+
+/**
+ * 基于Netty的非阻塞{@link AsyncClient}，所有请求共用一个event loop，不为每个调用占用线程
+ *
+ * <ul>
+ *     <li>每个host:port一个{@link FixedChannelPool}，连接保持长连接复用，连接数用满后请求在池中排队</li>
+ *     <li>响应由{@link HttpObjectAggregator}聚合到池化的{@link ByteBuf}，body直接从ByteBuf读取，
+ *     {@link Response#close()}时才释放</li>
+ *     <li>连接由{@link FixedChannelPool}在池内建立，连接超时在构造时固定；
+ *     {@link Request.Options#connectTimeoutMillis()}不起作用，只有读超时按每个请求的Options</li>
+ *     <li>返回的{@link CompletableFuture}在event loop线程上完成，后续的解码也在该线程上执行，
+ *     耗时的回调应切换到自己的线程池</li>
+ * </ul>
+ *
+ * 只支持http，没有https
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 21:30
+ */
+public class NettyAsyncClient<C> implements AsyncClient<C>, Closeable {
+    private static final AttributeKey<Call> CALL = AttributeKey.valueOf("feign.call");
+
+    private final EventLoopGroup group;
+    private final boolean ownsGroup;
+    private final AbstractChannelPoolMap<InetSocketAddress, FixedChannelPool> pools;
+    private final int maxContentLength;
+
+    /**
+     * 自己创建event loop(线程数为CPU数*2)，每个host最多256个连接，连接超时与默认的Options一样为10秒
+     */
+    public NettyAsyncClient() {
+        this(new NioEventLoopGroup(), true, 256, 10 << 20, new Request.Options().connectTimeoutMillis());
+    }
+
+    /**
+     * @param group 共享的event loop，由调用方负责关闭
+     * @param maxConnectionsPerHost 每个host:port的连接数上限
+     */
+    public NettyAsyncClient(EventLoopGroup group, int maxConnectionsPerHost) {
+        this(group, maxConnectionsPerHost, new Request.Options().connectTimeoutMillis());
+    }
+
+    /**
+     * @param connectTimeoutMillis 所有连接的建立超时，请求的Options中的连接超时会被忽略
+     */
+    public NettyAsyncClient(EventLoopGroup group, int maxConnectionsPerHost, int connectTimeoutMillis) {
+        this(group, false, maxConnectionsPerHost, 10 << 20, connectTimeoutMillis);
+    }
+
+    private NettyAsyncClient(EventLoopGroup group, boolean ownsGroup, int maxConnectionsPerHost,
+                             int maxContentLength, int connectTimeoutMillis) {
+        this.group = group;
+        this.ownsGroup = ownsGroup;
+        this.maxContentLength = maxContentLength;
+        final Bootstrap bootstrap = new Bootstrap()
+                .group(group)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMillis);
+        this.pools = new AbstractChannelPoolMap<InetSocketAddress, FixedChannelPool>() {
+            @Override
+            protected FixedChannelPool newPool(InetSocketAddress address) {
+                return new FixedChannelPool(bootstrap.clone().remoteAddress(address), new PoolHandler(),
+                        maxConnectionsPerHost);
+            }
+        };
+    }
+
+    @Override
+    public CompletableFuture<Response> execute(Request request, Request.Options options, Optional<C> requestContext) {
+        final CompletableFuture<Response> result = new CompletableFuture<>();
+        final URI uri;
+        try {
+            uri = URI.create(request.url());
+        } catch (IllegalArgumentException e) {
+            result.completeExceptionally(new IOException("URL '" + request.url() + "' couldn't be parsed into a URI", e));
+            return result;
+        }
+        if (!"http".equalsIgnoreCase(uri.getScheme())) {
+            result.completeExceptionally(new IOException("Unsupported scheme: " + uri.getScheme()));
+            return result;
+        }
+
+        final InetSocketAddress address = InetSocketAddress.createUnresolved(uri.getHost(),
+                uri.getPort() < 0 ? 80 : uri.getPort());
+        final FixedChannelPool pool = pools.get(address);
+        final Call call = new Call(request, options, pool, result);
+        pool.acquire().addListener((Future<Channel> acquired) -> {
+            if (!acquired.isSuccess()) {
+                result.completeExceptionally(new IOException("Couldn't connect to " + address, acquired.cause()));
+                return;
+            }
+            call.send(acquired.getNow(), toNettyRequest(request, uri));
+        });
+        return result;
+    }
+
+    private static FullHttpRequest toNettyRequest(Request request, URI uri) {
+        final String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        final String target = uri.getRawQuery() == null ? path : path + '?' + uri.getRawQuery();
+        final byte[] body = request.body();
+        final FullHttpRequest nettyRequest = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1,
+                HttpMethod.valueOf(request.httpMethod().name()), target,
+                body == null ? Unpooled.EMPTY_BUFFER : Unpooled.wrappedBuffer(body));
+
+        final HttpHeaders headers = nettyRequest.headers();
+        for (Map.Entry<String, Collection<String>> header : request.headers().entrySet()) {
+            if (header.getKey().equalsIgnoreCase(Util.CONTENT_LENGTH)) {
+                continue;
+            }
+            headers.add(header.getKey(), header.getValue());
+        }
+        headers.set(HttpHeaderNames.HOST, uri.getPort() < 0 ? uri.getHost() : uri.getHost() + ':' + uri.getPort());
+        headers.set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+        if (!headers.contains(HttpHeaderNames.ACCEPT)) {
+            headers.set(HttpHeaderNames.ACCEPT, "*/*");
+        }
+        HttpUtil.setContentLength(nettyRequest, nettyRequest.content().readableBytes());
+        return nettyRequest;
+    }
+
+    @Override
+    public void close() {
+        pools.close();
+        if (ownsGroup) {
+            group.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * 一次请求：占用一个连接直到响应完整读取、超时或连接断开
+     */
+    private static final class Call {
+        private final Request request;
+        private final Request.Options options;
+        private final ChannelPool pool;
+        private final CompletableFuture<Response> result;
+        private final AtomicBoolean done = new AtomicBoolean();
+        private Channel channel;
+        private ScheduledFuture<?> timeout;
+
+        Call(Request request, Request.Options options, ChannelPool pool, CompletableFuture<Response> result) {
+            this.request = request;
+            this.options = options;
+            this.pool = pool;
+            this.result = result;
+        }
+
+        void send(Channel channel, FullHttpRequest nettyRequest) {
+            this.channel = channel;
+            channel.attr(CALL).set(this);
+            if (options.readTimeoutMillis() > 0) {
+                timeout = channel.eventLoop().schedule(() -> fail(new SocketTimeoutException(
+                        "Read timed out after " + options.readTimeoutMillis() + "ms")),
+                        options.readTimeoutMillis(), TimeUnit.MILLISECONDS);
+            }
+            channel.writeAndFlush(nettyRequest).addListener(written -> {
+                if (!written.isSuccess()) {
+                    fail(new IOException("Failed to send request to " + request.url(), written.cause()));
+                }
+            });
+        }
+
+        void complete(FullHttpResponse response) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            cancelTimeout();
+            channel.attr(CALL).set(null);
+            final boolean keepAlive = HttpUtil.isKeepAlive(response);
+            final Response feignResponse = toFeignResponse(response);
+            if (keepAlive) {
+                pool.release(channel);
+            } else {
+                channel.close().addListener(closed -> pool.release(channel));
+            }
+            result.complete(feignResponse);
+        }
+
+        void fail(Throwable cause) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            cancelTimeout();
+            channel.attr(CALL).set(null);
+            // 连接状态未知，直接关闭，不放回池中复用
+            channel.close().addListener(closed -> pool.release(channel));
+            result.completeExceptionally(cause);
+        }
+
+        private void cancelTimeout() {
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+        }
+
+        private Response toFeignResponse(FullHttpResponse response) {
+            final Map<String, Collection<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (Map.Entry<String, String> header : response.headers()) {
+                headers.computeIfAbsent(header.getKey(), name -> new ArrayList<>()).add(header.getValue());
+            }
+            // 聚合后的content是池化的ByteBuf，保留到feign response关闭
+            final ByteBuf content = response.content().retain();
+            return Response.builder()
+                    .status(response.status().code())
+                    .reason(response.status().reasonPhrase())
+                    .headers(headers)
+                    .request(request)
+                    .body(new ByteBufBody(content))
+                    .build();
+        }
+    }
+
+    private static final class ByteBufBody implements Response.Body {
+        private final ByteBuf content;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ByteBufBody(ByteBuf content) {
+            this.content = content;
+        }
+
+        @Override
+        public Integer length() {
+            return content.readableBytes();
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public InputStream asInputStream() throws IOException {
+            if (released.get()) {
+                throw new IOException("Response body is closed");
+            }
+            // 每次从头读，不改动原ByteBuf的读指针
+            return new ByteBufInputStream(content.duplicate());
+        }
+
+        @SuppressWarnings("deprecation")
+        @Override
+        public Reader asReader() throws IOException {
+            return new InputStreamReader(asInputStream(), UTF_8);
+        }
+
+        @Override
+        public Reader asReader(Charset charset) throws IOException {
+            Util.checkNotNull(charset, "charset should not be null");
+            return new InputStreamReader(asInputStream(), charset);
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                content.release();
+            }
+        }
+    }
+
+    private final class PoolHandler extends AbstractChannelPoolHandler {
+        @Override
+        public void channelCreated(Channel ch) {
+            ch.pipeline()
+                    .addLast(new HttpClientCodec())
+                    .addLast(new HttpObjectAggregator(maxContentLength))
+                    .addLast(new ResponseHandler());
+        }
+    }
+
+    private static final class ResponseHandler extends SimpleChannelInboundHandler<FullHttpResponse> {
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse response) {
+            final Call call = ctx.channel().attr(CALL).get();
+            if (call != null) {
+                call.complete(response);
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            final Call call = ctx.channel().attr(CALL).get();
+            if (call != null) {
+                call.fail(new IOException("Connection closed before response was received"));
+            }
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            final Call call = ctx.channel().attr(CALL).get();
+            if (call != null) {
+                call.fail(cause instanceof IOException ? cause : new IOException(cause));
+            } else {
+                ctx.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.xinchen.feign;
+
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 把缓存的body拷贝到{@link SlabAllocator}分配的直接内存中，缓存中的大量body不再占用堆，减少GC扫描和晋升
+ *
+ * body超过slab的pageSize或者直接内存用尽时退回到堆内存储
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 18:20
+ */
+public class OffHeapBodyStorage implements BodyStorage {
+    private final SlabAllocator allocator;
+
+    /**
+     * @param capacity 最多使用的直接内存字节数
+     */
+    public OffHeapBodyStorage(long capacity) {
+        this(new SlabAllocator(capacity));
+    }
+
+    public OffHeapBodyStorage(SlabAllocator allocator) {
+        this.allocator = allocator;
+    }
+
+    public SlabAllocator allocator() {
+        return allocator;
+    }
+
+    @Override
+    public CachedBody store(CachedBody body) {
+        // 304复用的body已经在堆外，多加一份引用即可
+        if (body instanceof OffHeapBody) {
+            return body.retain() ? body : null;
+        }
+        if (!(body instanceof CachedBody.Heap)) {
+            return body;
+        }
+        final byte[] bytes = ((CachedBody.Heap) body).bytes();
+        final ByteBuffer chunk = allocator.allocate(bytes.length);
+        if (chunk == null) {
+            return body;
+        }
+        chunk.put(bytes);
+        return new OffHeapBody(allocator, chunk, bytes.length);
+    }
+
+    /**
+     * 创建时引用计数为1(属于缓存)，归零后chunk还给分配器
+     */
+    static final class OffHeapBody extends CachedBody {
+        private final SlabAllocator allocator;
+        private final ByteBuffer chunk;
+        private final int size;
+        private final AtomicInteger refCnt = new AtomicInteger(1);
+
+        OffHeapBody(SlabAllocator allocator, ByteBuffer chunk, int size) {
+            this.allocator = allocator;
+            this.chunk = chunk;
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public InputStream asInputStream() {
+            final ByteBuffer view = chunk.duplicate();
+            ((Buffer) view).position(0).limit(size);
+            return new ByteBufferInputStream(view);
+        }
+
+        @Override
+        public boolean isRefCounted() {
+            return true;
+        }
+
+        @Override
+        public boolean retain() {
+            while (true) {
+                final int current = refCnt.get();
+                if (current <= 0) {
+                    return false;
+                }
+                if (refCnt.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        public void release() {
+            final int remaining = refCnt.decrementAndGet();
+            if (remaining == 0) {
+                allocator.free(chunk);
+            } else if (remaining < 0) {
+                throw new IllegalStateException("OffHeapBody released too many times");
+            }
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.xinchen.feign;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 开环压测：按固定速率发起调用，不等上一次调用返回
+ *
+ * <pre>
+ * OpenLoopLoadGenerator.Result result = OpenLoopLoadGenerator.builder()
+ *         .rate(500)
+ *         .duration(10, TimeUnit.SECONDS)
+ *         .build()
+ *         .run(() -&gt; api.query().close());
+ * System.out.println(result);
+ * </pre>
+ *
+ * JMH的Throughput/for循环是闭环的：调用方被慢请求卡住时就不再发请求，排队时间被藏了起来(coordinated omission)。
+ * 这里第i次调用的计划开始时间固定为start + i / rate，延迟从计划开始时间算起，
+ * 调度线程或执行线程池跟不上时，排队的时间也计入延迟。同时记录从实际开始执行算起的服务时间作为对比
+ *
+ * 调用默认在虚拟线程(JDK 21以下为按需创建的平台线程)上执行，传入有界的executor可以模拟Hystrix线程池等调用方排队。
+ * 在途调用超过maxOutstanding时不再发起，计入dropped，避免被压垮的客户端耗尽内存
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 05:20
+ */
+public final class OpenLoopLoadGenerator {
+
+    /**
+     * 一次被测调用，抛出异常计为错误
+     */
+    @FunctionalInterface
+    public interface Call {
+        void call() throws Exception;
+    }
+
+    private final double rate;
+    private final long durationNanos;
+    private final long warmupNanos;
+    private final int maxOutstanding;
+    private final ExecutorService executor;
+
+    private OpenLoopLoadGenerator(Builder builder) {
+        this.rate = builder.rate;
+        this.durationNanos = builder.durationNanos;
+        this.warmupNanos = builder.warmupNanos;
+        this.maxOutstanding = builder.maxOutstanding;
+        this.executor = builder.executor;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 在当前线程上调度，先预热warmup再测量duration，返回前等待在途调用结束(最多等duration)
+     */
+    public Result run(Call call) throws InterruptedException {
+        final ExecutorService workers = executor != null ? executor : VirtualThreads.newExecutor("feign-load-");
+        final Recorder latency = new Recorder(3);
+        final Recorder service = new Recorder(3);
+        final LongAdder completed = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder dropped = new LongAdder();
+        final AtomicInteger outstanding = new AtomicInteger();
+        final LongAccumulator lastFinish = new LongAccumulator(Math::max, 0);
+
+        final double intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        final long start = System.nanoTime();
+        final long measureStart = start + warmupNanos;
+        final long end = measureStart + durationNanos;
+        try {
+            for (long i = 0; ; i++) {
+                final long intended = start + (long) (i * intervalNanos);
+                if (intended - end >= 0) {
+                    break;
+                }
+                waitUntil(intended);
+                final boolean measured = intended - measureStart >= 0;
+                if (outstanding.get() >= maxOutstanding) {
+                    if (measured) {
+                        dropped.increment();
+                    }
+                    continue;
+                }
+                outstanding.incrementAndGet();
+                try {
+                    workers.execute(() -> {
+                        final long begin = System.nanoTime();
+                        boolean failed = false;
+                        try {
+                            call.call();
+                        } catch (Exception e) {
+                            failed = true;
+                        } finally {
+                            final long now = System.nanoTime();
+                            outstanding.decrementAndGet();
+                            if (measured) {
+                                lastFinish.accumulate(now - measureStart);
+                                latency.recordValue(now - intended);
+                                service.recordValue(now - begin);
+                                (failed ? errors : completed).increment();
+                            }
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    outstanding.decrementAndGet();
+                    if (measured) {
+                        errors.increment();
+                    }
+                }
+            }
+            final long drainDeadline = System.nanoTime() + durationNanos;
+            while (outstanding.get() > 0 && System.nanoTime() - drainDeadline < 0) {
+                Thread.sleep(1);
+            }
+        } finally {
+            if (executor == null) {
+                workers.shutdownNow();
+            }
+        }
+        // 跟不上速率时调用在测量结束后才完成，达到的速率按最后一次完成的时间算
+        final long elapsedNanos = Math.max(durationNanos, lastFinish.get());
+        return new Result(rate, elapsedNanos, completed.sum(), errors.sum(), dropped.sum(), outstanding.get(),
+                latency.getIntervalHistogram(), service.getIntervalHistogram());
+    }
+
+    private static void waitUntil(long deadline) throws InterruptedException {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * 一次压测的结果，延迟单位为纳秒
+     */
+    public static final class Result {
+        private final double targetRate;
+        private final long elapsedNanos;
+        private final long completed;
+        private final long errors;
+        private final long dropped;
+        private final long unfinished;
+        private final Histogram latency;
+        private final Histogram service;
+
+        Result(double targetRate, long elapsedNanos, long completed, long errors, long dropped, long unfinished,
+               Histogram latency, Histogram service) {
+            this.targetRate = targetRate;
+            this.elapsedNanos = elapsedNanos;
+            this.completed = completed;
+            this.errors = errors;
+            this.dropped = dropped;
+            this.unfinished = unfinished;
+            this.latency = latency;
+            this.service = service;
+        }
+
+        public double targetRate() {
+            return targetRate;
+        }
+
+        /**
+         * 测量期间每秒成功完成的调用数
+         */
+        public double achievedRate() {
+            return completed * 1e9 / elapsedNanos;
+        }
+
+        public long completed() {
+            return completed;
+        }
+
+        public long errors() {
+            return errors;
+        }
+
+        /**
+         * 因为在途调用过多而没有发起的调用数
+         */
+        public long dropped() {
+            return dropped;
+        }
+
+        /**
+         * 等待结束时仍未返回的调用数，它们的延迟没有被记录
+         */
+        public long unfinished() {
+            return unfinished;
+        }
+
+        /**
+         * 错误、丢弃和未完成的调用占计划调用数的比例
+         */
+        public double failureRatio() {
+            final long failed = errors + dropped + unfinished;
+            final long total = completed + failed;
+            return total == 0 ? 0 : (double) failed / total;
+        }
+
+        /**
+         * 从计划开始时间算起的延迟(已修正coordinated omission)
+         */
+        public Histogram latency() {
+            return latency;
+        }
+
+        /**
+         * 从实际开始执行算起的服务时间(未修正)，与{@link #latency()}的差就是排队时间
+         */
+        public Histogram service() {
+            return service;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("target %.0f/s, achieved %.1f/s, errors %d, dropped %d, unfinished %d, "
+                            + "latency ms p50 %.2f p90 %.2f p99 %.2f p99.9 %.2f max %.2f, service p99 %.2f",
+                    targetRate, achievedRate(), errors, dropped, unfinished,
+                    millis(latency, 50), millis(latency, 90), millis(latency, 99), millis(latency, 99.9),
+                    latency.getMaxValue() / 1e6, millis(service, 99));
+        }
+
+        static double millis(Histogram histogram, double percentile) {
+            return histogram.getValueAtPercentile(percentile) / 1e6;
+        }
+    }
+
+    public static final class Builder {
+        private double rate = 100;
+        private long durationNanos = TimeUnit.SECONDS.toNanos(10);
+        private long warmupNanos = TimeUnit.SECONDS.toNanos(2);
+        private int maxOutstanding = 10_000;
+        private ExecutorService executor;
+
+        private Builder() {
+        }
+
+        /**
+         * 每秒发起的调用数
+         */
+        public Builder rate(double perSecond) {
+            if (perSecond <= 0) {
+                throw new IllegalArgumentException("rate must be positive");
+            }
+            this.rate = perSecond;
+            return this;
+        }
+
+        public Builder duration(long duration, TimeUnit unit) {
+            this.durationNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * 预热期间按同样速率调用但不记录，默认2s
+         */
+        public Builder warmup(long warmup, TimeUnit unit) {
+            this.warmupNanos = unit.toNanos(warmup);
+            return this;
+        }
+
+        public Builder maxOutstanding(int maxOutstanding) {
+            this.maxOutstanding = maxOutstanding;
+            return this;
+        }
+
+        /**
+         * 执行调用的线程池，由调用方负责关闭；不设置时每次run使用新的虚拟线程执行器
+         */
+        public Builder executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public OpenLoopLoadGenerator build() {
+            return new OpenLoopLoadGenerator(this);
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package com.xinchen.feign;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import feign.Capability;
+import feign.Client;
+import feign.ExceptionPropagationPolicy;
+import feign.Feign;
+import feign.InvocationHandlerFactory;
+import feign.Logger;
+import feign.Request;
+import feign.Response;
+import feign.RetryableException;
+import feign.Retryer;
+import feign.codec.Decoder;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按参数值缓存解析好的{@link Request}，命中时跳过RequestTemplate的展开、URL编码、拦截器和Target.apply
+ *
+ * <pre>
+ * Feign.builder()
+ *      .addCapability(RequestCacheCapability.builder().cache("TestInterface#headers(String)", 1024).build())
+ *      .target(TestInterface.class, url);
+ * </pre>
+ *
+ * <ul>
+ *     <li>只缓存显式指定的方法(key与{@link Feign#configKey}相同)，每个代理的每个方法一个有上限的LRU，
+ *     key是参数列表，参数需要有稳定的equals/hashCode</li>
+ *     <li>未命中时走Feign原来的流程，Client在同一线程里拿到最终的Request后存入缓存</li>
+ *     <li>命中时按SynchronousMethodHandler的流程执行，client、retryer、options、logger以及decode404、
+ *     doNotCloseAfterDecode、ErrorDecoder、ExceptionPropagationPolicy都取自这个方法原来的handler，
+ *     所以同一个实例给多个Feign.Builder或多个target使用时，每个代理仍然用自己的配置和缓存。拦截器的结果随Request一起被缓存，
+ *     只适用于拦截器输出不随时间变化的方法</li>
+ *     <li>这些配置是SynchronousMethodHandler的私有字段，只能反射读取；方法的handler不是它时不缓存这个方法</li>
+ *     <li>替换的是dispatch里的MethodHandler而不是InvocationHandler，与其他包装InvocationHandler的Capability
+ *     (如{@link CircuitBreakerCapability})的添加顺序无关</li>
+ * </ul>
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 07:50
+ */
+public final class RequestCacheCapability implements Capability {
+    private static final String SYNCHRONOUS_METHOD_HANDLER = "feign.SynchronousMethodHandler";
+
+    private final Map<String, Long> maximumSizes;
+    /**
+     * configKey -> 各个代理的缓存，只用于汇总统计
+     */
+    private final Map<String, List<Cache<List<Object>, Request>>> caches = new ConcurrentHashMap<>();
+    /**
+     * 未命中时由CapturingClient填入本线程正在执行的Request
+     */
+    private final ThreadLocal<Request[]> capture = new ThreadLocal<>();
+
+    private RequestCacheCapability(Builder builder) {
+        this.maximumSizes = new LinkedHashMap<>(builder.maximumSizes);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * configKey -> 所有代理合计的命中统计
+     */
+    public Map<String, CacheStats> stats() {
+        final Map<String, CacheStats> stats = new LinkedHashMap<>();
+        for (String configKey : maximumSizes.keySet()) {
+            CacheStats total = CacheStats.empty();
+            for (Cache<List<Object>, Request> cache : caches.getOrDefault(configKey, Collections.emptyList())) {
+                total = total.plus(cache.stats());
+            }
+            stats.put(configKey, total);
+        }
+        return stats;
+    }
+
+    @Override
+    public Client enrich(Client client) {
+        return new CapturingClient(client);
+    }
+
+    @Override
+    public InvocationHandlerFactory enrich(InvocationHandlerFactory invocationHandlerFactory) {
+        return (target, dispatch) -> {
+            // 替换的是dispatch里的MethodHandler，其他Capability包装的InvocationHandler照常生效
+            final Map<Method, InvocationHandlerFactory.MethodHandler> cached = new LinkedHashMap<>(dispatch);
+            for (Map.Entry<Method, InvocationHandlerFactory.MethodHandler> entry : dispatch.entrySet()) {
+                final String configKey = Feign.configKey(target.type(), entry.getKey());
+                final Long maximumSize = maximumSizes.get(configKey);
+                final InvocationHandlerFactory.MethodHandler handler = entry.getValue();
+                if (maximumSize != null && SYNCHRONOUS_METHOD_HANDLER.equals(handler.getClass().getName())) {
+                    final Cache<List<Object>, Request> cache = Caffeine.newBuilder()
+                            .maximumSize(maximumSize)
+                            .recordStats()
+                            .build();
+                    caches.computeIfAbsent(configKey, key -> new CopyOnWriteArrayList<>()).add(cache);
+                    cached.put(entry.getKey(), new CachedMethod(configKey, entry.getKey(), handler, cache));
+                }
+            }
+            return invocationHandlerFactory.create(target, cached);
+        };
+    }
+
+    private final class CapturingClient implements Client {
+        private final Client delegate;
+
+        CapturingClient(Client delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Response execute(Request request, Request.Options options) throws IOException {
+            final Request[] slot = capture.get();
+            if (slot != null && slot[0] == null) {
+                slot[0] = request;
+            }
+            return delegate.execute(request, options);
+        }
+    }
+
+    /**
+     * 未命中时交给原来的SynchronousMethodHandler并记下Request；
+     * 命中时按SynchronousMethodHandler.invoke执行，只是把targetRequest(template)换成缓存的Request
+     */
+    private final class CachedMethod implements InvocationHandlerFactory.MethodHandler {
+        private final InvocationHandlerFactory.MethodHandler delegate;
+        private final String configKey;
+        private final Type returnType;
+        private final int optionsIndex;
+        private final Cache<List<Object>, Request> cache;
+
+        private final Client client;
+        private final Retryer retryer;
+        private final Request.Options options;
+        private final Logger logger;
+        private final Logger.Level logLevel;
+        private final ExceptionPropagationPolicy propagationPolicy;
+        /**
+         * 只有forceDecoding时不为null，与SynchronousMethodHandler一致
+         */
+        private final Decoder decoder;
+        private final Object responseHandler;
+
+        CachedMethod(String configKey, Method method, InvocationHandlerFactory.MethodHandler handler,
+                     Cache<List<Object>, Request> cache) {
+            this.delegate = handler;
+            this.configKey = configKey;
+            this.returnType = method.getGenericReturnType();
+            this.optionsIndex = Arrays.asList(method.getParameterTypes()).indexOf(Request.Options.class);
+            this.cache = cache;
+
+            final Client handlerClient = (Client) HandlerFields.read(HandlerFields.CLIENT, handler);
+            // 命中时不需要记录Request，直接用被包装的Client
+            this.client = handlerClient instanceof CapturingClient ? ((CapturingClient) handlerClient).delegate : handlerClient;
+            this.retryer = (Retryer) HandlerFields.read(HandlerFields.RETRYER, handler);
+            this.options = (Request.Options) HandlerFields.read(HandlerFields.OPTIONS, handler);
+            this.logger = (Logger) HandlerFields.read(HandlerFields.LOGGER, handler);
+            this.logLevel = (Logger.Level) HandlerFields.read(HandlerFields.LOG_LEVEL, handler);
+            this.propagationPolicy = (ExceptionPropagationPolicy) HandlerFields.read(HandlerFields.PROPAGATION_POLICY, handler);
+            this.decoder = (Decoder) HandlerFields.read(HandlerFields.DECODER, handler);
+            this.responseHandler = HandlerFields.read(HandlerFields.RESPONSE_HANDLER, handler);
+        }
+
+        @Override
+        public Object invoke(Object[] args) throws Throwable {
+            final List<Object> key = args == null ? Collections.emptyList() : Arrays.asList(args);
+            final Request request = cache.getIfPresent(key);
+            if (request != null) {
+                return execute(request, args);
+            }
+
+            final Request[] previous = capture.get();
+            final Request[] slot = new Request[1];
+            capture.set(slot);
+            try {
+                return delegate.invoke(args);
+            } finally {
+                capture.set(previous);
+                // 调用失败时Request本身仍然是正确的，一样缓存
+                if (slot[0] != null) {
+                    cache.put(key, slot[0]);
+                }
+            }
+        }
+
+        private Object execute(Request request, Object[] args) throws Throwable {
+            final Request.Options callOptions = optionsIndex >= 0 && args[optionsIndex] != null
+                    ? (Request.Options) args[optionsIndex]
+                    : options;
+            final Retryer attempts = retryer.clone();
+            while (true) {
+                try {
+                    return executeAndDecode(request, callOptions);
+                } catch (RetryableException e) {
+                    try {
+                        attempts.continueOrPropagate(e);
+                    } catch (RetryableException th) {
+                        final Throwable cause = th.getCause();
+                        if (propagationPolicy == ExceptionPropagationPolicy.UNWRAP && cause != null) {
+                            throw cause;
+                        }
+                        throw th;
+                    }
+                    if (logLevel != Logger.Level.NONE) {
+                        HandlerFields.invoke(HandlerFields.LOG_RETRY, logger, configKey, logLevel);
+                    }
+                }
+            }
+        }
+
+        private Object executeAndDecode(Request request, Request.Options callOptions) throws Throwable {
+            if (logLevel != Logger.Level.NONE) {
+                HandlerFields.invoke(HandlerFields.LOG_REQUEST, logger, configKey, logLevel, request);
+            }
+            final long start = System.nanoTime();
+            final Response response;
+            try {
+                response = client.execute(request, callOptions).toBuilder().request(request).build();
+            } catch (IOException e) {
+                if (logLevel != Logger.Level.NONE) {
+                    HandlerFields.invoke(HandlerFields.LOG_IO_EXCEPTION, logger, configKey, logLevel, e, elapsedMillis(start));
+                }
+                throw new RetryableException(-1, String.format("%s executing %s %s", e.getMessage(), request.httpMethod(), request.url()),
+                        request.httpMethod(), e, null, request);
+            }
+            final long elapsed = elapsedMillis(start);
+
+            if (decoder != null) {
+                return decoder.decode(response, returnType);
+            }
+            // AsyncResponseHandler负责日志、decode404、closeAfterDecode和ErrorDecoder，并且总是同步完成
+            final CompletableFuture<Object> result = new CompletableFuture<>();
+            HandlerFields.invoke(HandlerFields.HANDLE_RESPONSE, responseHandler, result, configKey, response, returnType, elapsed);
+            try {
+                if (!result.isDone()) {
+                    throw new IllegalStateException("Response handling not done");
+                }
+                return result.join();
+            } catch (CompletionException e) {
+                throw e.getCause() != null ? e.getCause() : e;
+            }
+        }
+
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * SynchronousMethodHandler和AsyncResponseHandler都是包级私有的，Logger的log方法是protected
+     */
+    private static final class HandlerFields {
+        static final Field CLIENT;
+        static final Field RETRYER;
+        static final Field OPTIONS;
+        static final Field LOGGER;
+        static final Field LOG_LEVEL;
+        static final Field PROPAGATION_POLICY;
+        static final Field DECODER;
+        static final Field RESPONSE_HANDLER;
+        static final Method HANDLE_RESPONSE;
+        static final Method LOG_REQUEST;
+        static final Method LOG_RETRY;
+        static final Method LOG_IO_EXCEPTION;
+
+        static {
+            try {
+                final Class<?> handler = Class.forName(SYNCHRONOUS_METHOD_HANDLER);
+                CLIENT = field(handler, "client");
+                RETRYER = field(handler, "retryer");
+                OPTIONS = field(handler, "options");
+                LOGGER = field(handler, "logger");
+                LOG_LEVEL = field(handler, "logLevel");
+                PROPAGATION_POLICY = field(handler, "propagationPolicy");
+                DECODER = field(handler, "decoder");
+                RESPONSE_HANDLER = field(handler, "asyncResponseHandler");
+                HANDLE_RESPONSE = method(RESPONSE_HANDLER.getType(), "handleResponse",
+                        CompletableFuture.class, String.class, Response.class, Type.class, long.class);
+                LOG_REQUEST = method(Logger.class, "logRequest", String.class, Logger.Level.class, Request.class);
+                LOG_RETRY = method(Logger.class, "logRetry", String.class, Logger.Level.class);
+                LOG_IO_EXCEPTION = method(Logger.class, "logIOException",
+                        String.class, Logger.Level.class, IOException.class, long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private static Field field(Class<?> type, String name) throws NoSuchFieldException {
+            final Field field = type.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        }
+
+        private static Method method(Class<?> type, String name, Class<?>... parameterTypes) throws NoSuchMethodException {
+            final Method method = type.getDeclaredMethod(name, parameterTypes);
+            method.setAccessible(true);
+            return method;
+        }
+
+        static Object invoke(Method method, Object target, Object... args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        static Object read(Field field, Object handler) {
+            try {
+                return field.get(handler);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    public static final class Builder {
+        private final Map<String, Long> maximumSizes = new LinkedHashMap<>();
+
+        /**
+         * 缓存configKey对应方法的Request，最多maximumSize组参数
+         */
+        public Builder cache(String configKey, long maximumSize) {
+            maximumSizes.put(configKey, maximumSize);
+            return this;
+        }
+
+        public RequestCacheCapability build() {
+            if (maximumSizes.isEmpty()) {
+                throw new IllegalStateException("No method to cache");
+            }
+            return new RequestCacheCapability(this);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.xinchen.feign;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的滚动计数窗口：固定数量的bucket组成环，每个bucket覆盖bucketNanos，计数用{@link LongAdder}分散竞争
+ *
+ * bucket按时间轮转复用，过期的bucket由第一个发现的线程CAS抢到后清零。清零和并发累加之间可能丢掉少量计数，
+ * 对熔断判断来说可以接受，换来记录路径上没有锁
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 23:20
+ */
+final class RollingWindow {
+    private final Bucket[] buckets;
+    private final long bucketNanos;
+
+    RollingWindow(int bucketCount, long bucketNanos) {
+        if (bucketCount <= 0 || bucketNanos <= 0) {
+            throw new IllegalArgumentException("bucketCount and bucketNanos must be positive");
+        }
+        this.bucketNanos = bucketNanos;
+        this.buckets = new Bucket[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new Bucket();
+        }
+    }
+
+    void record(long nowNanos, boolean failure, boolean slow) {
+        final Bucket bucket = current(nowNanos);
+        bucket.calls.increment();
+        if (failure) {
+            bucket.failures.increment();
+        }
+        if (slow) {
+            bucket.slow.increment();
+        }
+    }
+
+    /**
+     * @return 窗口内的{调用数, 失败数, 慢调用数}
+     */
+    long[] snapshot(long nowNanos) {
+        final long epoch = Math.floorDiv(nowNanos, bucketNanos);
+        final long[] totals = new long[3];
+        for (Bucket bucket : buckets) {
+            if (bucket.epoch > epoch - buckets.length) {
+                totals[0] += bucket.calls.sum();
+                totals[1] += bucket.failures.sum();
+                totals[2] += bucket.slow.sum();
+            }
+        }
+        return totals;
+    }
+
+    void reset() {
+        for (Bucket bucket : buckets) {
+            Bucket.EPOCH.set(bucket, Long.MIN_VALUE);
+            bucket.clear();
+        }
+    }
+
+    private Bucket current(long nowNanos) {
+        final long epoch = Math.floorDiv(nowNanos, bucketNanos);
+        final Bucket bucket = buckets[(int) Math.floorMod(epoch, (long) buckets.length)];
+        final long seen = bucket.epoch;
+        if (seen < epoch && Bucket.EPOCH.compareAndSet(bucket, seen, epoch)) {
+            bucket.clear();
+        }
+        return bucket;
+    }
+
+    private static final class Bucket {
+        static final AtomicLongFieldUpdater<Bucket> EPOCH = AtomicLongFieldUpdater.newUpdater(Bucket.class, "epoch");
+
+        volatile long epoch = Long.MIN_VALUE;
+        final LongAdder calls = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder slow = new LongAdder();
+
+        void clear() {
+            calls.reset();
+            failures.reset();
+            slow.reset();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.xinchen.feign;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于直接内存的slab分配器(memcached风格)
+ *
+ * 内存按page(默认1MB)向操作系统申请，每个page只属于一个size class，切成等长的chunk。
+ * size class从64B开始按growthFactor递增到pageSize。chunk释放后回到所属size class的空闲链表复用，
+ * page申请后不再归还，总量不超过capacity
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 18:10
+ */
+public class SlabAllocator {
+    private static final int MIN_CHUNK_SIZE = 64;
+
+    private final int pageSize;
+    private final long capacity;
+    private final SizeClass[] classes;
+    private final AtomicLong reserved = new AtomicLong();
+
+    /**
+     * @param capacity 最多申请的直接内存字节数
+     */
+    public SlabAllocator(long capacity) {
+        this(capacity, 1 << 20, 1.25);
+    }
+
+    public SlabAllocator(long capacity, int pageSize, double growthFactor) {
+        if (pageSize < MIN_CHUNK_SIZE || growthFactor <= 1) {
+            throw new IllegalArgumentException("pageSize must be >= " + MIN_CHUNK_SIZE + " and growthFactor > 1");
+        }
+        this.pageSize = pageSize;
+        this.capacity = capacity;
+
+        final List<SizeClass> sizes = new ArrayList<>();
+        int size = MIN_CHUNK_SIZE;
+        while (size < pageSize) {
+            sizes.add(new SizeClass(size));
+            // 8字节对齐
+            size = Math.max(size + 8, (int) (size * growthFactor) + 7 & ~7);
+        }
+        sizes.add(new SizeClass(pageSize));
+        this.classes = sizes.toArray(new SizeClass[0]);
+    }
+
+    /**
+     * @return 容量至少为size的chunk(position=0, limit=capacity)，超过pageSize或内存用尽时返回null
+     */
+    public ByteBuffer allocate(int size) {
+        final SizeClass sizeClass = classFor(size);
+        return sizeClass == null ? null : sizeClass.allocate();
+    }
+
+    /**
+     * 归还{@link #allocate(int)}得到的chunk，之后不能再访问
+     */
+    public void free(ByteBuffer chunk) {
+        final SizeClass sizeClass = classFor(chunk.capacity());
+        if (sizeClass == null || sizeClass.chunkSize != chunk.capacity()) {
+            throw new IllegalArgumentException("Not a chunk of this allocator: " + chunk);
+        }
+        sizeClass.free(chunk);
+    }
+
+    private SizeClass classFor(int size) {
+        int low = 0;
+        int high = classes.length - 1;
+        if (size > classes[high].chunkSize) {
+            return null;
+        }
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (classes[mid].chunkSize < size) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return classes[low];
+    }
+
+    private boolean reservePage() {
+        while (true) {
+            final long current = reserved.get();
+            if (current + pageSize > capacity) {
+                return false;
+            }
+            if (reserved.compareAndSet(current, current + pageSize)) {
+                return true;
+            }
+        }
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    /**
+     * 已向操作系统申请的直接内存
+     */
+    public long reservedBytes() {
+        return reserved.get();
+    }
+
+    /**
+     * 正在使用的chunk占用的字节数
+     */
+    public long usedBytes() {
+        long used = 0;
+        for (SizeClass sizeClass : classes) {
+            used += sizeClass.usedBytes();
+        }
+        return used;
+    }
+
+    private final class SizeClass {
+        private final int chunkSize;
+        private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+        private long used;
+
+        SizeClass(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        synchronized ByteBuffer allocate() {
+            ByteBuffer chunk = free.poll();
+            if (chunk == null && grow()) {
+                chunk = free.poll();
+            }
+            if (chunk != null) {
+                used++;
+                ((Buffer) chunk).clear();
+            }
+            return chunk;
+        }
+
+        synchronized void free(ByteBuffer chunk) {
+            used--;
+            free.push(chunk);
+        }
+
+        synchronized long usedBytes() {
+            return used * chunkSize;
+        }
+
+        private boolean grow() {
+            if (!reservePage()) {
+                return false;
+            }
+            final ByteBuffer page = ByteBuffer.allocateDirect(pageSize);
+            for (int offset = 0; offset + chunkSize <= pageSize; offset += chunkSize) {
+                // 转成Buffer调用，避免JDK9+编译出的协变返回值在Java 8上NoSuchMethodError
+                ((Buffer) page).limit(offset + chunkSize).position(offset);
+                free.add(page.slice());
+            }
+            return true;
+        }
+    }
+}
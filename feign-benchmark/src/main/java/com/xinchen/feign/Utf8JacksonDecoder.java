@@ -0,0 +1,190 @@
+package com.xinchen.feign;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import feign.Response;
+import feign.Util;
+import feign.codec.DecodeException;
+import feign.codec.Decoder;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.Reader;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static feign.Util.ensureClosed;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * UTF-8的body直接交给Jackson的字节解析器，不经过InputStreamReader的字符解码
+ *
+ * <ul>
+ *     <li>body实现了{@link ArrayBackedBody}(例如{@link CacheableApacheHttpClient}的堆内缓存)时直接解析byte[]</li>
+ *     <li>其他body从{@link InputStream}解析</li>
+ *     <li>Content-Type声明了非UTF-8编码时退回Reader，与{@link feign.jackson.JacksonDecoder}一致</li>
+ * </ul>
+ *
+ * 返回类型是{@code Iterator<T>}时按{@link feign.jackson.JacksonIteratorDecoder}的方式逐个解析，
+ * 需要配合{@code Feign.Builder#doNotCloseAfterDecode()}，读完或close迭代器时关闭response；
+ * 外面包一层{@link feign.stream.StreamDecoder}即可支持{@code Stream<T>}
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 00:10
+ */
+public class Utf8JacksonDecoder implements Decoder {
+    private final ObjectMapper mapper;
+
+    public Utf8JacksonDecoder() {
+        this(new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false));
+    }
+
+    public Utf8JacksonDecoder(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    @Override
+    public Object decode(Response response, Type type) throws IOException {
+        if (response.status() == 404 || response.status() == 204) {
+            return Util.emptyValueOf(type);
+        }
+        final Response.Body body = response.body();
+        if (body == null) {
+            return null;
+        }
+        final Type elementType = iteratorElementType(type);
+        final JavaType javaType = mapper.constructType(elementType != null ? elementType : type);
+        final JsonParser parser = createParser(response, body);
+        if (parser == null) {
+            return elementType != null ? Util.emptyValueOf(type) : null;
+        }
+        if (elementType != null) {
+            return new Utf8Iterator<>(response, parser, mapper.readerFor(javaType));
+        }
+        try (JsonParser closing = parser) {
+            return mapper.readValue(closing, javaType);
+        } catch (RuntimeJsonMappingException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return body为空时返回null
+     */
+    private JsonParser createParser(Response response, Response.Body body) throws IOException {
+        if (!UTF_8.equals(response.charset())) {
+            Reader reader = body.asReader(response.charset());
+            if (!reader.markSupported()) {
+                reader = new BufferedReader(reader, 1);
+            }
+            reader.mark(1);
+            if (reader.read() == -1) {
+                return null;
+            }
+            reader.reset();
+            return mapper.getFactory().createParser(reader);
+        }
+        if (body instanceof ArrayBackedBody) {
+            final byte[] array = ((ArrayBackedBody) body).array();
+            if (array != null) {
+                return array.length == 0 ? null : mapper.getFactory().createParser(array);
+            }
+        }
+        InputStream input = body.asInputStream();
+        if (input.markSupported()) {
+            input.mark(1);
+            if (input.read() == -1) {
+                return null;
+            }
+            input.reset();
+        } else {
+            final PushbackInputStream pushback = new PushbackInputStream(input, 1);
+            final int first = pushback.read();
+            if (first == -1) {
+                return null;
+            }
+            pushback.unread(first);
+            input = pushback;
+        }
+        return mapper.getFactory().createParser(input);
+    }
+
+    private static Type iteratorElementType(Type type) {
+        if (type instanceof ParameterizedType && ((ParameterizedType) type).getRawType() == Iterator.class) {
+            return Util.resolveLastTypeParameter(type, Iterator.class);
+        }
+        return null;
+    }
+
+    static final class Utf8Iterator<T> implements Iterator<T>, Closeable {
+        private final Response response;
+        private final JsonParser parser;
+        private final ObjectReader objectReader;
+        private T current;
+
+        Utf8Iterator(Response response, JsonParser parser, ObjectReader objectReader) {
+            this.response = response;
+            this.parser = parser;
+            this.objectReader = objectReader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (current == null) {
+                current = readNext();
+            }
+            return current != null;
+        }
+
+        @Override
+        public T next() {
+            if (current != null) {
+                final T next = current;
+                current = null;
+                return next;
+            }
+            final T next = readNext();
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            return next;
+        }
+
+        private T readNext() {
+            try {
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.START_ARRAY) {
+                    token = parser.nextToken();
+                }
+                if (token == null || token == JsonToken.END_ARRAY) {
+                    close();
+                    return null;
+                }
+                return objectReader.readValue(parser);
+            } catch (IOException e) {
+                close();
+                throw new DecodeException(response.status(), "Failed to parse stream", response.request(), e);
+            }
+        }
+
+        @Override
+        public void close() {
+            ensureClosed(parser);
+            ensureClosed(response);
+        }
+    }
+}
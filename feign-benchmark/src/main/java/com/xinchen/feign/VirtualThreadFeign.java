@@ -0,0 +1,217 @@
+package com.xinchen.feign;
+
+import feign.Contract;
+import feign.Feign;
+import feign.InvocationHandlerFactory;
+import feign.MethodMetadata;
+import feign.Target;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 用虚拟线程代替Hystrix线程池隔离：每个调用在独立的虚拟线程上执行，并发上限由信号量(bulkhead)控制，
+ * 而不是固定大小的线程池，所以bulkhead可以设得很大而不需要同样多的平台线程
+ *
+ * <ul>
+ *     <li>同步方法：调用线程等待结果，可以设置超时，与Hystrix THREAD隔离的execute()一致</li>
+ *     <li>返回{@link CompletableFuture}的方法：立即返回，按泛型参数的类型解码</li>
+ *     <li>bulkhead已满时抛出{@link RejectedExecutionException}，超时抛出包装了{@link TimeoutException}的
+ *     {@link CompletionException}</li>
+ * </ul>
+ *
+ * 需要JDK 21才有虚拟线程，低版本JVM(包括Java 8)自动退回平台线程，行为不变，只是每个在途调用占一个线程
+ *
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 22:30
+ */
+public final class VirtualThreadFeign {
+
+    private VirtualThreadFeign() {
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static boolean isVirtual() {
+        return VirtualThreads.isSupported();
+    }
+
+    /**
+     * 与{@link feign.hystrix.HystrixFeign.Builder}一样，先设置本类的属性再调用{@link Feign.Builder}的方法
+     */
+    public static final class Builder extends Feign.Builder {
+        private Contract contract = new Contract.Default();
+        private int maxConcurrentCalls = 256;
+        private long timeoutMillis;
+        private ExecutorService executor;
+
+        /**
+         * 同时在途的调用数上限
+         */
+        public Builder maxConcurrentCalls(int maxConcurrentCalls) {
+            this.maxConcurrentCalls = maxConcurrentCalls;
+            return this;
+        }
+
+        /**
+         * 同步方法等待结果的超时，0表示不超时
+         */
+        public Builder timeout(long timeout, TimeUnit unit) {
+            this.timeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * 自定义执行器，默认每个调用一个虚拟线程
+         */
+        public Builder executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        @Override
+        public Builder contract(Contract contract) {
+            this.contract = contract;
+            return this;
+        }
+
+        @Override
+        public Feign.Builder invocationHandlerFactory(InvocationHandlerFactory invocationHandlerFactory) {
+            throw new UnsupportedOperationException(
+                    "VirtualThreadFeign installs its own InvocationHandlerFactory; use a Capability instead");
+        }
+
+        @Override
+        public Feign build() {
+            final ExecutorService callExecutor = executor != null ? executor : VirtualThreads.newExecutor("feign-call-");
+            final Semaphore bulkhead = new Semaphore(maxConcurrentCalls);
+            super.invocationHandlerFactory((target, dispatch) ->
+                    new IsolatedInvocationHandler(target, dispatch, callExecutor, bulkhead, timeoutMillis));
+            super.contract(new FutureUnwrappingContract(contract));
+            return super.build();
+        }
+    }
+
+    static final class IsolatedInvocationHandler implements InvocationHandler {
+        private final Target<?> target;
+        private final Map<Method, InvocationHandlerFactory.MethodHandler> dispatch;
+        private final ExecutorService executor;
+        private final Semaphore bulkhead;
+        private final long timeoutMillis;
+
+        IsolatedInvocationHandler(Target<?> target, Map<Method, InvocationHandlerFactory.MethodHandler> dispatch,
+                                  ExecutorService executor, Semaphore bulkhead, long timeoutMillis) {
+            this.target = target;
+            this.dispatch = dispatch;
+            this.executor = executor;
+            this.bulkhead = bulkhead;
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("equals".equals(method.getName())) {
+                try {
+                    final Object other = args.length > 0 && args[0] != null ? Proxy.getInvocationHandler(args[0]) : null;
+                    return other instanceof IsolatedInvocationHandler
+                            && target.equals(((IsolatedInvocationHandler) other).target);
+                } catch (IllegalArgumentException e) {
+                    return false;
+                }
+            } else if ("hashCode".equals(method.getName())) {
+                return target.hashCode();
+            } else if ("toString".equals(method.getName())) {
+                return target.toString();
+            }
+
+            final InvocationHandlerFactory.MethodHandler handler = dispatch.get(method);
+            if (!bulkhead.tryAcquire()) {
+                throw new RejectedExecutionException("Bulkhead full for " + Feign.configKey(target.type(), method));
+            }
+            final CompletableFuture<Object> call = new CompletableFuture<>();
+            final AtomicBoolean started = new AtomicBoolean();
+            final Future<?> task;
+            try {
+                task = executor.submit(() -> {
+                    if (!started.compareAndSet(false, true)) {
+                        // 超时时还没开始执行，名额已由调用方归还
+                        return;
+                    }
+                    // 先归还名额再完成future，被唤醒的调用方紧接着发起的调用不会被拒绝
+                    final Object result;
+                    try {
+                        result = handler.invoke(args);
+                    } catch (Throwable e) {
+                        bulkhead.release();
+                        call.completeExceptionally(e);
+                        return;
+                    }
+                    bulkhead.release();
+                    call.complete(result);
+                });
+            } catch (RejectedExecutionException e) {
+                bulkhead.release();
+                throw e;
+            }
+
+            if (method.getReturnType() == CompletableFuture.class) {
+                return call;
+            }
+            try {
+                return timeoutMillis > 0 ? call.get(timeoutMillis, TimeUnit.MILLISECONDS) : call.get();
+            } catch (ExecutionException e) {
+                throw e.getCause();
+            } catch (TimeoutException e) {
+                if (started.compareAndSet(false, true)) {
+                    bulkhead.release();
+                } else {
+                    task.cancel(true);
+                }
+                throw new CompletionException(new TimeoutException(
+                        Feign.configKey(target.type(), method) + " timed out after " + timeoutMillis + "ms"));
+            }
+        }
+    }
+
+    /**
+     * 把{@code CompletableFuture<T>}的返回类型换成T，让decoder按T解码
+     */
+    static final class FutureUnwrappingContract implements Contract {
+        private final Contract delegate;
+
+        FutureUnwrappingContract(Contract delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public List<MethodMetadata> parseAndValidateMetadata(Class<?> targetType) {
+            final List<MethodMetadata> metadata = delegate.parseAndValidateMetadata(targetType);
+            for (MethodMetadata md : metadata) {
+                final Type type = md.returnType();
+                if (type instanceof ParameterizedType
+                        && ((ParameterizedType) type).getRawType() == CompletableFuture.class) {
+                    md.returnType(((ParameterizedType) type).getActualTypeArguments()[0]);
+                }
+            }
+            return metadata;
+        }
+    }
+}
@@ -1,18 +1,22 @@
 package com.xinchen;
 
+import com.xinchen.feign.BenchmarkResultStore;
 import org.openjdk.jmh.results.format.ResultFormatType;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.RunnerException;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+
 /**
  * @author Xin Chen (xinchenmelody@gmail.com)
  * @version 1.0
  * @date Created In 2021/12/25 13:46
  */
 public class BenchmarkMain {
-    public static void main(String[] args) throws RunnerException {
+    public static void main(String[] args) throws RunnerException, IOException {
         Options opt = new OptionsBuilder()
                 .include(BenchmarkDemoTest.class.getSimpleName())
                 .result("jmh_result.json")
@@ -20,5 +24,10 @@ public class BenchmarkMain {
                 .build();
         // run options
         new Runner(opt).run();
+        // 连同运行环境归档到jmh-results，之后用BenchmarkResultStore compare与基线比较
+        final String id = new BenchmarkResultStore(Paths.get("jmh-results"))
+                .archive(Paths.get("jmh_result.json"), args.length > 0 ? args[0] : null)
+                .id();
+        System.out.println("archived " + id);
     }
 }
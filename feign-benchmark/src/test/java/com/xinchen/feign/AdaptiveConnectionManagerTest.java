@@ -0,0 +1,121 @@
+package com.xinchen.feign;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 04:30
+ */
+public class AdaptiveConnectionManagerTest {
+    private EmbeddedHttpbin server;
+    private HttpRoute route;
+
+    @Before
+    public void setUp() {
+        server = new EmbeddedHttpbin(256, null, false)
+                .latency(20, 0, 0, TimeUnit.MILLISECONDS)
+                .start();
+        route = new HttpRoute(new HttpHost("localhost", server.port()));
+    }
+
+    @After
+    public void tearDown() {
+        server.shutdown();
+    }
+
+    @Test
+    public void growsUnderContentionAndShrinksWhenIdle() throws Exception {
+        // 定时器不触发，由测试手动adjust
+        final AdaptiveConnectionManager manager = AdaptiveConnectionManager.builder()
+                .perRoute(2, 64)
+                .interval(1, TimeUnit.HOURS)
+                .build();
+        try (CloseableHttpClient client = HttpClientBuilder.create().setConnectionManager(manager).build()) {
+            assertEquals(2, manager.maxPerRoute(route));
+
+            call(client, 16, 4);
+            manager.adjust();
+            final int grown = manager.maxPerRoute(route);
+            assertTrue("grown to " + grown, grown >= 4);
+
+            // 每轮至少翻倍，几轮后16个调用方不再等连接
+            for (int i = 0; i < 3 && manager.maxPerRoute(route) < 16; i++) {
+                call(client, 16, 4);
+                manager.adjust();
+            }
+            assertTrue(manager.maxPerRoute(route) >= 16);
+
+            for (int i = 0; i < 10; i++) {
+                manager.adjust();
+            }
+            assertEquals(2, manager.maxPerRoute(route));
+            assertTrue(manager.resizes() >= 2);
+        }
+    }
+
+    @Test
+    public void evictsIdleConnections() throws Exception {
+        final AdaptiveConnectionManager manager = AdaptiveConnectionManager.builder()
+                .interval(20, TimeUnit.MILLISECONDS)
+                .idleTimeout(50, TimeUnit.MILLISECONDS)
+                .build();
+        try (CloseableHttpClient client = HttpClientBuilder.create().setConnectionManager(manager).build()) {
+            call(client, 2, 1);
+            assertTrue(manager.routeStats(route).getAvailable() > 0);
+
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (manager.routeStats(route).getAvailable() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(0, manager.routeStats(route).getAvailable());
+            assertEquals(0, manager.routeStats(route).getLeased());
+        }
+    }
+
+    /**
+     * callers个线程各自顺序请求rounds次
+     */
+    private void call(CloseableHttpClient client, int callers, int rounds) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            final List<Future<Integer>> statuses = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                statuses.add(executor.submit(() -> {
+                    int status = 0;
+                    for (int round = 0; round < rounds; round++) {
+                        try (CloseableHttpResponse response = client.execute(new HttpGet(server.url() + "/get"))) {
+                            EntityUtils.consume(response.getEntity());
+                            status = response.getStatusLine().getStatusCode();
+                        }
+                    }
+                    return status;
+                }));
+            }
+            for (Future<Integer> status : statuses) {
+                assertEquals(200, status.get(10, TimeUnit.SECONDS).intValue());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.xinchen.feign;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 06:20
+ */
+public class BenchmarkComparisonTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void archivesRunsWithEnvironment() throws IOException {
+        final BenchmarkResultStore store = new BenchmarkResultStore(folder.getRoot().toPath().resolve("results"));
+        final BenchmarkResultStore.Run run = store.archive(jmh("a", result("Bench.hit", "thrpt", 100, 101, 99)), "main/1");
+
+        assertTrue(run.id().endsWith("-main_1"));
+        assertEquals(1, run.results().size());
+        assertEquals(System.getProperty("java.version"), run.env().path("java.version").asText());
+        assertEquals(Runtime.getRuntime().availableProcessors(), run.env().path("cpus").asInt());
+
+        final BenchmarkResultStore.Run second = store.archive(jmh("b", result("Bench.hit", "thrpt", 100)), "main/1");
+        assertEquals(2, store.list().size());
+        assertEquals(second.id(), store.latest().id());
+        store.markBaseline(run.id());
+        assertEquals(run.id(), store.baseline().id());
+    }
+
+    @Test
+    public void detectsSignificantChangesByMode() throws IOException {
+        final BenchmarkResultStore store = new BenchmarkResultStore(folder.getRoot().toPath());
+        final BenchmarkResultStore.Run baseline = store.archive(jmh("baseline",
+                result("Bench.throughput", "thrpt", 100, 101, 99, 100, 102, 98),
+                result("Bench.latency", "avgt", 10, 10.1, 9.9, 10, 10.2, 9.8),
+                result("Bench.noisy", "thrpt", 100, 130, 70, 110, 90, 100),
+                result("Bench.removed", "thrpt", 1, 1, 1)), null);
+        final BenchmarkResultStore.Run run = store.archive(jmh("run",
+                // 吞吐量下降20%：退化
+                result("Bench.throughput", "thrpt", 80, 81, 79, 80, 82, 78),
+                // 平均时间下降20%：改进
+                result("Bench.latency", "avgt", 8, 8.1, 7.9, 8, 8.2, 7.8),
+                // 均值变化5%但噪声很大：不显著
+                result("Bench.noisy", "thrpt", 105, 140, 70, 120, 90, 105),
+                result("Bench.added", "thrpt", 1, 1, 1)), null);
+
+        final BenchmarkComparison comparison = BenchmarkComparison.compare(baseline, run, 0.01, 0.02);
+        final Map<String, BenchmarkComparison.Status> statuses = new HashMap<>();
+        for (BenchmarkComparison.Entry entry : comparison.entries()) {
+            statuses.put(entry.key(), entry.status());
+        }
+        assertEquals(BenchmarkComparison.Status.REGRESSED, statuses.get("Bench.throughput thrpt {size=16}"));
+        assertEquals(BenchmarkComparison.Status.IMPROVED, statuses.get("Bench.latency avgt {size=16}"));
+        assertEquals(BenchmarkComparison.Status.UNCHANGED, statuses.get("Bench.noisy thrpt {size=16}"));
+        assertEquals(BenchmarkComparison.Status.NEW, statuses.get("Bench.added thrpt {size=16}"));
+        assertEquals(BenchmarkComparison.Status.MISSING, statuses.get("Bench.removed thrpt {size=16}"));
+        assertTrue(comparison.hasRegressions());
+
+        final JsonNode json = comparison.toJson();
+        assertEquals(1, json.path("summary").path("REGRESSED").asInt());
+        assertEquals(5, json.path("comparisons").size());
+        assertTrue(comparison.toText().contains("-20.0%"));
+    }
+
+    @Test
+    public void fallsBackToConfidenceIntervalsWithoutRawData() throws IOException {
+        final BenchmarkResultStore store = new BenchmarkResultStore(folder.getRoot().toPath());
+        final ObjectNode before = result("Bench.sample", "sample", 10);
+        ((ObjectNode) before.path("primaryMetric")).put("scoreError", 0.5);
+        final ObjectNode overlapping = result("Bench.sample", "sample", 10.6);
+        ((ObjectNode) overlapping.path("primaryMetric")).put("scoreError", 0.5);
+        final ObjectNode slower = result("Bench.sample", "sample", 12);
+        ((ObjectNode) slower.path("primaryMetric")).put("scoreError", 0.5);
+
+        final BenchmarkResultStore.Run baseline = store.archive(jmh("a", before), "a");
+        assertFalse(BenchmarkComparison.compare(baseline, store.archive(jmh("b", overlapping), "b"), 0.01, 0.02)
+                .hasRegressions());
+        assertTrue(BenchmarkComparison.compare(baseline, store.archive(jmh("c", slower), "c"), 0.01, 0.02)
+                .hasRegressions());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compareRejectsArgumentsWithoutValue() throws IOException {
+        BenchmarkResultStore.main(new String[]{"compare", "baseline"});
+    }
+
+    private Path jmh(String name, ObjectNode... results) throws IOException {
+        final ArrayNode array = BenchmarkResultStore.MAPPER.createArrayNode();
+        for (ObjectNode result : results) {
+            array.add(result);
+        }
+        final Path file = folder.getRoot().toPath().resolve(name + "-jmh.json");
+        BenchmarkResultStore.MAPPER.writeValue(file.toFile(), array);
+        return file;
+    }
+
+    /**
+     * @param raw 第一个值是score，其余(如果有)是一个fork的逐迭代数据
+     */
+    private static ObjectNode result(String benchmark, String mode, double... raw) {
+        final ObjectNode result = BenchmarkResultStore.MAPPER.createObjectNode();
+        result.put("benchmark", benchmark);
+        result.put("mode", mode);
+        result.putObject("params").put("size", "16");
+        final ObjectNode metric = result.putObject("primaryMetric");
+        metric.put("score", raw[0]);
+        metric.put("scoreError", "NaN");
+        metric.put("scoreUnit", "thrpt".equals(mode) ? "ops/s" : "ms/op");
+        final ArrayNode fork = metric.putArray("rawData").addArray();
+        for (int i = 1; i < raw.length; i++) {
+            fork.add(raw[i]);
+        }
+        return result;
+    }
+}
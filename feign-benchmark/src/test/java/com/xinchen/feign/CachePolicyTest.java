@@ -0,0 +1,123 @@
+package com.xinchen.feign;
+
+import feign.Request;
+import feign.Util;
+import org.apache.http.client.utils.DateUtils;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 16:40
+ */
+public class CachePolicyTest {
+    private final CachePolicy policy = CachePolicy.standard();
+    private final long now = System.currentTimeMillis();
+
+    @Test
+    public void onlySafeMethodsAreCacheable() {
+        assertTrue(policy.isCacheable(request(Request.HttpMethod.GET)));
+        assertTrue(policy.isCacheable(request(Request.HttpMethod.HEAD)));
+        assertFalse(policy.isCacheable(request(Request.HttpMethod.POST)));
+        assertFalse(policy.isCacheable(request(Request.HttpMethod.GET, "Cache-Control", "no-store")));
+    }
+
+    @Test
+    public void requestNoCacheSkipsLookup() {
+        assertFalse(policy.requiresUpstream(request(Request.HttpMethod.GET)));
+        assertTrue(policy.requiresUpstream(request(Request.HttpMethod.GET, "Cache-Control", "no-cache")));
+        assertTrue(policy.requiresUpstream(request(Request.HttpMethod.GET, "Cache-Control", "max-age=0")));
+        assertTrue(policy.requiresUpstream(request(Request.HttpMethod.GET, "Pragma", "no-cache")));
+    }
+
+    @Test
+    public void sharedMaxAgeWinsOverMaxAge() {
+        assertEquals(TimeUnit.SECONDS.toNanos(300),
+                ttl(200, "Cache-Control", "max-age=60, s-maxage=300"));
+        assertEquals(TimeUnit.SECONDS.toNanos(60),
+                new CachePolicy(false, 0, TimeUnit.SECONDS).ttlNanos(request(Request.HttpMethod.GET), 200,
+                        headers("Cache-Control", "max-age=60, s-maxage=300"), now));
+    }
+
+    @Test
+    public void ageIsSubtracted() {
+        assertEquals(TimeUnit.SECONDS.toNanos(40),
+                ttl(200, "Cache-Control", "max-age=60", "Age", "20"));
+    }
+
+    @Test
+    public void expiresRelativeToDate() {
+        Date date = new Date(now);
+        Date expires = new Date(now + TimeUnit.MINUTES.toMillis(5));
+        long ttl = ttl(200, "Date", DateUtils.formatDate(date), "Expires", DateUtils.formatDate(expires));
+        // http date只精确到秒
+        assertTrue(Math.abs(ttl - TimeUnit.MINUTES.toNanos(5)) <= TimeUnit.SECONDS.toNanos(1));
+        assertEquals(0, ttl(200, "Expires", "0"));
+    }
+
+    @Test
+    public void volatileResponsesAreNotStored() {
+        assertEquals(CachePolicy.NOT_STORABLE, ttl(200, "Cache-Control", "no-store, max-age=60"));
+        assertEquals(CachePolicy.NOT_STORABLE, ttl(200, "Cache-Control", "private, max-age=60"));
+        assertEquals(CachePolicy.NOT_STORABLE, ttl(500, "Cache-Control", "max-age=60"));
+        assertEquals(CachePolicy.NOT_STORABLE, ttl(200, "Cache-Control", "max-age=60", "Vary", "*"));
+    }
+
+    @Test
+    public void noCacheIsStoredButAlreadyStale() {
+        assertEquals(0, ttl(200, "Cache-Control", "no-cache, max-age=60"));
+        assertEquals(0, ttl(200, "Cache-Control", "max-age=10", "Age", "20"));
+    }
+
+    @Test
+    public void conditionalRequestsBypassCache() {
+        assertFalse(policy.isCacheable(request(Request.HttpMethod.GET, "If-None-Match", "\"v1\"")));
+    }
+
+    @Test
+    public void heuristicTtlWithoutFreshnessInfo() {
+        assertEquals(TimeUnit.SECONDS.toNanos(1), ttl(200));
+        assertEquals(0, new CachePolicy(true, 0, TimeUnit.SECONDS)
+                .ttlNanos(request(Request.HttpMethod.GET), 200, headers(), now));
+    }
+
+    @Test
+    public void varyKeyUsesSelectedRequestHeaders() {
+        Map<String, Collection<String>> response = headers("Vary", "Accept-Encoding, Accept");
+        assertEquals(Arrays.asList("accept", "accept-encoding"), policy.varyNames(response));
+
+        String gzip = policy.varyKey("GET /", policy.varyNames(response),
+                request(Request.HttpMethod.GET, "Accept-Encoding", "gzip").headers());
+        String identity = policy.varyKey("GET /", policy.varyNames(response),
+                request(Request.HttpMethod.GET, "Accept-Encoding", "identity").headers());
+        assertFalse(gzip.equals(identity));
+    }
+
+    private long ttl(int status, String... nameValues) {
+        return policy.ttlNanos(request(Request.HttpMethod.GET), status, headers(nameValues), now);
+    }
+
+    private static Request request(Request.HttpMethod method, String... nameValues) {
+        return Request.create(method, "http://localhost/get", headers(nameValues), null, Util.UTF_8, null);
+    }
+
+    private static Map<String, Collection<String>> headers(String... nameValues) {
+        Map<String, Collection<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (int i = 0; i < nameValues.length; i += 2) {
+            headers.put(nameValues[i], Collections.singletonList(nameValues[i + 1]));
+        }
+        return headers;
+    }
+}
@@ -0,0 +1,437 @@
+package com.xinchen.feign;
+
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 17:30
+ */
+public class CacheableApacheHttpClientTest {
+    private final MockWebServer server = new MockWebServer();
+    private final CacheableApacheHttpClient client = new CacheableApacheHttpClient(HttpClientBuilder.create().build());
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void freshEntryIsServedFromCache() throws Exception {
+        server.enqueue(new MockResponse().setHeader("Cache-Control", "max-age=60").setBody("fresh"));
+
+        assertEquals("fresh", body(get()));
+        assertEquals("fresh", body(get()));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void staleEntryIsRevalidated() throws Exception {
+        server.enqueue(new MockResponse()
+                .setHeader("Cache-Control", "max-age=0")
+                .setHeader("ETag", "\"v1\"")
+                .setBody("payload"));
+        server.enqueue(new MockResponse()
+                .setResponseCode(304)
+                .setHeader("Cache-Control", "max-age=60")
+                .setHeader("ETag", "\"v1\""));
+
+        assertEquals("payload", body(get()));
+        Response revalidated = get();
+        assertEquals(200, revalidated.status());
+        assertEquals("payload", body(revalidated));
+        // 304刷新了ttl，第三次直接命中
+        assertEquals("payload", body(get()));
+
+        RecordedRequest first = server.takeRequest(1, TimeUnit.SECONDS);
+        RecordedRequest second = server.takeRequest(1, TimeUnit.SECONDS);
+        assertNull(first.getHeader("If-None-Match"));
+        assertEquals("\"v1\"", second.getHeader("If-None-Match"));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void varyEntryReplacesPlainEntry() throws Exception {
+        server.enqueue(new MockResponse().setHeader("Cache-Control", "max-age=0").setBody("plain"));
+        server.enqueue(new MockResponse()
+                .setHeader("Cache-Control", "max-age=60")
+                .setHeader("Vary", "Accept-Language")
+                .setBody("en"));
+        server.enqueue(new MockResponse()
+                .setHeader("Cache-Control", "max-age=60")
+                .setHeader("Vary", "Accept-Language")
+                .setBody("de"));
+
+        assertEquals("plain", body(get()));
+        assertEquals("en", body(get("Accept-Language", "en")));
+        assertEquals("de", body(get("Accept-Language", "de")));
+        assertEquals("en", body(get("Accept-Language", "en")));
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void unsafeMethodsBypassCache() throws Exception {
+        server.enqueue(new MockResponse().setHeader("Cache-Control", "max-age=60").setBody("1"));
+        server.enqueue(new MockResponse().setHeader("Cache-Control", "max-age=60").setBody("2"));
+
+        Request post = Request.create(Request.HttpMethod.POST, server.url("/get").toString(),
+                Collections.emptyMap(), new byte[0], Util.UTF_8, null);
+        assertEquals("1", body(client.execute(post, new Request.Options())));
+        assertEquals("2", body(client.execute(post, new Request.Options())));
+    }
+
+    @Test
+    public void headResponseWithoutEntityIsCached() throws Exception {
+        server.enqueue(new MockResponse().setHeader("Cache-Control", "max-age=60").setHeader("X-Size", "42"));
+
+        Request head = Request.create(Request.HttpMethod.HEAD, server.url("/get").toString(),
+                Collections.emptyMap(), null, Util.UTF_8, null);
+        for (int i = 0; i < 2; i++) {
+            try (Response response = client.execute(head, new Request.Options())) {
+                assertEquals(200, response.status());
+                assertEquals("42", response.headers().get("X-Size").iterator().next());
+            }
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void noContentResponseIsCached() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(204).setHeader("Cache-Control", "max-age=60"));
+
+        assertEquals("", body(get()));
+        Response hit = get();
+        assertEquals(204, hit.status());
+        assertEquals("", body(hit));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void callersOwnConditionalRequestGets304() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"v1\""));
+
+        Response notModified = get("If-None-Match", "\"v1\"");
+        assertEquals(304, notModified.status());
+        assertEquals("", body(notModified));
+    }
+
+    @Test
+    public void concurrentMissesShareOneUpstreamRequest() throws Exception {
+        server.setDispatcher(slowUpstream("max-age=60", false));
+
+        assertEquals(Arrays.asList("1:", "1:", "1:"), concurrently(this::get, this::get, this::get));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void privateResponseIsNotShared() throws Exception {
+        server.setDispatcher(slowUpstream("private, max-age=60", false));
+
+        List<String> bodies = concurrently(this::get, this::get, this::get);
+        // 每个请求都拿到自己的响应
+        assertEquals(3, server.getRequestCount());
+        assertEquals(3, bodies.stream().distinct().count());
+    }
+
+    @Test
+    public void responseIsNotSharedAcrossVaryMismatch() throws Exception {
+        server.setDispatcher(slowUpstream("max-age=60", true));
+
+        List<String> bodies = concurrently(() -> get("Accept-Language", "en"), () -> get("Accept-Language", "de"));
+        assertTrue(bodies.get(0).endsWith(":en"));
+        assertTrue(bodies.get(1).endsWith(":de"));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void encodedBodyIsSentAsIs() throws Exception {
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        Map<String, Collection<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.put("Content-Type", Collections.singletonList("application/json; charset=UTF-8"));
+        byte[] json = "[\"Citroën\"]".getBytes(Util.UTF_8);
+        Request put = Request.create(Request.HttpMethod.PUT, server.url("/put").toString(), headers, json, Util.UTF_8, null);
+        assertEquals("ok", body(client.execute(put, new Request.Options())));
+
+        RecordedRequest recorded = server.takeRequest(1, TimeUnit.SECONDS);
+        assertEquals("[\"Citroën\"]", recorded.getBody().readUtf8());
+        assertEquals("application/json; charset=UTF-8", recorded.getHeader("Content-Type"));
+    }
+
+    @Test
+    public void encodedUrlIsPassedThrough() throws Exception {
+        CacheableApacheHttpClient gzip = CacheableApacheHttpClient.builder().acceptEncoding(true).build();
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        Map<String, Collection<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.put("accept-encoding", Collections.singletonList("identity"));
+        headers.put("content-length", Collections.singletonList("0"));
+        String path = "/a%2Fb?q=x%20y%C3%A4&flag&q=%2B";
+        Request request = Request.create(Request.HttpMethod.GET, server.url("/").toString() + path.substring(1),
+                headers, null, Util.UTF_8, null);
+        assertEquals("ok", body(gzip.execute(request, new Request.Options())));
+
+        RecordedRequest recorded = server.takeRequest(1, TimeUnit.SECONDS);
+        assertEquals(path, recorded.getPath());
+        assertEquals("identity", recorded.getHeader("Accept-Encoding"));
+        assertEquals("*/*", recorded.getHeader("Accept"));
+    }
+
+    @Test
+    public void offHeapBodyOutlivesEntryUntilClosed() throws Exception {
+        SlabAllocator allocator = new SlabAllocator(1 << 20, 1 << 16, 1.25);
+        CacheableApacheHttpClient offHeap = CacheableApacheHttpClient.builder()
+                .bodyStorage(new OffHeapBodyStorage(allocator))
+                .build();
+        server.enqueue(new MockResponse().setHeader("Cache-Control", "max-age=60").setBody("off-heap"));
+        server.enqueue(new MockResponse().setHeader("Cache-Control", "max-age=60").setBody("replaced"));
+
+        assertEquals("off-heap", body(get(offHeap)));
+        final long oneEntry = allocator.usedBytes();
+        assertTrue(oneEntry > 0);
+
+        // 命中的response持有body时，no-cache请求把entry覆盖掉
+        Response hit = get(offHeap);
+        assertEquals("replaced", body(get(offHeap, "Cache-Control", "no-cache")));
+        assertEquals(2 * oneEntry, allocator.usedBytes());
+        assertEquals("off-heap", Util.toString(hit.body().asReader(Util.UTF_8)));
+
+        hit.close();
+        // removalListener是异步执行的
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (allocator.usedBytes() != oneEntry && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(oneEntry, allocator.usedBytes());
+        assertEquals("replaced", body(get(offHeap)));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void negotiatedGzipIsInflated() throws Exception {
+        CacheableApacheHttpClient gzip = CacheableApacheHttpClient.builder().acceptEncoding(true).build();
+        server.enqueue(new MockResponse()
+                .setHeader("Cache-Control", "max-age=60")
+                .setHeader("Content-Encoding", "gzip")
+                .setBody(new Buffer().write(gzip("compressed payload"))));
+
+        Response response = get(gzip);
+        assertNull(response.headers().get("Content-Encoding"));
+        assertEquals(Integer.valueOf(18), response.body().length());
+        assertEquals("compressed payload", body(response));
+        assertEquals("gzip, deflate", server.takeRequest(1, TimeUnit.SECONDS).getHeader("Accept-Encoding"));
+    }
+
+    @Test
+    public void compressedAtRestEntryIsInflatedOnRead() throws Exception {
+        CacheableApacheHttpClient compressed = CacheableApacheHttpClient.builder()
+                .acceptEncoding(true)
+                .compressedAtRest(true)
+                .build();
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            json.append("{\"id\":").append(i).append(",\"name\":\"record\"}");
+        }
+        server.enqueue(new MockResponse().setHeader("Cache-Control", "max-age=60").setBody(json.toString()));
+        server.enqueue(new MockResponse()
+                .setHeader("Cache-Control", "max-age=60")
+                .setHeader("Content-Encoding", "gzip")
+                .setBody(new Buffer().write(gzip("from the wire"))));
+
+        // 未压缩的响应写入缓存时压缩
+        assertEquals(json.toString(), body(get(compressed)));
+        assertEquals(json.toString(), body(get(compressed)));
+        // gzip响应原样保存
+        Request other = Request.create(Request.HttpMethod.GET, server.url("/other").toString(),
+                Collections.emptyMap(), null, Util.UTF_8, null);
+        assertEquals("from the wire", body(compressed.execute(other, new Request.Options())));
+        Response hit = compressed.execute(other, new Request.Options());
+        assertEquals(Integer.valueOf(13), hit.body().length());
+        assertEquals("from the wire", body(hit));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void shortGzipBodyIsNotStoredCompressed() throws Exception {
+        CacheableApacheHttpClient compressed = CacheableApacheHttpClient.builder()
+                .acceptEncoding(true)
+                .compressedAtRest(true)
+                .build();
+        server.enqueue(new MockResponse()
+                .setHeader("Cache-Control", "max-age=60")
+                .setHeader("Content-Encoding", "gzip"));
+        server.enqueue(new MockResponse()
+                .setHeader("Cache-Control", "max-age=60")
+                .setHeader("Content-Encoding", "gzip")
+                .setBody("broken"));
+
+        assertEquals("", body(get(compressed)));
+        assertEquals("", body(get(compressed)));
+        Request other = Request.create(Request.HttpMethod.GET, server.url("/other").toString(),
+                Collections.emptyMap(), null, Util.UTF_8, null);
+        try {
+            compressed.execute(other, new Request.Options());
+            fail("expected IOException");
+        } catch (IOException expected) {
+            // 不是gzip数据
+        }
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void emptyEncodedBodiesAreDecodedAsEmpty() throws Exception {
+        CacheableApacheHttpClient decoding = CacheableApacheHttpClient.builder()
+                .acceptEncoding(true)
+                .compressedAtRest(false)
+                .build();
+        for (String encoding : new String[]{"gzip", "deflate"}) {
+            server.enqueue(new MockResponse()
+                    .setHeader("Cache-Control", "max-age=60")
+                    .setHeader("Content-Encoding", encoding));
+            Request request = Request.create(Request.HttpMethod.GET, server.url("/" + encoding).toString(),
+                    Collections.emptyMap(), null, Util.UTF_8, null);
+            assertEquals(encoding, "", body(decoding.execute(request, new Request.Options())));
+            assertEquals(encoding, "", body(decoding.execute(request, new Request.Options())));
+        }
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void closeShutsDownOwnedAdaptivePool() throws Exception {
+        long before = adapterThreads();
+        CacheableApacheHttpClient adaptive = CacheableApacheHttpClient.builder().adaptiveConnections(true).build();
+        assertEquals(before + 1, adapterThreads());
+        server.enqueue(new MockResponse().setBody("pooled"));
+        assertEquals("pooled", body(get(adaptive)));
+
+        adaptive.close();
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (adapterThreads() > before && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(before, adapterThreads());
+    }
+
+    private static long adapterThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.isAlive() && "feign-pool-adapter".equals(thread.getName()))
+                .count();
+    }
+
+    /**
+     * 响应头延迟300ms，保证并发的请求都在leader返回前到达；body是"序号:Accept-Language"
+     */
+    private static Dispatcher slowUpstream(String cacheControl, boolean varyOnLanguage) {
+        final AtomicInteger count = new AtomicInteger();
+        return new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                final String language = request.getHeader("Accept-Language");
+                final MockResponse response = new MockResponse()
+                        .setHeader("Cache-Control", cacheControl)
+                        .setHeadersDelay(300, TimeUnit.MILLISECONDS)
+                        .setBody(count.incrementAndGet() + ":" + (language == null ? "" : language));
+                return varyOnLanguage ? response.setHeader("Vary", "Accept-Language") : response;
+            }
+        };
+    }
+
+    @SafeVarargs
+    private static List<String> concurrently(Callable<Response>... calls) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(calls.length);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<String>> futures = new ArrayList<>();
+            for (Callable<Response> call : calls) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return body(call.call());
+                }));
+            }
+            start.countDown();
+            final List<String> bodies = new ArrayList<>();
+            for (Future<String> future : futures) {
+                bodies.add(future.get(10, TimeUnit.SECONDS));
+            }
+            return bodies;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static byte[] gzip(String content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(content.getBytes(Util.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    private Response get() throws IOException {
+        return get(client);
+    }
+
+    private Response get(String name, String value) throws IOException {
+        return get(client, name, value);
+    }
+
+    private Response get(CacheableApacheHttpClient client, String name, String value) throws IOException {
+        // 与feign生成的请求一样，header大小写不敏感
+        Map<String, Collection<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.put(name, Collections.singletonList(value));
+        Request request = Request.create(Request.HttpMethod.GET, server.url("/get").toString(),
+                headers, null, Util.UTF_8, null);
+        return client.execute(request, new Request.Options());
+    }
+
+    private Response get(CacheableApacheHttpClient client) throws IOException {
+        Request request = Request.create(Request.HttpMethod.GET, server.url("/get").toString(),
+                Collections.emptyMap(), null, Util.UTF_8, null);
+        return client.execute(request, new Request.Options());
+    }
+
+    private static String body(Response response) throws IOException {
+        try (Response closing = response) {
+            return Util.toString(closing.body().asReader(Util.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.xinchen.feign;
+
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import feign.codec.Decoder;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 21:10
+ */
+public class CachingDecoderTest {
+    private final AtomicInteger decodes = new AtomicInteger();
+    private final Decoder counting = (response, type) -> {
+        decodes.incrementAndGet();
+        List<String> decoded = new ArrayList<>(Arrays.asList("a", "b"));
+        return type == Iterator.class ? decoded.iterator() : decoded;
+    };
+    private final CachingDecoder decoder = new CachingDecoder(counting);
+
+    @Test
+    public void sameContentIsDecodedOnce() throws Exception {
+        Object first = decoder.decode(response("\"v1\"", "max-age=60"), List.class);
+        Object second = decoder.decode(response("\"v1\"", "max-age=60"), List.class);
+        assertSame(first, second);
+        assertEquals(1, decodes.get());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void cachedCollectionsAreUnmodifiable() throws Exception {
+        @SuppressWarnings("unchecked")
+        List<String> decoded = (List<String>) decoder.decode(response("\"v1\"", "max-age=60"), List.class);
+        decoded.add("c");
+    }
+
+    @Test
+    public void newContentOrUncacheableResponseIsDecodedAgain() throws Exception {
+        decoder.decode(response("\"v1\"", "max-age=60"), List.class);
+        decoder.decode(response("\"v2\"", "max-age=60"), List.class);
+        decoder.decode(response("\"v3\"", "no-store"), List.class);
+        decoder.decode(response("\"v3\"", "no-store"), List.class);
+        assertEquals(4, decodes.get());
+    }
+
+    @Test
+    public void responsesWithoutValidatorsAreNotReused() throws Exception {
+        // 同一秒内的两个不同响应，只有相同的Date
+        for (int i = 0; i < 2; i++) {
+            Map<String, Collection<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            headers.put("Cache-Control", Collections.singletonList("max-age=60"));
+            headers.put("Date", Collections.singletonList("Sun, 18 Oct 2026 08:00:00 GMT"));
+            decoder.decode(response(headers), List.class);
+        }
+        assertEquals(2, decodes.get());
+    }
+
+    @Test
+    public void iteratorsAreReplayedFromList() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            Iterator<?> iterator = (Iterator<?>) decoder.decode(response("\"v1\"", "max-age=60"), Iterator.class);
+            List<Object> items = new ArrayList<>();
+            iterator.forEachRemaining(items::add);
+            assertEquals(Arrays.asList("a", "b"), items);
+        }
+        assertEquals(1, decodes.get());
+    }
+
+    private static Response response(String etag, String cacheControl) {
+        Map<String, Collection<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.put("ETag", Collections.singletonList(etag));
+        headers.put("Cache-Control", Collections.singletonList(cacheControl));
+        return response(headers);
+    }
+
+    private static Response response(Map<String, Collection<String>> headers) {
+        return Response.builder()
+                .status(200)
+                .reason("OK")
+                .request(Request.create(Request.HttpMethod.GET, "http://localhost/cars",
+                        Collections.emptyMap(), null, Util.UTF_8, null))
+                .headers(headers)
+                .body("[]", Util.UTF_8)
+                .build();
+    }
+}
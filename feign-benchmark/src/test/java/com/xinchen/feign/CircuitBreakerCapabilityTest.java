@@ -0,0 +1,159 @@
+package com.xinchen.feign;
+
+import feign.Client;
+import feign.Feign;
+import feign.FeignException;
+import feign.RequestLine;
+import feign.Response;
+import feign.Retryer;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 23:40
+ */
+public class CircuitBreakerCapabilityTest {
+
+    interface Api {
+        @RequestLine("GET /get")
+        String get();
+    }
+
+    private final AtomicInteger status = new AtomicInteger(500);
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    private final Client client = (request, options) -> {
+        upstreamCalls.incrementAndGet();
+        return Response.builder()
+                .status(status.get())
+                .reason("test")
+                .request(request)
+                .headers(Collections.emptyMap())
+                .body("ok", UTF_8)
+                .build();
+    };
+
+    private Api api(CircuitBreakerCapability capability) {
+        return Feign.builder()
+                .client(client)
+                .retryer(Retryer.NEVER_RETRY)
+                .addCapability(capability)
+                .target(Api.class, "http://localhost");
+    }
+
+    private static CircuitBreakerCapability.Builder breaker() {
+        return CircuitBreakerCapability.builder()
+                .minimumCalls(4)
+                .failureRateThreshold(50)
+                .openDuration(100, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void fallbackReceivesCause() {
+        final Api api = api(breaker()
+                .fallbackFactory(cause -> (Api) () -> "fallback:" + cause.getClass().getSimpleName())
+                .build());
+
+        assertEquals("fallback:InternalServerError", api.get());
+    }
+
+    @Test
+    public void opensAfterFailuresAndStopsCallingUpstream() {
+        final CircuitBreakerCapability capability = breaker().build();
+        final Api api = api(capability);
+
+        for (int i = 0; i < 4; i++) {
+            try {
+                api.get();
+                fail("expected FeignException");
+            } catch (FeignException expected) {
+                // 上游返回500
+            }
+        }
+        final CircuitBreaker breaker = capability.breakers().get("Api#get()");
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        try {
+            api.get();
+            fail("expected CircuitBreakerOpenException");
+        } catch (CircuitBreakerCapability.CircuitBreakerOpenException expected) {
+            assertEquals(4, upstreamCalls.get());
+        }
+    }
+
+    @Test
+    public void halfOpenTrialClosesBreakerOnSuccess() throws Exception {
+        final CircuitBreakerCapability capability = breaker()
+                .fallbackFactory(cause -> (Api) () -> "fallback")
+                .build();
+        final Api api = api(capability);
+        for (int i = 0; i < 4; i++) {
+            api.get();
+        }
+        final CircuitBreaker breaker = capability.breakers().get("Api#get()");
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        status.set(200);
+        assertEquals("fallback", api.get());
+        TimeUnit.MILLISECONDS.sleep(150);
+        assertEquals("ok", api.get());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertEquals(-1, breaker.failureRate());
+    }
+
+    @Test
+    public void successfulCallsKeepBreakerClosed() {
+        status.set(200);
+        final CircuitBreakerCapability capability = breaker().build();
+        final Api api = api(capability);
+        for (int i = 0; i < 10; i++) {
+            assertEquals("ok", api.get());
+        }
+        final CircuitBreaker breaker = capability.breakers().get("Api#get()");
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertEquals(0, breaker.failureRate());
+        assertTrue(upstreamCalls.get() == 10);
+    }
+
+    @Test
+    public void wrapsCapabilitiesAddedBefore() {
+        combinedWithRequestCache(true);
+    }
+
+    @Test
+    public void wrappedByCapabilitiesAddedAfter() {
+        combinedWithRequestCache(false);
+    }
+
+    /**
+     * 不论添加顺序，命中RequestCacheCapability的调用都要经过熔断器，熔断打开后也不再发出请求
+     */
+    private void combinedWithRequestCache(boolean cacheFirst) {
+        final CircuitBreakerCapability breaker = breaker()
+                .fallbackFactory(cause -> (Api) () -> "fallback")
+                .build();
+        final RequestCacheCapability cache = RequestCacheCapability.builder().cache("Api#get()", 16).build();
+        final Api api = Feign.builder()
+                .client(client)
+                .retryer(Retryer.NEVER_RETRY)
+                .addCapability(cacheFirst ? cache : breaker)
+                .addCapability(cacheFirst ? breaker : cache)
+                .target(Api.class, "http://localhost");
+
+        for (int i = 0; i < 6; i++) {
+            assertEquals("fallback", api.get());
+        }
+        assertEquals(4, upstreamCalls.get());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.breakers().get("Api#get()").state());
+        assertEquals(3, cache.stats().get("Api#get()").hitCount());
+    }
+}
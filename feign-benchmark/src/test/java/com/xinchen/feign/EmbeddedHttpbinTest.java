@@ -0,0 +1,142 @@
+package com.xinchen.feign;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 05:00
+ */
+public class EmbeddedHttpbinTest {
+    private final OkHttpClient client = new OkHttpClient();
+    private EmbeddedHttpbin server;
+
+    @After
+    public void tearDown() {
+        if (server != null) {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void parsesLatencySpecs() {
+        assertEquals(0, EmbeddedHttpbin.Latency.parse("none").nanos(0.5, 0.5));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(5), EmbeddedHttpbin.Latency.parse("fixed:5ms").nanos(0.5, 0.5));
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(500), EmbeddedHttpbin.Latency.parse("500us").nanos(0.1, 0.9));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(6), EmbeddedHttpbin.Latency.parse("uniform:2ms-10ms").nanos(0.5, 0.5));
+        final long exp = EmbeddedHttpbin.Latency.parse("exp:1s").nanos(1 - 1 / Math.E, 0.5);
+        assertEquals(TimeUnit.SECONDS.toNanos(1), exp, 1000);
+
+        final EmbeddedHttpbin.Latency outliers = EmbeddedHttpbin.Latency.parse("fixed:1ms,0.01@50ms");
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(50), outliers.nanos(0.5, 0.005));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1), outliers.nanos(0.5, 0.5));
+    }
+
+    @Test
+    public void injectedErrorsAreDeterministic() throws IOException {
+        final int first = countErrors(7);
+        assertTrue("errors " + first, first > 10 && first < 90);
+        assertEquals(first, countErrors(7));
+    }
+
+    @Test
+    public void servesHttpbinStylePaths() throws IOException {
+        server = new EmbeddedHttpbin(128, "max-age=60", false).start();
+        try (Response response = get("/get")) {
+            assertEquals(200, response.code());
+            assertEquals("max-age=60", response.header("Cache-Control"));
+            assertEquals(128, response.body().bytes().length);
+        }
+        try (Response response = get("/bytes/1000")) {
+            assertEquals(1000, response.body().bytes().length);
+        }
+        try (Response response = get("/status/418")) {
+            assertEquals(418, response.code());
+        }
+        final long start = System.nanoTime();
+        try (Response response = get("/delay/0.1")) {
+            assertEquals(200, response.code());
+        }
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    public void invalidPathValuesGetBadRequest() throws IOException {
+        server = new EmbeddedHttpbin(128, null, false).start();
+        for (String path : new String[]{"/status/abc", "/status/42", "/status/99999999999",
+                "/bytes/-1", "/bytes/abc", "/bytes/2147483647", "/delay/abc", "/delay/-1"}) {
+            try (Response response = get(path)) {
+                assertEquals(path, 400, response.code());
+            }
+        }
+        // 之后的请求不受影响
+        try (Response response = get("/status/204")) {
+            assertEquals(204, response.code());
+        }
+    }
+
+    @Test
+    public void onlySuccessfulResponsesCarryValidators() throws IOException {
+        server = new EmbeddedHttpbin(128, null, true).errors(1, 503).start();
+        try (Response response = get("/get")) {
+            assertEquals(503, response.code());
+            assertNull(response.header("ETag"));
+            assertNull(response.header("Last-Modified"));
+        }
+        server.shutdown();
+
+        server = new EmbeddedHttpbin(128, null, true).start();
+        for (String path : new String[]{"/status/abc", "/status/404", "/delay/abc"}) {
+            try (Response response = get(path)) {
+                assertNull(path, response.header("ETag"));
+                assertNull(path, response.header("Last-Modified"));
+            }
+        }
+        final String etag;
+        try (Response response = get("/get")) {
+            etag = response.header("ETag");
+            assertNotNull(etag);
+            assertNotNull(response.header("Last-Modified"));
+        }
+        final Request conditional = new Request.Builder().url(server.url() + "/get").header("If-None-Match", etag).build();
+        try (Response response = client.newCall(conditional).execute()) {
+            assertEquals(304, response.code());
+            assertEquals(etag, response.header("ETag"));
+        }
+    }
+
+    private int countErrors(long seed) throws IOException {
+        server = new EmbeddedHttpbin(64, null, false)
+                .errors(0.25, 503)
+                .seed(seed)
+                .start();
+        int errors = 0;
+        for (int i = 0; i < 200; i++) {
+            try (Response response = get("/get")) {
+                if (response.code() == 503) {
+                    errors++;
+                }
+            }
+        }
+        assertEquals(errors, server.errors());
+        server.shutdown();
+        server = null;
+        return errors;
+    }
+
+    private Response get(String path) throws IOException {
+        return client.newCall(new Request.Builder().url(server.url() + path).build()).execute();
+    }
+}
@@ -0,0 +1,134 @@
+package com.xinchen.feign;
+
+import feign.Body;
+import feign.Contract;
+import feign.Feign;
+import feign.Headers;
+import feign.MethodMetadata;
+import feign.Param;
+import feign.QueryMap;
+import feign.Request;
+import feign.RequestLine;
+import feign.RequestTemplate;
+import feign.Response;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 07:20
+ */
+public class GeneratedContractTest {
+    private final Contract reflective = new Contract.Default();
+    private final Contract generated = new GeneratedContract();
+
+    @Test
+    public void generatedMetadataMatchesReflectiveParsing() {
+        assertTrue(GeneratedContract.isGenerated(TestInterface.class));
+        assertSameMetadata(TestInterface.class);
+    }
+
+    @Test
+    public void coversUrlOptionsExpanderAndFormParams() {
+        assertTrue(GeneratedContract.isGenerated(MixedApi.class));
+        assertSameMetadata(MixedApi.class);
+    }
+
+    @Test
+    public void unsupportedInterfacesFallBackToReflection() {
+        assertFalse(GeneratedContract.isGenerated(QueryMapApi.class));
+        assertSameMetadata(QueryMapApi.class);
+    }
+
+    @Test
+    public void generatedContractBuildsWorkingClient() {
+        final Request[] sent = new Request[1];
+        final TestInterface api = Feign.builder()
+                .contract(generated)
+                .client((request, options) -> {
+                    sent[0] = request;
+                    return Response.builder().status(200).request(request).headers(Collections.emptyMap()).build();
+                })
+                .target(TestInterface.class, "http://localhost");
+        api.mixedParams(7, "www", "A");
+        assertEquals("http://localhost/domains/7/records?name=www&type=A", sent[0].url());
+        assertEquals(Collections.singletonList("application/json"), sent[0].headers().get("Accept"));
+    }
+
+    private void assertSameMetadata(Class<?> type) {
+        final Map<String, MethodMetadata> expected = byKey(reflective.parseAndValidateMetadata(type));
+        final Map<String, MethodMetadata> actual = byKey(generated.parseAndValidateMetadata(type));
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<String, MethodMetadata> entry : expected.entrySet()) {
+            assertEquals(entry.getKey(), describe(entry.getValue()), describe(actual.get(entry.getKey())));
+        }
+    }
+
+    private static Map<String, MethodMetadata> byKey(List<MethodMetadata> metadata) {
+        return metadata.stream().collect(Collectors.toMap(MethodMetadata::configKey, Function.identity()));
+    }
+
+    private static String describe(MethodMetadata data) {
+        final RequestTemplate template = data.template();
+        return "method=" + data.method()
+                + " targetType=" + data.targetType()
+                + " returnType=" + data.returnType()
+                + " urlIndex=" + data.urlIndex()
+                + " bodyIndex=" + data.bodyIndex()
+                + " bodyType=" + data.bodyType()
+                + " headerMapIndex=" + data.headerMapIndex()
+                + " queryMapIndex=" + data.queryMapIndex()
+                + " formParams=" + data.formParams()
+                + " indexToName=" + data.indexToName()
+                + " indexToExpanderClass=" + data.indexToExpanderClass()
+                + " ignored=" + data.parameterToIgnore()
+                + " httpMethod=" + template.method()
+                + " url=" + template.url()
+                + " headers=" + template.headers()
+                + " bodyTemplate=" + template.bodyTemplate()
+                + " body=" + (template.body() == null ? null : new String(template.body()))
+                + " decodeSlash=" + template.decodeSlash()
+                + " collectionFormat=" + template.collectionFormat();
+    }
+
+    public static class UpperCase implements Param.Expander {
+        @Override
+        public String expand(Object value) {
+            return String.valueOf(value).toUpperCase();
+        }
+    }
+
+    @Headers({"Accept: application/json", "Accept: text/plain"})
+    interface MixedApi {
+        @RequestLine("GET /items/{id}")
+        Response get(URI base, @Param(value = "id", expander = UpperCase.class) String id, Request.Options options);
+
+        @RequestLine("POST /login")
+        @Body("user={user}&password={password}")
+        void login(@Param("user") String user, @Param("password") String password);
+
+        @RequestLine("POST /items")
+        @Headers({"Content-Type: application/json", "X-Trace: {trace}"})
+        List<String> create(Map<String, Object> body, @Param("trace") String trace);
+
+        @RequestLine(value = "GET /search?q={q}", decodeSlash = false)
+        @Body("plain")
+        byte[] search(@Param("q") String q);
+    }
+
+    interface QueryMapApi {
+        @RequestLine("GET /search")
+        Response search(@QueryMap Map<String, Object> query);
+    }
+}
@@ -0,0 +1,168 @@
+package com.xinchen.feign;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 01:20
+ */
+public class HedgingClientTest {
+    private final AtomicInteger calls = new AtomicInteger();
+
+    /**
+     * 第一次调用耗时300ms，之后立即返回，body是第几次调用
+     */
+    private final Client slowFirst = (request, options) -> {
+        final int call = calls.incrementAndGet();
+        if (call == 1) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return Response.builder()
+                .status(200)
+                .reason("OK")
+                .request(request)
+                .headers(Collections.emptyMap())
+                .body(String.valueOf(call), UTF_8)
+                .build();
+    };
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger closed = new AtomicInteger();
+
+    /**
+     * 等到release后才返回，记录响应body被关闭的次数
+     */
+    private final Client blocking = (request, options) -> {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return Response.builder()
+                .status(200)
+                .reason("OK")
+                .request(request)
+                .headers(Collections.emptyMap())
+                .body(new ByteArrayInputStream(new byte[0]) {
+                    @Override
+                    public void close() {
+                        closed.incrementAndGet();
+                    }
+                }, 0)
+                .build();
+    };
+
+    private static Request request(Request.HttpMethod method) {
+        return Request.create(method, "http://localhost/get", Collections.emptyMap(), null, UTF_8, null);
+    }
+
+    private static String body(Response response) throws Exception {
+        try (Response closing = response) {
+            return new String(Util.toByteArray(closing.body().asInputStream()), UTF_8);
+        }
+    }
+
+    @Test
+    public void hedgeWinsOverSlowPrimary() throws Exception {
+        final HedgingClient client = HedgingClient.builder(slowFirst)
+                .delay(20, TimeUnit.MILLISECONDS)
+                .build();
+
+        final long start = System.nanoTime();
+        assertEquals("2", body(client.execute(request(Request.HttpMethod.GET), new Request.Options())));
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(250));
+        assertEquals(1, client.hedges());
+        assertEquals(1, client.hedgeWins());
+    }
+
+    @Test
+    public void exhaustedBudgetWaitsForPrimary() throws Exception {
+        final HedgingClient client = HedgingClient.builder(slowFirst)
+                .delay(20, TimeUnit.MILLISECONDS)
+                .budget(0, 0)
+                .build();
+
+        assertEquals("1", body(client.execute(request(Request.HttpMethod.GET), new Request.Options())));
+        assertEquals(0, client.hedges());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void nonIdempotentRequestsAreNotHedged() throws Exception {
+        final HedgingClient client = HedgingClient.builder(slowFirst)
+                .delay(20, TimeUnit.MILLISECONDS)
+                .build();
+
+        assertEquals("1", body(client.execute(request(Request.HttpMethod.POST), new Request.Options())));
+        assertEquals(0, client.hedges());
+    }
+
+    @Test
+    public void interruptedCallerClosesLatePrimary() throws Exception {
+        final HedgingClient client = HedgingClient.builder(blocking)
+                .delay(10, TimeUnit.SECONDS)
+                .build();
+
+        assertInterrupted(client);
+        release.countDown();
+        awaitClosed(1);
+    }
+
+    @Test
+    public void interruptedCallerClosesLateWinnerAndLoser() throws Exception {
+        final HedgingClient client = HedgingClient.builder(blocking)
+                .delay(20, TimeUnit.MILLISECONDS)
+                .build();
+
+        assertInterrupted(client);
+        assertEquals(1, client.hedges());
+        release.countDown();
+        awaitClosed(2);
+    }
+
+    private static void assertInterrupted(HedgingClient client) throws Exception {
+        final AtomicReference<Throwable> thrown = new AtomicReference<>();
+        final Thread caller = new Thread(() -> {
+            try {
+                client.execute(request(Request.HttpMethod.GET), new Request.Options()).close();
+            } catch (IOException e) {
+                thrown.set(e);
+            }
+        });
+        caller.start();
+        TimeUnit.MILLISECONDS.sleep(200);
+        caller.interrupt();
+        caller.join(TimeUnit.SECONDS.toMillis(5));
+        assertNotNull(thrown.get());
+    }
+
+    private void awaitClosed(int expected) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (closed.get() < expected && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertEquals(expected, closed.get());
+    }
+}
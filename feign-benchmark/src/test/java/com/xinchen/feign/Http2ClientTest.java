@@ -0,0 +1,74 @@
+package com.xinchen.feign;
+
+import feign.Feign;
+import feign.Response;
+import feign.Retryer;
+import feign.Util;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 03:10
+ */
+public class Http2ClientTest {
+    private EmbeddedHttpbin server;
+
+    @Before
+    public void setUp() {
+        server = new EmbeddedHttpbin(512, null, false)
+                .latency(50, 0, 0, TimeUnit.MILLISECONDS)
+                .http2()
+                .start();
+    }
+
+    @After
+    public void tearDown() {
+        server.shutdown();
+    }
+
+    @Test
+    public void multiplexesConcurrentCallsOverFewConnections() throws Exception {
+        final Http2Client client = new Http2Client();
+        final TestInterface api = Feign.builder()
+                .client(client)
+                .retryer(Retryer.NEVER_RETRY)
+                .target(TestInterface.class, server.url());
+        // 先建立连接，之后的并发调用都走这条连接
+        try (Response response = api.query()) {
+            assertEquals(200, response.status());
+        }
+
+        final ExecutorService callers = Executors.newFixedThreadPool(32);
+        try {
+            final List<Future<Integer>> lengths = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                lengths.add(callers.submit(() -> {
+                    try (Response response = api.query()) {
+                        return Util.toByteArray(response.body().asInputStream()).length;
+                    }
+                }));
+            }
+            for (Future<Integer> length : lengths) {
+                assertEquals(512, (int) length.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        assertEquals(33, server.requests());
+        assertEquals(1, server.connections());
+        assertTrue(client.connectionCount() <= 1);
+    }
+}
@@ -0,0 +1,173 @@
+package com.xinchen.feign;
+
+import com.xinchen.feign.CacheableApacheHttpClient.CacheMeta;
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static feign.Util.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 19:40
+ */
+public class MappedL2CacheTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void entriesSurviveReopen() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        try (MappedL2Cache l2 = open(dir)) {
+            l2.put("GET /a", meta("a", TimeUnit.MINUTES.toNanos(1)), 0);
+            l2.put("GET /b", meta("b", TimeUnit.MINUTES.toNanos(1)), 0);
+            l2.put("GET /a", meta("a2", TimeUnit.MINUTES.toNanos(1)), 0);
+        }
+        try (MappedL2Cache l2 = open(dir)) {
+            assertEquals(2, l2.size());
+            CacheMeta a = l2.get("GET /a");
+            assertEquals("a2", body(a));
+            assertEquals("application/json", a.headers.get("content-type").iterator().next());
+            assertEquals(200, a.statusCode);
+            assertTrue(a.isFresh());
+        }
+    }
+
+    @Test
+    public void expiredEntriesAreNotServed() throws Exception {
+        try (MappedL2Cache l2 = open(folder.getRoot().toPath())) {
+            l2.put("GET /a", meta("a", TimeUnit.MILLISECONDS.toNanos(20)), 0);
+            Thread.sleep(50);
+            assertNull(l2.get("GET /a"));
+        }
+    }
+
+    @Test
+    public void compactionDropsSupersededSegments() throws Exception {
+        try (MappedL2Cache l2 = new MappedL2Cache(folder.getRoot().toPath(), 4096, 8, 0, TimeUnit.SECONDS)) {
+            // 每条记录约1KB，反复覆盖同一个key写出多个segment
+            for (int i = 0; i < 20; i++) {
+                l2.put("GET /a", meta(String.valueOf(i) + new String(new char[1000]), TimeUnit.MINUTES.toNanos(1)), 0);
+            }
+            int before = l2.segmentCount();
+            l2.compact();
+            assertTrue(l2.segmentCount() < before);
+            assertEquals("19", body(l2.get("GET /a")).substring(0, 2));
+        }
+    }
+
+    @Test
+    public void closedCacheNeitherServesNorStores() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        MappedL2Cache l2 = open(dir);
+        l2.put("GET /a", meta("a", TimeUnit.MINUTES.toNanos(1)), 0);
+        l2.close();
+        assertNull(l2.get("GET /a"));
+        assertFalse(l2.put("GET /b", meta("b", TimeUnit.MINUTES.toNanos(1)), 0));
+        // 重复close不会释放已经释放的锁
+        l2.close();
+        try (MappedL2Cache reopened = open(dir)) {
+            assertEquals(1, reopened.size());
+            assertNull(reopened.get("GET /b"));
+        }
+    }
+
+    @Test
+    public void concurrentPutsAcrossSegmentRolls() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        String padding = new String(new char[200]);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (MappedL2Cache l2 = new MappedL2Cache(dir, 4096, 64, 0, TimeUnit.SECONDS)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 25; i++) {
+                        assertTrue(l2.put("GET /" + thread + "/" + i,
+                                meta(thread + "/" + i + padding, TimeUnit.MINUTES.toNanos(1)), 0));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+            assertTrue(l2.segmentCount() > 1);
+        } finally {
+            executor.shutdownNow();
+        }
+        // 重新加载时按crc校验，每条记录都是完整的
+        try (MappedL2Cache l2 = new MappedL2Cache(dir, 4096, 64, 0, TimeUnit.SECONDS)) {
+            assertEquals(200, l2.size());
+            for (int t = 0; t < 8; t++) {
+                for (int i = 0; i < 25; i++) {
+                    assertEquals(t + "/" + i + padding, body(l2.get("GET /" + t + "/" + i)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void restartedClientIsServedFromSecondLevel() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        Request request = Request.create(Request.HttpMethod.GET, "http://localhost/get",
+                Collections.emptyMap(), null, UTF_8, null);
+        try (MappedL2Cache l2 = open(dir)) {
+            execute(client(new FakeUpstreamHttpClient(), l2), request);
+        }
+        FakeUpstreamHttpClient upstream = new FakeUpstreamHttpClient();
+        try (MappedL2Cache l2 = open(dir)) {
+            execute(client(upstream, l2), request);
+        }
+        assertEquals(0, upstream.requests());
+    }
+
+    private static CacheableApacheHttpClient client(FakeUpstreamHttpClient upstream, MappedL2Cache l2) {
+        return CacheableApacheHttpClient.builder()
+                .client(upstream)
+                .policy(new CachePolicy(true, 1, TimeUnit.MINUTES))
+                .secondLevel(l2)
+                .build();
+    }
+
+    private static void execute(CacheableApacheHttpClient client, Request request) throws IOException {
+        try (Response response = client.execute(request, new Request.Options())) {
+            assertEquals(200, response.status());
+        }
+    }
+
+    private static MappedL2Cache open(Path dir) throws IOException {
+        return new MappedL2Cache(dir, 1 << 20, 4, 0, TimeUnit.SECONDS);
+    }
+
+    private static String body(CacheMeta cacheMeta) throws IOException {
+        return new String(Util.toByteArray(cacheMeta.body.asInputStream()), UTF_8);
+    }
+
+    private static CacheMeta meta(String body, long ttlNanos) {
+        Map<String, Collection<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.put("Content-Type", Collections.singletonList("application/json"));
+        byte[] bytes = body.getBytes(UTF_8);
+        return new CacheMeta(200, "OK", headers, bytes.length, CachedBody.heap(bytes), ttlNanos);
+    }
+}
@@ -0,0 +1,133 @@
+package com.xinchen.feign;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 02:40
+ */
+public class MicroBatcherTest {
+    private final List<List<Integer>> loaded = new CopyOnWriteArrayList<>();
+
+    private final MicroBatcher.BatchLoader<Integer, String> loader = keys -> {
+        loaded.add(keys);
+        final Map<Integer, String> results = new HashMap<>();
+        for (Integer key : keys) {
+            if (key >= 0) {
+                results.put(key, "v" + key);
+            }
+        }
+        return results;
+    };
+
+    @Test
+    public void callsWithinWindowShareOneBatch() throws Exception {
+        try (MicroBatcher<Integer, String> batcher = MicroBatcher.builder(loader)
+                .window(50, TimeUnit.MILLISECONDS)
+                .build()) {
+            final List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                futures.add(batcher.submit(i));
+            }
+            for (int i = 0; i < 5; i++) {
+                assertEquals("v" + i, futures.get(i).get(1, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loaded.size());
+            assertEquals(5, loaded.get(0).size());
+        }
+    }
+
+    @Test
+    public void fullBatchIsSentWithoutWaitingForWindow() throws Exception {
+        try (MicroBatcher<Integer, String> batcher = MicroBatcher.builder(loader)
+                .window(10, TimeUnit.SECONDS)
+                .maxBatchSize(3)
+                .build()) {
+            final CompletableFuture<String> first = batcher.submit(1);
+            batcher.submit(2);
+            batcher.submit(3);
+            assertEquals("v1", first.get(1, TimeUnit.SECONDS));
+            assertEquals(1, batcher.batches());
+        }
+    }
+
+    @Test
+    public void duplicateKeysShareFutureAndMissingKeysGetNull() throws Exception {
+        try (MicroBatcher<Integer, String> batcher = MicroBatcher.builder(loader)
+                .window(20, TimeUnit.MILLISECONDS)
+                .build()) {
+            final CompletableFuture<String> a = batcher.submit(7);
+            final CompletableFuture<String> b = batcher.submit(7);
+            final CompletableFuture<String> missing = batcher.submit(-1);
+            assertSame(a, b);
+            assertEquals("v7", a.get(1, TimeUnit.SECONDS));
+            assertNull(missing.get(1, TimeUnit.SECONDS));
+            assertEquals(2, loaded.get(0).size());
+        }
+    }
+
+    @Test
+    public void zeroWindowSendsEachCallAlone() throws Exception {
+        try (MicroBatcher<Integer, String> batcher = MicroBatcher.builder(loader)
+                .window(0, TimeUnit.MILLISECONDS)
+                .build()) {
+            assertEquals("v1", batcher.get(1));
+            assertEquals("v2", batcher.get(2));
+            assertEquals(2, batcher.batches());
+        }
+    }
+
+    @Test
+    public void loaderFailureFailsWholeBatch() throws Exception {
+        try (MicroBatcher<Integer, String> batcher = MicroBatcher.<Integer, String>builder(keys -> {
+            throw new IllegalStateException("upstream down");
+        }).window(10, TimeUnit.MILLISECONDS).build()) {
+            final CompletableFuture<String> a = batcher.submit(1);
+            final CompletableFuture<String> b = batcher.submit(2);
+            for (CompletableFuture<String> future : Arrays.asList(a, b)) {
+                try {
+                    future.get(1, TimeUnit.SECONDS);
+                    fail("expected failure");
+                } catch (ExecutionException expected) {
+                    assertEquals("upstream down", expected.getCause().getMessage());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void submitAfterCloseFailsInsteadOfHanging() throws Exception {
+        final MicroBatcher<Integer, String> batcher = MicroBatcher.builder(loader)
+                .window(10, TimeUnit.MILLISECONDS)
+                .build();
+        final CompletableFuture<String> pending = batcher.submit(1);
+        batcher.close();
+        assertEquals("v1", pending.get(1, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                batcher.submit(2).get(1, TimeUnit.SECONDS);
+                fail("expected failure");
+            } catch (ExecutionException expected) {
+                assertTrue(expected.getCause() instanceof IllegalStateException);
+            }
+        }
+    }
+}
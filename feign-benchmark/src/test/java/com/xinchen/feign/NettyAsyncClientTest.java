@@ -0,0 +1,97 @@
+package com.xinchen.feign;
+
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 22:10
+ */
+public class NettyAsyncClientTest {
+    private final MockWebServer server = new MockWebServer();
+    private final NettyAsyncClient<Void> client = new NettyAsyncClient<>();
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        client.close();
+        server.shutdown();
+    }
+
+    @Test
+    public void connectionIsReusedAcrossRequests() throws Exception {
+        server.enqueue(new MockResponse().setBody("first"));
+        server.enqueue(new MockResponse().setBody("second"));
+
+        assertEquals("first", body(execute(Request.HttpMethod.GET, null)));
+        assertEquals("second", body(execute(Request.HttpMethod.GET, null)));
+
+        assertEquals(0, server.takeRequest().getSequenceNumber());
+        assertEquals(1, server.takeRequest().getSequenceNumber());
+    }
+
+    @Test
+    public void requestBodyAndHeadersAreSent() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(201).setHeader("X-Id", "42"));
+
+        Response response = execute(Request.HttpMethod.POST, "{\"name\":\"feign\"}".getBytes(Util.UTF_8));
+        assertEquals(201, response.status());
+        assertEquals("42", response.headers().get("x-id").iterator().next());
+        response.close();
+
+        RecordedRequest recorded = server.takeRequest();
+        assertEquals("POST", recorded.getMethod());
+        assertEquals("/get?a=1", recorded.getPath());
+        assertEquals("{\"name\":\"feign\"}", recorded.getBody().readUtf8());
+    }
+
+    @Test
+    public void readTimeoutFailsTheFuture() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        Request request = Request.create(Request.HttpMethod.GET, server.url("/get").toString(),
+                Collections.emptyMap(), null, Util.UTF_8, null);
+        try {
+            client.execute(request, new Request.Options(1, TimeUnit.SECONDS, 100, TimeUnit.MILLISECONDS, true),
+                    Optional.empty()).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof SocketTimeoutException);
+        }
+    }
+
+    private Response execute(Request.HttpMethod method, byte[] body) throws Exception {
+        Request request = Request.create(method, server.url("/get?a=1").toString(),
+                Collections.emptyMap(), body, Util.UTF_8, null);
+        return client.execute(request, new Request.Options(), Optional.empty()).get(5, TimeUnit.SECONDS);
+    }
+
+    private static String body(Response response) throws IOException {
+        try (Response closing = response) {
+            return Util.toString(closing.body().asReader(Util.UTF_8));
+        }
+    }
+}
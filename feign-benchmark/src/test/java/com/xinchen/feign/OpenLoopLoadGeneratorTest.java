@@ -0,0 +1,78 @@
+package com.xinchen.feign;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 05:50
+ */
+public class OpenLoopLoadGeneratorTest {
+
+    @Test
+    public void issuesCallsAtTargetRate() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final OpenLoopLoadGenerator.Result result = OpenLoopLoadGenerator.builder()
+                .rate(200)
+                .warmup(0, TimeUnit.SECONDS)
+                .duration(1, TimeUnit.SECONDS)
+                .build()
+                .run(calls::incrementAndGet);
+
+        assertEquals(200, calls.get(), 2);
+        assertEquals(200, result.completed(), 2);
+        assertEquals(200, result.achievedRate(), 10);
+        assertEquals(0, result.errors());
+    }
+
+    @Test
+    public void queueingDelayIsCountedFromIntendedStart() throws Exception {
+        // 单线程执行，每次调用10ms，而计划每5ms发起一次：执行线程跟不上，排队时间越来越长
+        final ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            final OpenLoopLoadGenerator.Result result = OpenLoopLoadGenerator.builder()
+                    .rate(200)
+                    .warmup(0, TimeUnit.SECONDS)
+                    .duration(500, TimeUnit.MILLISECONDS)
+                    .executor(single)
+                    .build()
+                    .run(() -> Thread.sleep(10));
+
+            final long service = result.service().getValueAtPercentile(99);
+            final long latency = result.latency().getValueAtPercentile(99);
+            assertTrue("service p99 " + service, service < TimeUnit.MILLISECONDS.toNanos(50));
+            // 100个调用排队，最后一个要等约500ms
+            assertTrue("latency p99 " + latency, latency > TimeUnit.MILLISECONDS.toNanos(300));
+            assertTrue(result.achievedRate() < 150);
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    @Test
+    public void errorsAndDroppedCallsAreCounted() throws Exception {
+        final OpenLoopLoadGenerator.Result result = OpenLoopLoadGenerator.builder()
+                .rate(100)
+                .warmup(0, TimeUnit.SECONDS)
+                .duration(500, TimeUnit.MILLISECONDS)
+                .maxOutstanding(1)
+                .build()
+                .run(() -> {
+                    Thread.sleep(25);
+                    throw new IllegalStateException("boom");
+                });
+
+        assertEquals(0, result.completed());
+        assertTrue(result.errors() > 0);
+        assertTrue(result.dropped() > 0);
+        assertTrue(result.failureRatio() > 0.99);
+    }
+}
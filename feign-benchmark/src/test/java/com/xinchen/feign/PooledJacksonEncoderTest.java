@@ -0,0 +1,75 @@
+package com.xinchen.feign;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import feign.RequestTemplate;
+import feign.Util;
+import feign.jackson.JacksonEncoder;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 08:40
+ */
+public class PooledJacksonEncoderTest {
+    private static final Type LIST_OF_STRING = new TypeReference<List<String>>() {}.getType();
+
+    @Test
+    public void producesSameBodyAsJacksonEncoder() {
+        final BufferPool pool = new BufferPool(64, 1024);
+        final List<String> body = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            body.add("Citroën-" + i);
+        }
+
+        final RequestTemplate expected = new RequestTemplate();
+        new JacksonEncoder().encode(body, LIST_OF_STRING, expected);
+        final RequestTemplate actual = new RequestTemplate();
+        new PooledJacksonEncoder(new ObjectMapper()
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                .configure(SerializationFeature.INDENT_OUTPUT, true), pool)
+                .encode(body, LIST_OF_STRING, actual);
+
+        assertArrayEquals(expected.body(), actual.body());
+        assertEquals(Util.UTF_8, actual.requestCharset());
+        // 写了很多个chunk，但池最多留1024/64个
+        assertEquals(16, pool.pooledChunks());
+    }
+
+    @Test
+    public void chunksAreReusedAndCopiedOutInOrder() throws Exception {
+        final BufferPool pool = new BufferPool(8, 64);
+        final byte[] data = new byte[30];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        final BufferPool.PooledOutputStream out = pool.newStream();
+        out.write(data, 0, 5);
+        out.write(data[5]);
+        out.write(data, 6, 24);
+        assertEquals(30, out.size());
+        assertArrayEquals(data, out.toByteArray());
+        final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        out.writeTo(copy);
+        assertArrayEquals(data, copy.toByteArray());
+        out.release();
+        assertEquals(4, pool.pooledChunks());
+
+        final BufferPool.PooledOutputStream reused = pool.newStream();
+        reused.write(data, 0, 8);
+        assertEquals(3, pool.pooledChunks());
+        reused.release();
+    }
+}
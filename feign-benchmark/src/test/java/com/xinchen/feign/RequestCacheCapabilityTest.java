@@ -0,0 +1,245 @@
+package com.xinchen.feign;
+
+import feign.Feign;
+import feign.FeignException;
+import feign.Param;
+import feign.Request;
+import feign.RequestLine;
+import feign.Response;
+import feign.Retryer;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 08:00
+ */
+public class RequestCacheCapabilityTest {
+    private final List<Request> sent = new ArrayList<>();
+    private final AtomicInteger expansions = new AtomicInteger();
+    private int status = 200;
+
+    private final RequestCacheCapability capability = RequestCacheCapability.builder()
+            .cache("TestInterface#mixedParams(int,String,String)", 16)
+            .cache("TestInterface#headers(String)", 16)
+            .build();
+
+    private final TestInterface api = Feign.builder()
+            .client((request, options) -> {
+                sent.add(request);
+                return Response.builder()
+                        .status(status)
+                        .request(request)
+                        .headers(Collections.emptyMap())
+                        .body("ok", feign.Util.UTF_8)
+                        .build();
+            })
+            .requestInterceptor(template -> expansions.incrementAndGet())
+            .retryer(Retryer.NEVER_RETRY)
+            .addCapability(capability)
+            .target(TestInterface.class, "http://localhost");
+
+    @Test
+    public void repeatedArgumentsReuseResolvedRequest() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            try (Response response = api.mixedParams(7, "www", "A")) {
+                assertEquals(200, response.status());
+                assertEquals("ok", feign.Util.toString(response.body().asReader(feign.Util.UTF_8)));
+            }
+        }
+        api.mixedParams(8, "www", "A");
+
+        assertEquals(2, expansions.get());
+        assertEquals(4, sent.size());
+        assertSame(sent.get(0), sent.get(1));
+        assertEquals("http://localhost/domains/7/records?name=www&type=A", sent.get(2).url());
+        assertEquals("http://localhost/domains/8/records?name=www&type=A", sent.get(3).url());
+        assertEquals(2, capability.stats().get("TestInterface#mixedParams(int,String,String)").hitCount());
+    }
+
+    @Test
+    public void headersAreCachedWithTheRequest() {
+        api.headers("t1");
+        api.headers("t1");
+        assertEquals(1, expansions.get());
+        assertEquals(Collections.singletonList("t1"), new ArrayList<>(sent.get(1).headers().get("Auth-Token")));
+    }
+
+    @Test
+    public void uncachedMethodsExpandEveryTime() {
+        api.query();
+        api.query();
+        assertEquals(2, expansions.get());
+    }
+
+    @Test
+    public void errorStatusOnCachedRequestUsesErrorDecoder() {
+        api.headers("t1");
+        status = 503;
+        try {
+            api.headers("t1");
+            fail();
+        } catch (FeignException e) {
+            assertEquals(503, e.status());
+        }
+        assertEquals(1, expansions.get());
+    }
+
+    @Test
+    public void errorDecoderReadsStreamingBodyBeforeClose() {
+        final TestInterface streaming = Feign.builder()
+                .client((request, options) -> Response.builder()
+                        .status(503)
+                        .request(request)
+                        .headers(Collections.emptyMap())
+                        .body(new ClosableStream("unavailable".getBytes(feign.Util.UTF_8)), null)
+                        .build())
+                .retryer(Retryer.NEVER_RETRY)
+                .addCapability(RequestCacheCapability.builder().cache("TestInterface#headers(String)", 16).build())
+                .target(TestInterface.class, "http://localhost");
+        for (int i = 0; i < 2; i++) {
+            try {
+                streaming.headers("t1");
+                fail();
+            } catch (FeignException e) {
+                assertEquals(503, e.status());
+                assertEquals("unavailable", e.contentUTF8());
+            }
+        }
+    }
+
+    @Test
+    public void sharedCapabilityKeepsEachProxysClientAndRequests() throws Exception {
+        final List<Request> other = new ArrayList<>();
+        final TestInterface second = Feign.builder()
+                .client((request, options) -> {
+                    other.add(request);
+                    return Response.builder()
+                            .status(200)
+                            .request(request)
+                            .headers(Collections.emptyMap())
+                            .body("other", feign.Util.UTF_8)
+                            .build();
+                })
+                .addCapability(capability)
+                .target(TestInterface.class, "http://other");
+        for (int i = 0; i < 2; i++) {
+            try (Response response = api.mixedParams(7, "www", "A")) {
+                assertEquals("ok", feign.Util.toString(response.body().asReader(feign.Util.UTF_8)));
+            }
+            try (Response response = second.mixedParams(7, "www", "A")) {
+                assertEquals("other", feign.Util.toString(response.body().asReader(feign.Util.UTF_8)));
+            }
+        }
+        assertEquals(2, sent.size());
+        assertEquals(2, other.size());
+        assertEquals("http://localhost/domains/7/records?name=www&type=A", sent.get(1).url());
+        assertEquals("http://other/domains/7/records?name=www&type=A", other.get(1).url());
+        assertEquals(2, capability.stats().get("TestInterface#mixedParams(int,String,String)").hitCount());
+    }
+
+    @Test
+    public void cachedCallsHonorDecode404() {
+        final RequestCacheCapability cache = lookupCache();
+        final Lookup lookup = Feign.builder()
+                .client((request, options) -> Response.builder()
+                        .status(404)
+                        .request(request)
+                        .headers(Collections.emptyMap())
+                        .body("missing", feign.Util.UTF_8)
+                        .build())
+                .decode404()
+                .addCapability(cache)
+                .target(Lookup.class, "http://localhost");
+        // Decoder.Default把404解码成空值
+        assertNull(lookup.item("a"));
+        assertNull(lookup.item("a"));
+        assertEquals(1, cache.stats().get("Lookup#item(String)").hitCount());
+    }
+
+    @Test
+    public void cachedCallsHonorDoNotCloseAfterDecode() {
+        final List<ClosableStream> bodies = new ArrayList<>();
+        final RequestCacheCapability cache = lookupCache();
+        final Lookup lookup = Feign.builder()
+                .client((request, options) -> {
+                    final ClosableStream body = new ClosableStream("a\nb\n".getBytes(feign.Util.UTF_8));
+                    bodies.add(body);
+                    return Response.builder()
+                            .status(200)
+                            .request(request)
+                            .headers(Collections.emptyMap())
+                            .body(body, null)
+                            .build();
+                })
+                .decoder((response, type) -> new BufferedReader(response.body().asReader(feign.Util.UTF_8)).lines().iterator())
+                .doNotCloseAfterDecode()
+                .addCapability(cache)
+                .target(Lookup.class, "http://localhost");
+        for (int i = 0; i < 2; i++) {
+            final Iterator<String> lines = lookup.lines("a");
+            assertEquals("a", lines.next());
+            assertEquals("b", lines.next());
+            assertFalse(lines.hasNext());
+        }
+        assertEquals(2, bodies.size());
+        assertFalse(bodies.get(1).closed);
+        assertEquals(1, cache.stats().get("Lookup#lines(String)").hitCount());
+    }
+
+    private static RequestCacheCapability lookupCache() {
+        return RequestCacheCapability.builder()
+                .cache("Lookup#item(String)", 16)
+                .cache("Lookup#lines(String)", 16)
+                .build();
+    }
+
+    interface Lookup {
+        @RequestLine("GET /items/{id}")
+        String item(@Param("id") String id);
+
+        @RequestLine("GET /items/{id}/lines")
+        Iterator<String> lines(@Param("id") String id);
+    }
+
+    /**
+     * 像网络流一样，关闭后再读会失败
+     */
+    private static final class ClosableStream extends InputStream {
+        private final InputStream delegate;
+        private boolean closed;
+
+        ClosableStream(byte[] bytes) {
+            this.delegate = new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            return delegate.read();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
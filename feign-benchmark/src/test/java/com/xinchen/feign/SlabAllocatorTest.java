@@ -0,0 +1,41 @@
+package com.xinchen.feign;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 18:30
+ */
+public class SlabAllocatorTest {
+
+    @Test
+    public void freedChunkIsReused() {
+        SlabAllocator allocator = new SlabAllocator(4096, 1024, 2);
+        ByteBuffer chunk = allocator.allocate(100);
+        assertEquals(128, chunk.capacity());
+        assertEquals(128, allocator.usedBytes());
+
+        allocator.free(chunk);
+        assertEquals(0, allocator.usedBytes());
+        assertSame(chunk, allocator.allocate(65));
+        assertEquals(1024, allocator.reservedBytes());
+    }
+
+    @Test
+    public void allocationFailsBeyondCapacityOrPageSize() {
+        SlabAllocator allocator = new SlabAllocator(2048, 1024, 2);
+        assertNull(allocator.allocate(1025));
+        assertTrue(allocator.allocate(1024) != null);
+        assertTrue(allocator.allocate(1024) != null);
+        assertNull(allocator.allocate(1024));
+        assertNull(allocator.allocate(64));
+    }
+}
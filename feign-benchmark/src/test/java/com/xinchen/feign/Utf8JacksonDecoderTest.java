@@ -0,0 +1,88 @@
+package com.xinchen.feign;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import feign.Request;
+import feign.Response;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/19 00:30
+ */
+public class Utf8JacksonDecoderTest {
+    private static final Type CAR_LIST = new TypeReference<List<BenchmarkDecoder.Car>>() {}.getType();
+    private static final Type CAR_ITERATOR = new TypeReference<Iterator<BenchmarkDecoder.Car>>() {}.getType();
+
+    private final Utf8JacksonDecoder decoder = new Utf8JacksonDecoder();
+
+    private static Response.Builder response(Map<String, Collection<String>> headers) {
+        return Response.builder()
+                .status(200)
+                .reason("OK")
+                .request(Request.create(Request.HttpMethod.GET, "/", Collections.emptyMap(), null, UTF_8, null))
+                .headers(headers);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void decodesArrayBackedBody() throws Exception {
+        final Response response = response(Collections.emptyMap())
+                .body(ArrayBackedBody.of(BenchmarkDecoder.carsJson(3).getBytes(UTF_8)))
+                .build();
+
+        final List<BenchmarkDecoder.Car> cars = (List<BenchmarkDecoder.Car>) decoder.decode(response, CAR_LIST);
+        assertEquals(3, cars.size());
+        assertEquals("Citroën", cars.get(0).manufacturer);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void decodesStreamBodyLazilyAsIterator() throws Exception {
+        final Response response = response(Collections.emptyMap())
+                .body(new ByteArrayInputStream(BenchmarkDecoder.carsJson(2).getBytes(UTF_8)), null)
+                .build();
+
+        final Iterator<BenchmarkDecoder.Car> cars = (Iterator<BenchmarkDecoder.Car>) decoder.decode(response, CAR_ITERATOR);
+        assertTrue(cars.hasNext());
+        assertEquals("c4", cars.next().name);
+        assertEquals("Citroën", cars.next().manufacturer);
+        assertFalse(cars.hasNext());
+    }
+
+    @Test
+    public void emptyBodyDecodesToNull() throws Exception {
+        final Response response = response(Collections.emptyMap())
+                .body(ArrayBackedBody.of(new byte[0]))
+                .build();
+
+        assertNull(decoder.decode(response, CAR_LIST));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void fallsBackToReaderForOtherCharsets() throws Exception {
+        final Response response = response(Collections.singletonMap("Content-Type",
+                Collections.singletonList("application/json; charset=ISO-8859-1")))
+                .body(BenchmarkDecoder.carsJson(1).getBytes(StandardCharsets.ISO_8859_1))
+                .build();
+
+        final List<BenchmarkDecoder.Car> cars = (List<BenchmarkDecoder.Car>) decoder.decode(response, CAR_LIST);
+        assertEquals("Citroën", cars.get(0).manufacturer);
+    }
+}
@@ -0,0 +1,100 @@
+package com.xinchen.feign;
+
+import feign.InvocationHandlerFactory;
+import feign.RequestLine;
+import feign.Retryer;
+import feign.httpclient.ApacheHttpClient;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Xin Chen (xinchenmelody@gmail.com)
+ * @version 1.0
+ * @date Created In 2026/10/18 23:00
+ */
+public class VirtualThreadFeignTest {
+
+    interface Api {
+        @RequestLine("GET /get")
+        String get();
+
+        @RequestLine("GET /get")
+        CompletableFuture<String> getAsync();
+    }
+
+    private static Api api(long latencyMillis, int maxConcurrentCalls, long timeoutMillis) {
+        return VirtualThreadFeign.builder()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .timeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .client(new ApacheHttpClient(
+                        new FakeUpstreamHttpClient("ok".getBytes(UTF_8), latencyMillis, TimeUnit.MILLISECONDS)))
+                .retryer(Retryer.NEVER_RETRY)
+                .target(Api.class, "http://localhost");
+    }
+
+    @Test
+    public void syncAndFutureMethodsDecodeBody() throws Exception {
+        final Api api = api(0, 4, 0);
+
+        assertEquals("ok", api.get());
+        assertEquals("ok", api.getAsync().get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void rejectsWhenBulkheadIsFull() throws Exception {
+        final Api api = api(300, 1, 0);
+
+        final CompletableFuture<String> inFlight = api.getAsync();
+        try {
+            api.get();
+            fail("expected RejectedExecutionException");
+        } catch (RejectedExecutionException expected) {
+            // bulkhead只有一个名额
+        }
+        assertEquals("ok", inFlight.get(1, TimeUnit.SECONDS));
+        assertEquals("ok", api.get());
+    }
+
+    @Test
+    public void syncCallTimesOut() {
+        final Api api = api(500, 4, 50);
+        try {
+            api.get();
+            fail("expected timeout");
+        } catch (CompletionException expected) {
+            assertTrue(expected.getCause() instanceof TimeoutException);
+        }
+    }
+
+    @Test
+    public void releasesPermitsAfterConcurrentCalls() throws Exception {
+        final Api api = api(20, 8, 0);
+        final CountDownLatch done = new CountDownLatch(8);
+        for (int i = 0; i < 8; i++) {
+            api.getAsync().whenComplete((body, error) -> done.countDown());
+        }
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertEquals("ok", api.get());
+    }
+
+    @Test
+    public void rejectsCustomInvocationHandlerFactory() {
+        try {
+            VirtualThreadFeign.builder().invocationHandlerFactory(new InvocationHandlerFactory.Default());
+            fail("expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException expected) {
+            assertTrue(expected.getMessage().contains("Capability"));
+        }
+    }
+}